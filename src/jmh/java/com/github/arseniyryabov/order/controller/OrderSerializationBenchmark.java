@@ -0,0 +1,57 @@
+package com.github.arseniyryabov.order.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+import com.github.arseniyryabov.order.service.OrderService;
+import com.github.arseniyryabov.order.support.OrderFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* Сериализация списка OrderResponse в JSON, как в ответах GET /orders
+ObjectMapper настроен как в приложении: модули Jackson2ObjectMapperBuilder, даты строками ISO-8601 */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderSerializationBenchmark {
+
+    private static final int ITEMS_PER_ORDER = 10;
+
+    // 50 - размер страницы по умолчанию
+    @Param({"1", "50", "500"})
+    private int orderCount;
+
+    private ObjectWriter writer;
+    private List<OrderResponse> orders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        writer = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build()
+                .writerFor(new TypeReference<List<OrderResponse>>() {});
+        orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            orders.add(OrderService.toResponse(OrderFixtures.order(ITEMS_PER_ORDER)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeOrders() throws JsonProcessingException {
+        return writer.writeValueAsBytes(orders);
+    }
+}
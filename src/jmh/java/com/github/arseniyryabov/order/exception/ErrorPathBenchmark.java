@@ -0,0 +1,72 @@
+package com.github.arseniyryabov.order.exception;
+
+import com.github.arseniyryabov.order.controller.OrderController;
+import com.github.arseniyryabov.order.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+
+/* Путь ошибки через GlobalExceptionHandler
+mvcInvalidStatus - весь путь Spring MVC: исключение из сервиса, поиск обработчика, ответ ErrorResponse в JSON;
+wrappedProductNotFound - создание обернутого исключения (стек вызовов) и разбор причин в handleRuntimeException */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ErrorPathBenchmark {
+
+    private static final UUID ORDER_ID = UUID.randomUUID();
+
+    private MockMvc mockMvc;
+    private GlobalExceptionHandler handler;
+    private WebRequest webRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        OrderService orderService = mock(OrderService.class, withSettings().stubOnly());
+        // Новое исключение на каждый вызов, как в работе, а не один заранее созданный экземпляр
+        when(orderService.updateOrderStatus(any(UUID.class), eq("SHIPPING"))).thenAnswer(invocation -> {
+            throw new InvalidOrderStatusException("SHIPPING");
+        });
+        handler = new GlobalExceptionHandler();
+        mockMvc = MockMvcBuilders.standaloneSetup(new OrderController(orderService, null, null, null, null, null, null))
+                .setControllerAdvice(handler)
+                .build();
+        webRequest = new ServletWebRequest(new MockHttpServletRequest("POST", "/orders"));
+    }
+
+    @Benchmark
+    public int mvcInvalidStatus() throws Exception {
+        return mockMvc.perform(patch("/orders/{orderId}/status", ORDER_ID).param("status", "SHIPPING"))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> wrappedProductNotFound() {
+        RuntimeException exception = new RuntimeException("Ошибка при получении продукта",
+                new ProductNotFoundException(ORDER_ID));
+        return handler.handleRuntimeException(exception, webRequest);
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.OrderCacheProperties;
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.config.ReadReplicaProperties;
+import com.github.arseniyryabov.order.config.ReadYourWrites;
+import com.github.arseniyryabov.order.config.ResilienceSettings;
+import com.github.arseniyryabov.order.config.UserServiceProperties;
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.integration.client.ProductCatalogCache;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.UserExistenceCache;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import com.github.arseniyryabov.order.repository.OrderItemRepository;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import com.github.arseniyryabov.order.support.OrderFixtures;
+import com.github.arseniyryabov.order.support.StubClientHttpRequestFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/* OrderService.createOrder без сети и БД
+Пользователь и товары отвечают заглушки на уровне HTTP-запроса (RestClient, Jackson, защита вызовов работают),
+репозитории и менеджер транзакций - заглушки. Проверка остатков в строгом режиме, поэтому каждый заказ
+делает batch-запрос товаров, как при оформлении с холодным кэшем */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CreateOrderBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int cartSize;
+
+    private ExecutorService lookupExecutor;
+    private DownstreamResilience userServiceResilience;
+    private DownstreamResilience productServiceResilience;
+    private OrderService orderService;
+    private CreateOrderRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<UUID> productIds = OrderFixtures.productIds(cartSize);
+        request = OrderFixtures.createOrderRequest(productIds);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        StubClientHttpRequestFactory userService = new StubClientHttpRequestFactory()
+                .respond("/users/", """
+                        {"id":1,"userName":"Иван","lastName":"Иванов"}""");
+        userServiceResilience = new DownstreamResilience("user-service", new ResilienceSettings(), meterRegistry);
+        UserServiceClient userServiceClient = new UserServiceClient(
+                RestClient.builder().baseUrl("http://user-service").requestFactory(userService).build(),
+                new UserExistenceCache(new UserServiceProperties(), meterRegistry),
+                userServiceResilience,
+                meterRegistry);
+
+        StubClientHttpRequestFactory productService = new StubClientHttpRequestFactory()
+                .respond("/products/batch", OrderFixtures.productsJson(productIds));
+        ProductServiceProperties productProperties = new ProductServiceProperties();
+        productProperties.getCache().setStrictStockChecks(true);
+        productServiceResilience = new DownstreamResilience("product-service", new ResilienceSettings(), meterRegistry);
+        ProductServiceClient productServiceClient = new ProductServiceClient(
+                RestClient.builder().baseUrl("http://product-service").requestFactory(productService).build(),
+                new ProductCatalogCache(productProperties, meterRegistry),
+                productServiceResilience,
+                meterRegistry);
+
+        // stubOnly: заглушки не запоминают вызовы, иначе память растет с числом итераций
+        OrderRepository orderRepository = mock(OrderRepository.class, withSettings().stubOnly());
+        // Ключ заказа присваивается при сохранении, как генератором TimeOrderedUuid
+        when(orderRepository.save(any(OrderEntity.class))).thenAnswer(invocation -> {
+            OrderEntity order = invocation.getArgument(0);
+            order.setOrderId(UUID.randomUUID());
+            return order;
+        });
+
+        lookupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        orderService = new OrderService(
+                orderRepository,
+                mock(OrderItemRepository.class, withSettings().stubOnly()),
+                userServiceClient,
+                new OrderPricingService(productServiceClient),
+                new ParallelLookups(lookupExecutor),
+                new StockOutboxService(mock(StockOutboxRepository.class, withSettings().stubOnly())),
+                new TransactionTemplate(mock(PlatformTransactionManager.class, withSettings().stubOnly())),
+                new ReadYourWrites(new ReadReplicaProperties()),
+                new OrderResponseCache(new OrderCacheProperties(), meterRegistry),
+                meterRegistry);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        userServiceResilience.close();
+        productServiceResilience.close();
+        lookupExecutor.close();
+    }
+
+    @Benchmark
+    public OrderEntity createOrder() {
+        return orderService.createOrder(request, 1L);
+    }
+}
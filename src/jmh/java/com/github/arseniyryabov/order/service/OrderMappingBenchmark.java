@@ -0,0 +1,38 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.support.OrderFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// OrderService.toResponse (ответ контроллера) на заказах с большим числом позиций
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int itemCount;
+
+    private OrderEntity order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        order = OrderFixtures.order(itemCount);
+    }
+
+    @Benchmark
+    public OrderResponse toResponse() {
+        return OrderService.toResponse(order);
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.arseniyryabov.order.support;
+
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderItemEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Данные для бенчмарков: корзины, заказы с позициями и ответы product-service
+public final class OrderFixtures {
+
+    private OrderFixtures() {
+    }
+
+    public static List<UUID> productIds(int count) {
+        return IntStream.range(0, count).mapToObj(i -> UUID.randomUUID()).toList();
+    }
+
+    public static CreateOrderRequest createOrderRequest(List<UUID> productIds) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setAddress("Москва, ул. Тверская, 1");
+        request.setDeliveryMethod("COURIER");
+        List<CreateOrderRequest.OrderItemRequest> items = new ArrayList<>();
+        productIds.forEach(productId -> {
+            CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+            item.setProductId(productId);
+            item.setQuantity(2);
+            items.add(item);
+        });
+        request.setItems(items);
+        return request;
+    }
+
+    // Тело ответа POST /products/batch, остаток достаточен для любого числа итераций
+    public static String productsJson(List<UUID> productIds) {
+        return productIds.stream()
+                .map(productId -> """
+                        {"productId":"%s","name":"Товар %s","price":129.90,"stockQuantity":%d}"""
+                        .formatted(productId, productId, Integer.MAX_VALUE))
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    // Сохраненный заказ с позициями и снимком цены
+    public static OrderEntity order(int itemCount) {
+        OrderEntity order = new OrderEntity();
+        order.setOrderId(UUID.randomUUID());
+        order.setUserId(1L);
+        order.setAddress("Москва, ул. Тверская, 1");
+        order.setDeliveryMethod("COURIER");
+        order.setStatus(OrderStatus.CREATED);
+        order.setCreatedAt(LocalDateTime.now());
+        List<OrderItemEntity> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            OrderItemEntity item = new OrderItemEntity();
+            item.setOrderItemId(UUID.randomUUID());
+            item.setOrder(order);
+            item.setProductId(UUID.randomUUID());
+            item.setQuantity(2);
+            item.setUnitPrice(new BigDecimal("129.90"));
+            item.setProductName("Товар " + i);
+            item.setLineTotal(new BigDecimal("259.80"));
+            items.add(item);
+        }
+        order.setItems(items);
+        order.setTotalAmount(new BigDecimal("259.80").multiply(BigDecimal.valueOf(itemCount)));
+        return order;
+    }
+}
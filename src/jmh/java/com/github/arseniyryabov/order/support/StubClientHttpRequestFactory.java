@@ -0,0 +1,44 @@
+package com.github.arseniyryabov.order.support;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Ответы нижестоящих сервисов без сети: готовое тело по пути запроса
+Запрос и ответ проходят через RestClient и Jackson как в работе, исключено только время сети */
+public class StubClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+
+    // Ответ 200 с телом json на запросы, путь которых начинается с pathPrefix
+    public StubClientHttpRequestFactory respond(String pathPrefix, String json) {
+        responses.put(pathPrefix, json.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new MockClientHttpRequest(httpMethod, uri) {
+            @Override
+            protected ClientHttpResponse executeInternal() {
+                MockClientHttpResponse response = responses.entrySet().stream()
+                        .filter(entry -> uri.getPath().startsWith(entry.getKey()))
+                        .findFirst()
+                        .map(entry -> new MockClientHttpResponse(entry.getValue(), HttpStatus.OK))
+                        .orElseGet(() -> new MockClientHttpResponse(new byte[0], HttpStatus.NOT_FOUND));
+                response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                return response;
+            }
+        };
+    }
+}
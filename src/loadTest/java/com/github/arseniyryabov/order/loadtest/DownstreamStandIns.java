@@ -0,0 +1,170 @@
+package com.github.arseniyryabov.order.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/* Встроенные замены user-service и product-service для нагрузочного прогона
+Каждая отвечает с задержкой из заданного распределения и с заданной долей ответов 503.
+user-service: GET /users/{id} - пользователи 1..users существуют, остальные 404.
+product-service: GET /products/{id}, POST /products/batch, POST /products/{id}/decrease-stock
+и /increase-stock; остатки хранятся в памяти, при нехватке товара списание отвечает 409 */
+public class DownstreamStandIns implements AutoCloseable {
+
+    private static final Pattern USER_PATH = Pattern.compile("/users/(\\d+)");
+    private static final Pattern PRODUCT_PATH =
+            Pattern.compile("/products/([0-9a-fA-F-]{36})(/(decrease|increase)-stock)?");
+    private static final BigDecimal PRICE = new BigDecimal("129.90");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadTestSettings settings;
+    private final List<UUID> productIds;
+    private final Map<UUID, AtomicInteger> stock = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final HttpServer userServer;
+    private final HttpServer productServer;
+
+    public DownstreamStandIns(LoadTestSettings settings) throws IOException {
+        this.settings = settings;
+        List<UUID> ids = new ArrayList<>(settings.products());
+        for (int i = 0; i < settings.products(); i++) {
+            UUID productId = UUID.randomUUID();
+            ids.add(productId);
+            stock.put(productId, new AtomicInteger(settings.stock()));
+        }
+        this.productIds = List.copyOf(ids);
+        this.userServer = start("/users", settings.user(), this::handleUser);
+        this.productServer = start("/products", settings.product(), this::handleProduct);
+    }
+
+    public String userServiceUrl() {
+        return "http://127.0.0.1:" + userServer.getAddress().getPort();
+    }
+
+    public String productServiceUrl() {
+        return "http://127.0.0.1:" + productServer.getAddress().getPort();
+    }
+
+    public List<UUID> productIds() {
+        return productIds;
+    }
+
+    // Число запросов к заглушкам по эндпоинтам, включая ответы 503
+    public Map<String, Integer> requestCounts() {
+        return requestCounts.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().get()));
+    }
+
+    @Override
+    public void close() {
+        userServer.stop(0);
+        productServer.stop(0);
+    }
+
+    private HttpServer start(String context, LoadTestSettings.StandIn standIn, HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext(context, exchange -> {
+            try (exchange) {
+                TimeUnit.NANOSECONDS.sleep(standIn.latency().sampleNanos());
+                if (ThreadLocalRandom.current().nextDouble() < standIn.errorRate()) {
+                    count(context + " 503");
+                    exchange.getRequestBody().readAllBytes();
+                    respond(exchange, 503, "{\"message\":\"Сервис недоступен\"}");
+                    return;
+                }
+                handler.handle(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return server;
+    }
+
+    private void handleUser(HttpExchange exchange) throws IOException {
+        Matcher matcher = USER_PATH.matcher(exchange.getRequestURI().getPath());
+        count("GET /users/{id}");
+        if (!matcher.matches() || Long.parseLong(matcher.group(1)) > settings.users()) {
+            respond(exchange, 404, "{\"message\":\"Пользователь не найден\"}");
+            return;
+        }
+        respond(exchange, 200, "{\"id\":%s,\"userName\":\"Иван\",\"lastName\":\"Иванов\"}".formatted(matcher.group(1)));
+    }
+
+    private void handleProduct(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/products/batch")) {
+            count("POST /products/batch");
+            List<UUID> ids = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {});
+            respond(exchange, 200, ids.stream()
+                    .filter(stock::containsKey)
+                    .map(this::productJson)
+                    .collect(Collectors.joining(",", "[", "]")));
+            return;
+        }
+        Matcher matcher = PRODUCT_PATH.matcher(path);
+        if (!matcher.matches()) {
+            count("unknown");
+            respond(exchange, 404, "{\"message\":\"Неизвестный путь\"}");
+            return;
+        }
+        UUID productId = UUID.fromString(matcher.group(1));
+        String operation = matcher.group(3);
+        if (operation == null) {
+            count("GET /products/{id}");
+            respond(exchange, stock.containsKey(productId) ? 200 : 404,
+                    stock.containsKey(productId) ? productJson(productId) : "{}");
+            return;
+        }
+        count("POST /products/{id}/" + operation + "-stock");
+        Map<String, Integer> body = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {});
+        AtomicInteger available = stock.get(productId);
+        if (available == null) {
+            respond(exchange, 404, "{\"message\":\"Товар не найден\"}");
+            return;
+        }
+        int delta = "decrease".equals(operation) ? -body.get("quantity") : body.get("quantity");
+        boolean changed = available.getAndUpdate(current -> current + delta >= 0 ? current + delta : current)
+                + delta >= 0;
+        respond(exchange, changed ? 200 : 409, changed ? "{}" : "{\"message\":\"Недостаточно товара на складе\"}");
+    }
+
+    private String productJson(UUID productId) {
+        return "{\"productId\":\"%s\",\"name\":\"Товар %s\",\"price\":%s,\"stockQuantity\":%d}"
+                .formatted(productId, productId, PRICE, stock.get(productId).get());
+    }
+
+    private void count(String endpoint) {
+        requestCounts.computeIfAbsent(endpoint, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
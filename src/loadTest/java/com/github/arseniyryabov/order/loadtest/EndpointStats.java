@@ -0,0 +1,59 @@
+package com.github.arseniyryabov.order.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/* Результаты одного эндпоинта: время ответа всех запросов и распределение кодов ответа
+Время считается от запланированного момента отправки, а не от фактического, поэтому задержка
+отправки из-за перегрузки попадает в перцентили (без coordinated omission) */
+public class EndpointStats {
+
+    private final String endpoint;
+    private long[] latencies = new long[1024];
+    private int count;
+    private final Map<String, Integer> outcomes = new TreeMap<>();
+
+    public EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    // outcome: код ответа HTTP или имя исключения, если ответа не было
+    public synchronized void record(long latencyNanos, String outcome) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        outcomes.merge(outcome, 1, Integer::sum);
+    }
+
+    public synchronized Summary summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int errors = outcomes.entrySet().stream()
+                .filter(entry -> !entry.getKey().startsWith("2"))
+                .mapToInt(Map.Entry::getValue)
+                .sum();
+        return new Summary(endpoint, count, errors, count / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), count > 0 ? millis(sorted[count - 1]) : 0,
+                new TreeMap<>(outcomes));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return millis(sorted[(int) Math.ceil(quantile * sorted.length) - 1]);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // Сводка для отчета, время в миллисекундах
+    public record Summary(String endpoint, int requests, int errors, double throughput,
+                          double p50, double p90, double p99, double p999, double max,
+                          Map<String, Integer> outcomes) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.arseniyryabov.order.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/* Распределение задержки ответа заглушки
+fixed:5ms - постоянная задержка;
+uniform:2ms:20ms - равномерно между двумя значениями;
+lognormal:5ms:50ms - логнормальное с заданными медианой и p99 (длинный хвост, как у реальных сервисов) */
+public sealed interface LatencyDistribution {
+
+    // z-оценка 99-го перцентиля стандартного нормального распределения
+    double Z_99 = 2.3263478740;
+
+    long sampleNanos();
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        return switch (parts[0]) {
+            case "fixed" -> new Fixed(duration(parts, 1));
+            case "uniform" -> new Uniform(duration(parts, 1), duration(parts, 2));
+            case "lognormal" -> new LogNormal(duration(parts, 1), duration(parts, 2));
+            default -> throw new IllegalArgumentException("Неизвестное распределение задержки: " + spec);
+        };
+    }
+
+    private static Duration duration(String[] parts, int index) {
+        if (parts.length <= index) {
+            throw new IllegalArgumentException("Не хватает параметров распределения: " + String.join(":", parts));
+        }
+        return DurationStyle.detectAndParse(parts[index]);
+    }
+
+    record Fixed(Duration latency) implements LatencyDistribution {
+
+        @Override
+        public long sampleNanos() {
+            return latency.toNanos();
+        }
+    }
+
+    record Uniform(Duration min, Duration max) implements LatencyDistribution {
+
+        @Override
+        public long sampleNanos() {
+            return ThreadLocalRandom.current().nextLong(min.toNanos(), max.toNanos() + 1);
+        }
+    }
+
+    record LogNormal(Duration median, Duration p99) implements LatencyDistribution {
+
+        public LogNormal {
+            if (p99.compareTo(median) < 0) {
+                throw new IllegalArgumentException("p99 задержки меньше медианы");
+            }
+        }
+
+        @Override
+        public long sampleNanos() {
+            double mu = Math.log(median.toNanos());
+            double sigma = (Math.log(p99.toNanos()) - mu) / Z_99;
+            return (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.arseniyryabov.order.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/* Генератор нагрузки по открытой модели: запросы отправляются с постоянной интенсивностью rate
+независимо от того, ответил ли сервис на предыдущие (как приходят независимые клиенты).
+Каждый запрос выполняется в своем виртуальном потоке, время ответа считается от запланированного момента.
+Эндпоинт выбирается случайно по долям из loadtest.mix */
+public class LoadDriver {
+
+    // Запросы сверх этого числа одновременно выполняющихся не отправляются и учитываются как dropped
+    private static final int MAX_IN_FLIGHT = 20_000;
+    private static final int KNOWN_ORDERS = 10_000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestSettings settings;
+    private final String baseUrl;
+    private final List<UUID> productIds;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+    private final Map<String, Scenario> scenarios = new LinkedHashMap<>();
+    private final List<String> weightedScenarios = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Созданные заказы для запросов чтения и смены статуса (кольцевой буфер последних KNOWN_ORDERS)
+    private final AtomicReferenceArray<KnownOrder> knownOrders = new AtomicReferenceArray<>(KNOWN_ORDERS);
+    private final AtomicLong createdOrders = new AtomicLong();
+    private volatile Map<String, EndpointStats> stats = new LinkedHashMap<>();
+
+    public LoadDriver(LoadTestSettings settings, String baseUrl, List<UUID> productIds) {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+        this.productIds = productIds;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        scenario("create", "POST /orders", order -> post("/orders", order.userId(), createOrderJson()));
+        scenario("batch", "POST /orders/batch", order -> post("/orders/batch", order.userId(), batchJson()));
+        scenario("get", "GET /orders/{id}", order -> get("/orders/" + order.orderId(), order.userId()));
+        scenario("user-page", "GET /orders", order -> get("/orders?limit=20", order.userId()));
+        scenario("status-page", "GET /orders/status/{status}", order -> get("/orders/status/CREATED?limit=50", null));
+        scenario("update-status", "PATCH /orders/{id}/status", order -> request("/orders/" + order.orderId()
+                + "/status?status=PROCESSING", null).method("PATCH", HttpRequest.BodyPublishers.noBody()));
+        scenario("stream", "GET /orders/status/{status}/stream",
+                order -> get("/orders/status/PROCESSING/stream", null));
+
+        settings.mix().forEach((name, weight) -> {
+            if (!scenarios.containsKey(name)) {
+                throw new IllegalArgumentException("Неизвестный сценарий " + name + ", доступны: " + scenarios.keySet());
+            }
+            for (int i = 0; i < weight; i++) {
+                weightedScenarios.add(name);
+            }
+        });
+    }
+
+    /* Фаза нагрузки длительностью phase. Результаты прогрева (record = false) не попадают в отчет,
+    но созданные заказы используются дальше */
+    public Map<String, EndpointStats> run(Duration phase, boolean record) throws InterruptedException {
+        Map<String, EndpointStats> phaseStats = new LinkedHashMap<>();
+        scenarios.values().forEach(scenario -> phaseStats.put(scenario.endpoint(), new EndpointStats(scenario.endpoint())));
+        phaseStats.put("dropped", new EndpointStats("dropped"));
+        stats = phaseStats;
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+        long start = System.nanoTime();
+        long end = start + phase.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + i * interval;
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (inFlight.get() >= MAX_IN_FLIGHT) {
+                    phaseStats.get("dropped").record(System.nanoTime() - intended, "dropped");
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        execute(intended);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        }
+        if (!record) {
+            return Map.of();
+        }
+        return phaseStats;
+    }
+
+    private void execute(long intended) {
+        String name = weightedScenarios.get(ThreadLocalRandom.current().nextInt(weightedScenarios.size()));
+        KnownOrder order = randomKnownOrder();
+        if (order == null) {
+            // Заказов для чтения еще нет, сначала они создаются
+            name = "create";
+            order = new KnownOrder(null, randomUserId());
+        }
+        Scenario scenario = scenarios.get(name);
+        String outcome;
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    scenario.request().apply(order).timeout(REQUEST_TIMEOUT).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            outcome = Integer.toString(response.statusCode());
+            if (name.equals("create") && response.statusCode() == 201) {
+                remember(objectMapper.readTree(response.body()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = e.getClass().getSimpleName();
+        } catch (Exception e) {
+            outcome = e.getClass().getSimpleName();
+        }
+        stats.get(scenario.endpoint()).record(System.nanoTime() - intended, outcome);
+    }
+
+    private void scenario(String name, String endpoint, Function<KnownOrder, HttpRequest.Builder> request) {
+        scenarios.put(name, new Scenario(endpoint, request));
+    }
+
+    private HttpRequest.Builder request(String path, Long userId) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path));
+        if (userId != null) {
+            builder.header("X-User-Id", userId.toString());
+        }
+        return builder;
+    }
+
+    private HttpRequest.Builder get(String path, Long userId) {
+        return request(path, userId).GET();
+    }
+
+    private HttpRequest.Builder post(String path, Long userId, String json) {
+        return request(path, userId)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private String createOrderJson() {
+        String items = ThreadLocalRandom.current().ints(settings.cartSize(), 0, productIds.size())
+                .mapToObj(index -> "{\"productId\":\"%s\",\"quantity\":1}".formatted(productIds.get(index)))
+                .collect(Collectors.joining(",", "[", "]"));
+        return "{\"address\":\"Москва, ул. Тверская, 1\",\"deliveryMethod\":\"COURIER\",\"items\":%s}".formatted(items);
+    }
+
+    private String batchJson() {
+        List<String> orders = new ArrayList<>(settings.batchSize());
+        for (int i = 0; i < settings.batchSize(); i++) {
+            orders.add(createOrderJson());
+        }
+        return "{\"orders\":[" + String.join(",", orders) + "]}";
+    }
+
+    private void remember(JsonNode order) {
+        long slot = createdOrders.getAndIncrement() % KNOWN_ORDERS;
+        knownOrders.set((int) slot, new KnownOrder(UUID.fromString(order.get("orderId").asText()),
+                order.get("userId").asLong()));
+    }
+
+    private KnownOrder randomKnownOrder() {
+        long created = createdOrders.get();
+        if (created == 0) {
+            return null;
+        }
+        // Слот может быть еще не заполнен, если заказ создается прямо сейчас
+        return knownOrders.get(ThreadLocalRandom.current().nextInt((int) Math.min(created, KNOWN_ORDERS)));
+    }
+
+    private long randomUserId() {
+        return ThreadLocalRandom.current().nextLong(1, settings.users() + 1);
+    }
+
+    private record Scenario(String endpoint, Function<KnownOrder, HttpRequest.Builder> request) {
+    }
+
+    private record KnownOrder(UUID orderId, long userId) {
+    }
+}
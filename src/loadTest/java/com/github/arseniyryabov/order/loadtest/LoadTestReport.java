@@ -0,0 +1,51 @@
+package com.github.arseniyryabov.order.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+// Отчет прогона: таблица в консоль и JSON-файл для сравнения прогонов между собой
+public record LoadTestReport(LoadTestSettings settings, double seconds, List<EndpointStats.Summary> endpoints,
+                             Map<String, Integer> downstreamRequests) {
+
+    public static LoadTestReport of(LoadTestSettings settings, Duration measured, Map<String, EndpointStats> stats,
+                                    Map<String, Integer> downstreamRequests) {
+        double seconds = measured.toMillis() / 1000.0;
+        List<EndpointStats.Summary> endpoints = stats.values().stream()
+                .map(endpoint -> endpoint.summarize(seconds))
+                .filter(summary -> summary.requests() > 0)
+                .toList();
+        return new LoadTestReport(settings, seconds, endpoints, downstreamRequests);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%nRate %d req/s, measured %.0f s, user-service %s, product-service %s%n",
+                settings.rate(), seconds, settings.user(), settings.product());
+        out.printf("%-36s %9s %8s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (EndpointStats.Summary summary : endpoints) {
+            out.printf("%-36s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    summary.endpoint(), summary.requests(), summary.errors(), summary.throughput(),
+                    summary.p50(), summary.p90(), summary.p99(), summary.p999(), summary.max(), summary.outcomes());
+        }
+        out.println("Downstream requests: " + downstreamRequests);
+    }
+
+    public void write() throws IOException {
+        Files.createDirectories(settings.report().toAbsolutePath().getParent());
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        objectMapper.writeValue(settings.report().toFile(), Map.of(
+                "rate", settings.rate(),
+                "seconds", seconds,
+                "userService", settings.user().toString(),
+                "productService", settings.product().toString(),
+                "endpoints", endpoints,
+                "downstreamRequests", downstreamRequests));
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.arseniyryabov.order.loadtest;
+
+import com.github.arseniyryabov.order.OrderApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/* Нагрузочный прогон order-service без внешних зависимостей: ./gradlew loadTest
+1. Запускаются заглушки user-service и product-service (DownstreamStandIns)
+2. Запускается приложение с профилем loadtest (H2 в режиме PostgreSQL) на свободном порту
+3. Прогрев loadtest.warmup, затем замер loadtest.duration с постоянной интенсивностью loadtest.rate
+4. Отчет по каждому эндпоинту OrderController: пропускная способность, перцентили времени ответа, коды ответов */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+        try (DownstreamStandIns standIns = new DownstreamStandIns(settings);
+             // Аргументы командной строки приоритетнее application.yaml, в отличие от properties() билдера
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(OrderApplication.class)
+                     .profiles("loadtest")
+                     .run(Stream.concat(Stream.of(args), Stream.of(
+                             "--server.port=0",
+                             "--service.user.url=" + standIns.userServiceUrl(),
+                             "--service.product.url=" + standIns.productServiceUrl())).toArray(String[]::new))) {
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadDriver driver = new LoadDriver(settings, "http://127.0.0.1:" + port, standIns.productIds());
+
+            System.out.printf("Warmup %s at %d req/s%n", settings.warmup(), settings.rate());
+            driver.run(settings.warmup(), false);
+            System.out.printf("Measuring %s at %d req/s%n", settings.duration(), settings.rate());
+            long started = System.nanoTime();
+            Map<String, EndpointStats> stats = driver.run(settings.duration(), true);
+            Duration measured = Duration.ofNanos(System.nanoTime() - started);
+
+            LoadTestReport report = LoadTestReport.of(settings, measured, stats, standIns.requestCounts());
+            report.print(System.out);
+            report.write();
+            System.out.println("Report: " + settings.report().toAbsolutePath());
+        }
+    }
+}
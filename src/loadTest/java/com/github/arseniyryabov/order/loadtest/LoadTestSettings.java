@@ -0,0 +1,69 @@
+package com.github.arseniyryabov.order.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* Параметры нагрузочного прогона, задаются системными свойствами loadtest.*
+(из Gradle: ./gradlew loadTest -Dloadtest.rate=500 -Dloadtest.product.latency=lognormal:10ms:200ms) */
+public record LoadTestSettings(
+        // Интенсивность поступления запросов (запросов в секунду), не зависит от времени ответа
+        int rate,
+        Duration warmup,
+        Duration duration,
+        // Доли эндпоинтов в потоке запросов
+        Map<String, Integer> mix,
+        int users,
+        int products,
+        int stock,
+        int cartSize,
+        int batchSize,
+        StandIn user,
+        StandIn product,
+        Path report) {
+
+    // Поведение заглушки нижестоящего сервиса
+    public record StandIn(LatencyDistribution latency, double errorRate) {
+    }
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.rate", 100),
+                duration("loadtest.warmup", "10s"),
+                duration("loadtest.duration", "60s"),
+                mix(System.getProperty("loadtest.mix",
+                        "create=40,batch=2,get=25,user-page=15,status-page=10,update-status=7,stream=1")),
+                Integer.getInteger("loadtest.users", 1_000),
+                Integer.getInteger("loadtest.products", 500),
+                Integer.getInteger("loadtest.stock", 1_000_000),
+                Integer.getInteger("loadtest.cart-size", 3),
+                Integer.getInteger("loadtest.batch-size", 10),
+                standIn("user", "lognormal:2ms:20ms"),
+                standIn("product", "lognormal:3ms:40ms"),
+                Path.of(System.getProperty("loadtest.report", "build/results/loadtest/report.json")));
+    }
+
+    private static StandIn standIn(String service, String defaultLatency) {
+        String prefix = "loadtest." + service + ".";
+        return new StandIn(
+                LatencyDistribution.parse(System.getProperty(prefix + "latency", defaultLatency)),
+                Double.parseDouble(System.getProperty(prefix + "error-rate", "0")));
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+
+    // Формат: create=40,get=25,...
+    private static Map<String, Integer> mix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split("=");
+            mix.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return mix;
+    }
+}
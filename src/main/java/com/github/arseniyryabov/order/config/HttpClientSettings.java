@@ -0,0 +1,33 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+// Настройки пула соединений и таймаутов HTTP-клиента нижестоящего сервиса (service.*.http.*)
+@Data
+public class HttpClientSettings {
+
+    // Максимум одновременных соединений к сервису, остальные запросы ждут свободное соединение
+    private int maxConnections = 50;
+
+    // Сколько ждать свободное соединение из пула
+    private Duration poolAcquireTimeout = Duration.ofMillis(200);
+
+    private Duration connectTimeout = Duration.ofMillis(500);
+
+    // Максимальная пауза между пакетами ответа
+    private Duration readTimeout = Duration.ofSeconds(2);
+
+    // Общее ограничение на запрос целиком, включая ожидание пула и чтение тела ответа
+    private Duration requestDeadline = Duration.ofSeconds(5);
+
+    // Простаивающие соединения закрываются, чтобы не упираться в таймауты балансировщика
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    // Соединение пересоздается не реже этого интервала (перебалансировка по экземплярам сервиса)
+    private Duration connectionTtl = Duration.ofMinutes(5);
+
+    // Accept-Encoding: gzip, deflate и распаковка ответа
+    private boolean compression = true;
+}
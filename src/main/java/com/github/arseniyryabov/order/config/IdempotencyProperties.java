@@ -0,0 +1,31 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Настройки ключей идемпотентности POST /orders (order.idempotency.*)
+@Data
+@ConfigurationProperties(prefix = "order.idempotency")
+public class IdempotencyProperties {
+
+    private boolean enabled = true;
+
+    // Сколько хранится ответ по ключу: повтор после этого срока создаст новый заказ
+    private Duration keyTtl = Duration.ofHours(24);
+
+    // Через сколько незавершенный ключ считается брошенным и может быть выполнен повторно
+    private Duration inProgressTimeout = Duration.ofSeconds(30);
+
+    // Как часто повтор проверяет ключ, занятый запросом на другом экземпляре
+    private Duration inProgressPollInterval = Duration.ofMillis(100);
+
+    // Кэш завершенных ключей в памяти: частые повторы отвечают без обращения к БД
+    private int cacheMaximumSize = 10_000;
+
+    private Duration cacheTtl = Duration.ofMinutes(10);
+
+    // Сколько просроченных ключей удаляется одной транзакцией
+    private int sweepBatchSize = 1_000;
+}
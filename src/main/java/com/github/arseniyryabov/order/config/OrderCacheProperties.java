@@ -0,0 +1,43 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Настройки кэширования заказов (order.cache.*)
+@Data
+@ConfigurationProperties(prefix = "order.cache")
+public class OrderCacheProperties {
+
+    private ById byId = new ById();
+
+    private SecondLevel secondLevel = new SecondLevel();
+
+    // Кэш готовых ответов GET /orders/{orderId} по orderId
+    @Data
+    public static class ById {
+
+        private boolean enabled = true;
+
+        private long maximumSize = 10_000;
+
+        // Страховка от пропущенной инвалидации: запись живет не дольше ttl
+        private Duration ttl = Duration.ofMinutes(10);
+
+        // Доля попаданий, которые сверяются с основной БД (0 - без проверок)
+        private double staleCheckRate = 0.01;
+    }
+
+    // Кэш второго уровня Hibernate для заказов и позиций (регионы в Caffeine JCache)
+    @Data
+    public static class SecondLevel {
+
+        private boolean enabled = false;
+
+        // Ограничения каждого региона: заказы, позиции, позиции заказа
+        private long maximumSize = 10_000;
+
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+}
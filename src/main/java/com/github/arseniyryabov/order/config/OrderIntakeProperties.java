@@ -0,0 +1,33 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Настройки асинхронного приема заказов (order.async-intake.*)
+@Data
+@ConfigurationProperties(prefix = "order.async-intake")
+public class OrderIntakeProperties {
+
+    // false - заголовок Prefer: respond-async игнорируется, заказы создаются синхронно
+    private boolean enabled = true;
+
+    // Число воркеров, одновременно обрабатывающих принятые заказы
+    private int workers = 8;
+
+    // Сколько принятых заказов может ждать обработки, сверх этого прием отклоняется с 503
+    private int queueCapacity = 1_000;
+
+    // Заказ, не обработанный за это время (падение экземпляра, недоступность сервисов), ставится в очередь снова
+    private Duration retryAfter = Duration.ofMinutes(1);
+
+    // Заказ, не обработанный за это время, переводится в FAILED
+    private Duration maxPendingAge = Duration.ofMinutes(15);
+
+    // Сколько заказов ставится в очередь снова за один проход восстановления
+    private int recoveryBatchSize = 100;
+
+    // Сколько ждать завершения воркеров при остановке, необработанные заказы остаются в PENDING
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
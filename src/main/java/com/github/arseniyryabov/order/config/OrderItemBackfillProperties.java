@@ -0,0 +1,16 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Настройки заполнения снимка цены у старых позиций заказов (order.item-price-backfill.*)
+@Data
+@ConfigurationProperties(prefix = "order.item-price-backfill")
+public class OrderItemBackfillProperties {
+
+    // Включается на время миграции, после заполнения всех позиций выключается
+    private boolean enabled = false;
+
+    // Сколько позиций обрабатывается одной транзакцией и одним запросом в product-service
+    private int chunkSize = 500;
+}
@@ -1,27 +1,87 @@
 package com.github.arseniyryabov.order.config;
 
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestClient;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties({
+        ProductServiceProperties.class,
+        UserServiceProperties.class,
+        StockOutboxProperties.class,
+        OrderItemBackfillProperties.class,
+        IdempotencyProperties.class,
+        OrderIntakeProperties.class,
+        ReadReplicaProperties.class,
+        OrderCacheProperties.class
+})
 public class OrderServiceConfig {
 
+    // Отдельный пул соединений на каждый сервис: медленный product-service не забирает соединения user-service
+    @Bean(destroyMethod = "close")
+    public PooledHttpClient userServiceHttpClient(UserServiceProperties properties, MeterRegistry meterRegistry) {
+        return new PooledHttpClient("user-service", properties.getHttp(), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public PooledHttpClient productServiceHttpClient(ProductServiceProperties properties, MeterRegistry meterRegistry) {
+        return new PooledHttpClient("product-service", properties.getHttp(), meterRegistry);
+    }
+
+    // Автоматы, bulkhead, повторы и дублирование запросов для каждого сервиса
+    @Bean(destroyMethod = "close")
+    public DownstreamResilience userServiceResilience(UserServiceProperties properties, MeterRegistry meterRegistry) {
+        return new DownstreamResilience("user-service", properties.getResilience(), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public DownstreamResilience productServiceResilience(ProductServiceProperties properties,
+                                                         MeterRegistry meterRegistry) {
+        return new DownstreamResilience("product-service", properties.getResilience(), meterRegistry);
+    }
+
+    /* Билдер из автоконфигурации (прототип, у каждого клиента свой): запросы наблюдаются -
+    метрики http.client.requests и заголовок traceparent для продолжения трассы в нижестоящем сервисе */
     @Bean
-    public RestClient userServiceRestClient() {
-        return RestClient.builder()
-                .baseUrl("http://localhost:8080")
+    public RestClient userServiceRestClient(UserServiceProperties properties, PooledHttpClient userServiceHttpClient,
+                                            RestClient.Builder restClientBuilder) {
+        return restClientBuilder
+                .baseUrl(properties.getUrl())
+                .requestFactory(userServiceHttpClient.requestFactory())
                 .defaultHeader("Content-Type", "application/json")
                 .defaultHeader("Accept", "application/json")
                 .build();
     }
 
     @Bean
-    public RestClient productServiceRestClient() {
-        return RestClient.builder()
-                .baseUrl("http://localhost:8081")
+    public RestClient productServiceRestClient(ProductServiceProperties properties,
+                                               PooledHttpClient productServiceHttpClient,
+                                               RestClient.Builder restClientBuilder) {
+        return restClientBuilder
+                .baseUrl(properties.getUrl())
+                .requestFactory(productServiceHttpClient.requestFactory())
                 .defaultHeader("Content-Type", "application/json")
                 .defaultHeader("Accept", "application/json")
                 .build();
     }
+
+    /* Виртуальные потоки для параллельных обращений к user-service и product-service
+    Задачи выполняются с контекстом вызывающего потока (текущее наблюдение и span), поэтому исходящие запросы
+    попадают в трассу входящего запроса, а не начинают новую */
+    @Bean(destroyMethod = "close")
+    public ExecutorService orderLookupExecutor() {
+        return ContextExecutorService.wrap(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("order-lookup-", 0).factory()),
+                ContextSnapshotFactory.builder().build());
+    }
 }
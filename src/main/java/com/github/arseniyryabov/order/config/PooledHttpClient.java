@@ -0,0 +1,208 @@
+package com.github.arseniyryabov.order.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/* HTTP-клиент нижестоящего сервиса на Apache HttpClient 5 с пулом keep-alive соединений
+Пул ограничен maxConnections, поэтому медленный сервис занимает не больше maxConnections потоков,
+остальные запросы получают ошибку через poolAcquireTimeout. Общий срок запроса обеспечивается
+отменой запроса по таймеру, таймер снимается при закрытии ответа или ошибке.
+Метрики пула: httpcomponents.httpclient.pool.* с тегом httpclient */
+public class PooledHttpClient implements AutoCloseable {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Duration requestDeadline;
+    private final ScheduledThreadPoolExecutor deadlines;
+    // Запрос HttpClient, созданный фабрикой в текущем потоке (между postProcessHttpRequest и createRequest)
+    private final ThreadLocal<Cancellable> createdRequest = new ThreadLocal<>();
+
+    public PooledHttpClient(String name, HttpClientSettings settings, MeterRegistry meterRegistry) {
+        this.requestDeadline = settings.getRequestDeadline();
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setMaxConnTotal(settings.getMaxConnections())
+                .setMaxConnPerRoute(settings.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(timeout(settings.getConnectTimeout()))
+                        .setSocketTimeout(timeout(settings.getReadTimeout()))
+                        .setTimeToLive(TimeValue.ofMilliseconds(settings.getConnectionTtl().toMillis()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(timeout(settings.getPoolAcquireTimeout()))
+                        .setResponseTimeout(timeout(settings.getReadTimeout()))
+                        .build())
+                // Повторы выполняет DownstreamResilience и только для чтения, встроенные повторы клиента
+                // (в том числе POST после 503) отключены
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(settings.getIdleTimeout().toMillis()));
+        if (!settings.isCompression()) {
+            builder.disableContentCompression();
+        }
+        this.httpClient = builder.build();
+
+        this.deadlines = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name(name + "-deadline").daemon().factory());
+        // Снятые таймеры сразу удаляются из очереди, а не ждут своего срока
+        deadlines.setRemoveOnCancelPolicy(true);
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name).bindTo(meterRegistry);
+    }
+
+    // Фабрика запросов для RestClient, запрос отменяется, если не завершился за requestDeadline
+    public ClientHttpRequestFactory requestFactory() {
+        return new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected void postProcessHttpRequest(ClassicHttpRequest request) {
+                if (request instanceof Cancellable cancellable) {
+                    createdRequest.set(cancellable);
+                }
+            }
+
+            @Override
+            public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+                ClientHttpRequest request;
+                Cancellable cancellable;
+                try {
+                    request = super.createRequest(uri, httpMethod);
+                    cancellable = createdRequest.get();
+                } finally {
+                    createdRequest.remove();
+                }
+                return cancellable != null ? new DeadlineRequest(request, cancellable) : request;
+            }
+        };
+    }
+
+    // Число взведенных таймеров отмены (запросы, которые выполняются сейчас)
+    int pendingDeadlines() {
+        return deadlines.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        deadlines.shutdownNow();
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    private static Timeout timeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    // Таймер отмены взводится при отправке запроса и снимается, когда ответ закрыт или запрос не удался
+    private final class DeadlineRequest implements ClientHttpRequest {
+
+        private final ClientHttpRequest delegate;
+        private final Cancellable cancellable;
+
+        private DeadlineRequest(ClientHttpRequest delegate, Cancellable cancellable) {
+            this.delegate = delegate;
+            this.cancellable = cancellable;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            ScheduledFuture<?> deadline = deadlines.schedule(
+                    cancellable::cancel, requestDeadline.toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                return new DeadlineResponse(delegate.execute(), deadline);
+            } catch (IOException | RuntimeException e) {
+                deadline.cancel(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return delegate.getAttributes();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private record DeadlineResponse(ClientHttpResponse delegate, ScheduledFuture<?> deadline)
+            implements ClientHttpResponse {
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                deadline.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Настройки интеграции с product-service (service.product.*)
+@Data
+@ConfigurationProperties(prefix = "service.product")
+public class ProductServiceProperties {
+
+    private String url;
+
+    private HttpClientSettings http = new HttpClientSettings();
+
+    private ResilienceSettings resilience = new ResilienceSettings();
+
+    private Cache cache = new Cache();
+
+    private StockBatching stockBatching = new StockBatching();
+
+    // Настройки локального кэша каталога товаров
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        // Максимальное количество товаров в кэше (вытеснение W-TinyLFU)
+        private long maximumSize = 10_000;
+
+        // Время жизни цены, названия и факта существования товара
+        private Duration ttl = Duration.ofMinutes(10);
+
+        // Время, в течение которого остаток на складе считается актуальным
+        private Duration stockTtl = Duration.ofSeconds(5);
+
+        // Время хранения ответа 404 (товар не найден)
+        private Duration notFoundTtl = Duration.ofSeconds(30);
+
+        // Проверки остатков перед оформлением заказа всегда идут в product-service в обход кэша
+        private boolean strictStockChecks = false;
+    }
+
+    // Настройки объединения списаний со склада в пакетные запросы
+    @Data
+    public static class StockBatching {
+
+        // Требует POST /products/decrease-stock/batch в product-service
+        private boolean enabled = false;
+
+        // Сколько ждать новых списаний перед отправкой пакета
+        private Duration window = Duration.ofMillis(2);
+
+        // Пакет отправляется сразу, как только набралось столько списаний
+        private int maxBatchSize = 256;
+    }
+}
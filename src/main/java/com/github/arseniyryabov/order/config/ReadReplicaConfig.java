@@ -0,0 +1,79 @@
+package com.github.arseniyryabov.order.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Чтение с реплик БД (order.read-replicas.enabled=true)
+DataSource приложения - LazyConnectionDataSourceProxy над основным пулом: соединение берется при первом
+запросе, когда уже известно, что транзакция только на чтение. Такие транзакции (@Transactional(readOnly = true),
+методы чтения репозиториев Spring Data) получают соединение из ReplicaDataSource, остальные - из основной БД.
+Основной пул создается здесь по spring.datasource, автоконфигурация пула при этом отключается */
+@Configuration
+@ConditionalOnProperty(prefix = "order.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaDataSource readReplicaDataSource(ReadReplicaProperties properties,
+                                                   HikariDataSource primaryDataSource,
+                                                   ReadYourWrites readYourWrites,
+                                                   MeterRegistry meterRegistry) {
+        List<ReplicaDataSource.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReadReplicaProperties.Replica settings = properties.getReplicas().get(i);
+            String name = "replica-" + i;
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(name);
+            pool.setJdbcUrl(settings.getUrl());
+            pool.setUsername(settings.getUsername());
+            pool.setPassword(settings.getPassword());
+            pool.setMaximumPoolSize(settings.getMaximumPoolSize());
+            pool.setConnectionTimeout(settings.getConnectionTimeout().toMillis());
+            pool.setReadOnly(true);
+            // Пул создается при первом чтении, недоступная реплика не мешает запуску
+            pool.setInitializationFailTimeout(-1);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new ReplicaDataSource.Replica(name, pool));
+        }
+        return new ReplicaDataSource(primaryDataSource, replicas, readYourWrites,
+                properties.getHealthCheckTimeout(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource readReplicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(readReplicaDataSource);
+        return dataSource;
+    }
+
+    // Состояние реплик в /actuator/health, сервис остается UP: без реплик чтение идет в основную БД
+    @Bean
+    public HealthIndicator readReplicasHealthIndicator(ReplicaDataSource readReplicaDataSource) {
+        return () -> {
+            Health.Builder health = Health.up();
+            readReplicaDataSource.getReplicas().forEach(replica ->
+                    health.withDetail(replica.name(), replica.isHealthy() ? "UP" : "DOWN"));
+            return health.build();
+        };
+    }
+}
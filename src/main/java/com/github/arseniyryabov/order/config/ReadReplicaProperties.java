@@ -0,0 +1,54 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Настройки чтения с реплик БД (order.read-replicas.*)
+@Data
+@ConfigurationProperties(prefix = "order.read-replicas")
+public class ReadReplicaProperties {
+
+    // false - все запросы идут в основную БД (spring.datasource)
+    private boolean enabled = false;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    // Интервал проверки доступности реплик, недоступная реплика исключается до следующей успешной проверки
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    private Duration healthCheckTimeout = Duration.ofSeconds(1);
+
+    private ReadYourWrites readYourWrites = new ReadYourWrites();
+
+    // Подключение к реплике
+    @Data
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+
+        // Сколько ждать соединения, после этого чтение переходит на следующую реплику
+        private Duration connectionTimeout = Duration.ofMillis(500);
+    }
+
+    /* Чтение своих записей: после записи пользователя его чтения идут в основную БД в течение window,
+    чтобы отставание реплики не скрывало только что созданный заказ. window должно превышать обычное отставание */
+    @Data
+    public static class ReadYourWrites {
+
+        private boolean enabled = true;
+
+        private Duration window = Duration.ofSeconds(5);
+
+        private long maximumSize = 100_000;
+    }
+}
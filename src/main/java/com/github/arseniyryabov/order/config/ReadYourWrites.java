@@ -0,0 +1,52 @@
+package com.github.arseniyryabov.order.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/* Чтение своих записей при чтении с реплик
+OrderService отмечает пользователей, изменивших заказы, их чтения в течение окна выполняются
+в основной БД (ReplicaDataSource проверяет признак текущего потока). Окно хранится в памяти экземпляра */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWrites(ReadReplicaProperties properties) {
+        ReadReplicaProperties.ReadYourWrites settings = properties.getReadYourWrites();
+        this.enabled = properties.isEnabled() && settings.isEnabled();
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfterWrite(settings.getWindow())
+                .build();
+    }
+
+    public void recordWrite(Long userId) {
+        if (enabled && userId != null) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    // Чтение данных пользователя: из основной БД, если пользователь недавно их менял
+    public <T> T read(Long userId, Supplier<T> read) {
+        if (!enabled || userId == null || recentWriters.getIfPresent(userId) == null
+                || PRIMARY_REQUIRED.get() != null) {
+            return read.get();
+        }
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    public boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+}
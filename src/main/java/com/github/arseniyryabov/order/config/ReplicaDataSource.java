@@ -0,0 +1,147 @@
+package com.github.arseniyryabov.order.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Источник соединений для транзакций только на чтение
+Реплики выбираются по кругу, недоступные пропускаются. Реплика, не выдавшая соединение, исключается
+до следующей успешной проверки checkHealth. Если доступных реплик нет или требуется чтение своих записей
+(ReadYourWrites), соединение берется из основной БД */
+@Slf4j
+public class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReadYourWrites readYourWrites;
+    private final Duration healthCheckTimeout;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryFallbacks;
+    private final Counter primaryReadYourWrites;
+
+    public ReplicaDataSource(DataSource primary,
+                             List<Replica> replicas,
+                             ReadYourWrites readYourWrites,
+                             Duration healthCheckTimeout,
+                             MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWrites = readYourWrites;
+        this.healthCheckTimeout = healthCheckTimeout;
+        this.replicas.forEach(replica -> {
+            replica.reads = readsCounter(meterRegistry, replica.name(), "round_robin");
+            Gauge.builder("db.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .description("Доступность реплики БД для чтения")
+                    .tag("replica", replica.name())
+                    .register(meterRegistry);
+        });
+        this.primaryFallbacks = readsCounter(meterRegistry, "primary", "no_healthy_replica");
+        this.primaryReadYourWrites = readsCounter(meterRegistry, "primary", "read_your_writes");
+    }
+
+    // Реплика: имя для метрик и журнала, пул соединений и признак доступности
+    public static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+        private Counter reads;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public DataSource dataSource() {
+            return dataSource;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readYourWrites.isPrimaryRequired()) {
+            primaryReadYourWrites.increment();
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.healthy = false;
+                log.warn("Реплика {} исключена из чтения: {}", replica.name, e.getMessage());
+            }
+        }
+        primaryFallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Учетные данные реплик задаются в их настройках
+        return getConnection();
+    }
+
+    // Проверка реплик: исключенная реплика возвращается в работу после успешной проверки
+    @Scheduled(fixedDelayString = "${order.read-replicas.health-check-interval:5s}")
+    public void checkHealth() {
+        int timeoutSeconds = (int) Math.max(1, healthCheckTimeout.toSeconds());
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.info("Реплика {} {}", replica.name, healthy ? "снова доступна" : "недоступна");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static Counter readsCounter(MeterRegistry meterRegistry, String target, String reason) {
+        return Counter.builder("db.reads.routed")
+                .description("Соединения для транзакций только на чтение по источнику")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+// Настройки защиты вызовов нижестоящего сервиса (service.*.resilience.*)
+@Data
+public class ResilienceSettings {
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Bulkhead bulkhead = new Bulkhead();
+
+    private Retry retry = new Retry();
+
+    private Hedging hedging = new Hedging();
+
+    // Отдельный автомат на каждый эндпоинт: отказ списаний не блокирует чтение каталога
+    @Data
+    public static class CircuitBreaker {
+
+        // Доля неудачных вызовов (%) в окне, при которой автомат размыкается
+        private int failureRateThreshold = 50;
+
+        // Сколько последних вызовов учитывается
+        private int slidingWindowSize = 50;
+
+        // Меньше этого числа вызовов в окне доля неудач не оценивается
+        private int minimumCalls = 20;
+
+        // Сколько автомат остается разомкнутым, прежде чем пропустить пробные вызовы
+        private Duration openDuration = Duration.ofSeconds(10);
+
+        // Сколько пробных вызовов должно пройти успешно, чтобы замкнуть автомат
+        private int halfOpenCalls = 5;
+    }
+
+    // Ограничение одновременных вызовов сервиса
+    @Data
+    public static class Bulkhead {
+
+        private int maxConcurrentCalls = 50;
+
+        // Сколько ждать свободное место, прежде чем отказать (0 - отказывать сразу)
+        private Duration maxWait = Duration.ofMillis(50);
+    }
+
+    // Повторы только для чтения, с экспоненциальной задержкой и full jitter
+    @Data
+    public static class Retry {
+
+        // Всего попыток, включая первую
+        private int maxAttempts = 3;
+
+        private Duration initialBackoff = Duration.ofMillis(50);
+
+        private Duration maxBackoff = Duration.ofMillis(500);
+    }
+
+    // Дублирующий GET, если первый не ответил за p95 последних ответов
+    @Data
+    public static class Hedging {
+
+        private boolean enabled = false;
+
+        // Нижняя граница задержки перед дублирующим запросом
+        private Duration minDelay = Duration.ofMillis(20);
+    }
+}
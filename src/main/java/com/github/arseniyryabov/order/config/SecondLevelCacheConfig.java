@@ -0,0 +1,61 @@
+package com.github.arseniyryabov.order.config;
+
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderItemEntity;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.List;
+import java.util.OptionalLong;
+
+/* Кэш второго уровня Hibernate (order.cache.second-level.enabled=true)
+Заказы, позиции и состав заказа кэшируются в регионах Caffeine JCache с ограничением размера и времени жизни.
+Стратегия READ_WRITE: изменения через Hibernate обновляют регион при фиксации, массовые JPQL UPDATE
+очищают регион заказов целиком. Кэш локален для экземпляра: изменения с других экземпляров видны через ttl.
+Попадания и промахи по регионам - метрики hibernate.second.level.cache.* (включается сбор статистики) */
+@Configuration
+@ConditionalOnProperty(prefix = "order.cache.second-level", name = "enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+    static final List<String> REGIONS = List.of(
+            OrderEntity.class.getName(),
+            OrderEntity.class.getName() + ".items",
+            OrderItemEntity.class.getName());
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(OrderCacheProperties properties) {
+        OrderCacheProperties.SecondLevel settings = properties.getSecondLevel();
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager();
+        for (String region : REGIONS) {
+            if (cacheManager.getCache(region) == null) {
+                cacheManager.createCache(region, new CaffeineConfiguration<>()
+                        .setMaximumSize(OptionalLong.of(settings.getMaximumSize()))
+                        .setExpireAfterWrite(OptionalLong.of(settings.getTtl().toNanos()))
+                        .setStoreByValue(false));
+            }
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // Служебные регионы Hibernate создаются с настройками по умолчанию
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create");
+            hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+}
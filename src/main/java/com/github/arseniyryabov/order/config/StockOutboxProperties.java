@@ -0,0 +1,28 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Настройки relay для outbox изменений остатков (order.stock-outbox.*)
+@Data
+@ConfigurationProperties(prefix = "order.stock-outbox")
+public class StockOutboxProperties {
+
+    private boolean enabled = true;
+
+    // Сколько записей захватывается за один проход
+    private int batchSize = 200;
+
+    /* Время, на которое захваченные записи скрываются от других экземпляров relay.
+    Не меньше трех предельных времен отправки в product-service (проверяется при запуске) */
+    private Duration lease = Duration.ofSeconds(30);
+
+    // После стольких неудачных попыток запись переводится в FAILED
+    private int maxAttempts = 10;
+
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    private Duration maxBackoff = Duration.ofMinutes(5);
+}
@@ -0,0 +1,38 @@
+package com.github.arseniyryabov.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Настройки интеграции с user-service (service.user.*)
+@Data
+@ConfigurationProperties(prefix = "service.user")
+public class UserServiceProperties {
+
+    private String url;
+
+    private HttpClientSettings http = new HttpClientSettings();
+
+    private ResilienceSettings resilience = new ResilienceSettings();
+
+    private Cache cache = new Cache();
+
+    // Настройки кэша существования пользователей
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        private long maximumSize = 100_000;
+
+        // Время хранения ответа "пользователь существует"
+        private Duration existsTtl = Duration.ofMinutes(5);
+
+        // Время хранения ответа 404 (пользователь не найден)
+        private Duration notFoundTtl = Duration.ofSeconds(30);
+
+        // Сколько еще после истечения existsTtl отвечать "существует", если user-service недоступен (0 - не отвечать)
+        private Duration staleIfErrorGrace = Duration.ZERO;
+    }
+}
@@ -1,17 +1,37 @@
 package com.github.arseniyryabov.order.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.arseniyryabov.order.controller.model.BatchCreateOrderRequest;
+import com.github.arseniyryabov.order.controller.model.BatchCreateOrderResponse;
+import com.github.arseniyryabov.order.controller.model.BulkStatusUpdateRequest;
+import com.github.arseniyryabov.order.controller.model.BulkStatusUpdateResponse;
 import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
 import com.github.arseniyryabov.order.controller.model.OrderResponse;
 import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.exception.InsufficientStockException;
+import com.github.arseniyryabov.order.exception.InvalidBulkStatusRequestException;
+import com.github.arseniyryabov.order.exception.ProductNotFoundException;
 import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
 import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.service.OrderBatchResult;
+import com.github.arseniyryabov.order.service.OrderBulkStatusResult;
+import com.github.arseniyryabov.order.service.OrderBulkStatusService;
+import com.github.arseniyryabov.order.service.OrderIdempotencyService;
+import com.github.arseniyryabov.order.service.OrderIntakePipeline;
+import com.github.arseniyryabov.order.service.OrderPage;
 import com.github.arseniyryabov.order.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -22,12 +42,36 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderController {
 
+    // Заголовок с курсором следующей страницы
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // Ключ идемпотентности создания заказа и признак повторенного ответа
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    // Предпочтение асинхронной обработки (RFC 7240)
+    public static final String PREFER_HEADER = "Prefer";
+    public static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    public static final String RESPOND_ASYNC = "respond-async";
+
+    private static final String DEFAULT_PAGE_SIZE = "50";
+
+    private static final String NDJSON = "application/x-ndjson";
+
     private final OrderService orderService;
 
+    private final OrderIdempotencyService orderIdempotencyService;
+
+    private final OrderBulkStatusService orderBulkStatusService;
+
+    private final OrderIntakePipeline orderIntakePipeline;
+
     private final UserServiceClient userServiceClient;
 
     private final ProductServiceClient productServiceClient;
 
+    private final ObjectMapper objectMapper;
+
     // Метод для проверки подключения к user-service
     @GetMapping("/health/check-user-service")
     public ResponseEntity<String> checkUserServiceConnection() {
@@ -52,79 +96,171 @@ public class OrderController {
         }
     }
 
-    // Создание заказа (POST /orders)
+    /* Создание заказа (POST /orders)
+    С заголовком Idempotency-Key повтор запроса не создает новый заказ, а получает первый ответ
+    с заголовком Idempotent-Replayed: true.
+    С заголовком Prefer: respond-async (без Idempotency-Key) заказ принимается в PENDING и обрабатывается
+    в фоне: ответ 202 с Location заказа, итоговый статус (CREATED или FAILED) доступен через GET /orders/{id} */
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(
             @Valid @RequestBody CreateOrderRequest request,
-            @RequestHeader("X-User-Id") Long userId) {
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
+        if (idempotencyKey == null && isRespondAsync(prefer) && orderIntakePipeline.isEnabled()) {
+            OrderEntity order = orderIntakePipeline.accept(request, userId);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                            .path("/{orderId}").buildAndExpand(order.getOrderId()).toUri())
+                    .header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC)
+                    .body(mapToResponse(order));
+        }
+        if (idempotencyKey != null && orderIdempotencyService.isEnabled()) {
+            OrderIdempotencyService.Result result =
+                    orderIdempotencyService.createOrder(idempotencyKey, request, userId, this::mapToResponse);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                    .body(result.response());
+        }
         OrderEntity order = orderService.createOrder(request, userId);
         OrderResponse response = mapToResponse(order);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
-    // Получение заказов пользователя (GET /orders)
-    @GetMapping
-    public List<OrderResponse> getUserOrders(
+    /* Создание партии заказов (POST /orders/batch)
+    Ответ 200 с результатом по каждому заказу, отказ одного заказа не отменяет остальные */
+    @PostMapping("/batch")
+    public BatchCreateOrderResponse createOrders(
+            @Valid @RequestBody BatchCreateOrderRequest request,
             @RequestHeader("X-User-Id") Long userId) {
-        List<OrderEntity> orders = orderService.getUserOrders(userId);
-        return orders.stream()
-                .map(this::mapToResponse)
+        List<BatchCreateOrderResponse.OrderResult> results = orderService.createOrders(request.getOrders(), userId)
+                .stream()
+                .map(this::mapToResult)
                 .collect(Collectors.toList());
+        int created = (int) results.stream().filter(result -> result.getOrder() != null).count();
+        return new BatchCreateOrderResponse(created, results.size() - created, results);
+    }
+
+    /* Получение заказов пользователя постранично (GET /orders?cursor=...&limit=...)
+    Курсор следующей страницы возвращается в заголовке X-Next-Cursor, на последней странице заголовка нет */
+    @GetMapping
+    public ResponseEntity<List<OrderResponse>> getUserOrders(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        return toPageResponse(orderService.getUserOrders(userId, cursor, limit));
     }
 
-    // Получение конкретного заказа (GET /orders/{id})
+    // Получение конкретного заказа (GET /orders/{id}), ответ берется из кэша заказов
     @GetMapping("/{orderId}")
     public OrderResponse getOrderById(
             @PathVariable UUID orderId,
             @RequestHeader("X-User-Id") Long userId) {
-        OrderEntity order = orderService.getOrderById(orderId, userId);
-        return mapToResponse(order);
+        return orderService.getOrderResponseById(orderId, userId);
     }
 
-    // Обновление статуса заказа (PATCH /orders/{id}/status)
+    // Обновление статуса заказа (PATCH /orders/{id}/status), 409 - переход не разрешен из текущего статуса
     @PatchMapping("/{orderId}/status")
     public OrderResponse updateOrderStatus(
             @PathVariable UUID orderId,
             @RequestParam String status) {
-        OrderEntity order = orderService.updateOrderStatus(orderId, status);
-        return mapToResponse(order);
+        return orderService.updateOrderStatus(orderId, status);
     }
 
-    // Получение заказов по статусу (GET /orders/status/{status})
+    /* Массовая смена статуса (PATCH /orders/status) по списку orderIds или по фильтру (статус и период создания)
+    Ответ 200 с числом переведенных заказов и отказами по заказам, переход которых не разрешен или которых нет */
+    @PatchMapping("/status")
+    public BulkStatusUpdateResponse updateOrderStatuses(@Valid @RequestBody BulkStatusUpdateRequest request) {
+        BulkStatusUpdateRequest.Filter filter = request.getFilter();
+        if ((request.getOrderIds() != null) == (filter != null)) {
+            throw new InvalidBulkStatusRequestException("Нужно указать либо orderIds, либо filter");
+        }
+        OrderBulkStatusResult result = filter == null
+                ? orderBulkStatusService.updateStatus(request.getOrderIds(), request.getStatus())
+                : orderBulkStatusService.updateStatusMatching(filter.getStatus(), filter.getCreatedFrom(),
+                filter.getCreatedTo(), request.getStatus());
+        List<BulkStatusUpdateResponse.Rejection> rejections = result.rejected().stream()
+                .map(rejection -> new BulkStatusUpdateResponse.Rejection(rejection.orderId(),
+                        rejection.currentStatus(),
+                        rejection.currentStatus() == null ? "NOT_FOUND" : "INVALID_TRANSITION"))
+                .toList();
+        return new BulkStatusUpdateResponse(result.updated(), result.unchanged(), rejections.size(), rejections);
+    }
+
+    // Получение заказов по статусу постранично (GET /orders/status/{status}?cursor=...&limit=...)
     @GetMapping("/status/{status}")
-    public List<OrderResponse> getOrdersByStatus(
+    public ResponseEntity<List<OrderResponse>> getOrdersByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        return toPageResponse(orderService.getOrdersByStatus(status, cursor, limit));
+    }
+
+    /* Выгрузка всех заказов со статусом (GET /orders/status/{status}/stream)
+    Ответ в формате NDJSON (один заказ на строку) пишется по мере чтения из БД, без сборки всего списка в памяти */
+    @GetMapping(value = "/status/{status}/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamOrdersByStatus(
             @PathVariable String status) {
-        List<OrderEntity> orders = orderService.getOrdersByStatus(status);
-        return orders.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        StreamingResponseBody body = outputStream -> {
+            try {
+                orderService.streamOrdersByStatus(status, order -> writeLine(outputStream, order));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            outputStream.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
     }
 
-    // Преобразование OrderEntity в OrderResponse (DTO)
-    private OrderResponse mapToResponse(OrderEntity order) {
-        OrderResponse response = new OrderResponse();
-        response.setOrderId(order.getOrderId());
-        response.setUserId(order.getUserId());
-        response.setAddress(order.getAddress());
-        response.setDeliveryMethod(order.getDeliveryMethod());
-        response.setStatus(order.getStatus());
-        response.setTotalAmount(order.getTotalAmount());
-        response.setCreatedAt(order.getCreatedAt());
-
-        if (order.getItems() != null) {
-            List<OrderResponse.OrderItemResponse> itemResponses = order.getItems().stream()
-                    .map(item -> {
-                        OrderResponse.OrderItemResponse itemResponse =
-                                new OrderResponse.OrderItemResponse();
-                        itemResponse.setOrderItemId(item.getOrderItemId());
-                        itemResponse.setProductId(item.getProductId());
-                        itemResponse.setQuantity(item.getQuantity());
-                        return itemResponse;
-                    })
-                    .collect(Collectors.toList());
-            response.setItems(itemResponses);
+    // Заголовок Prefer может содержать несколько предпочтений через запятую, с параметрами через ;
+    private static boolean isRespondAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.split(";")[0].trim().equalsIgnoreCase(RESPOND_ASYNC)) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private void writeLine(OutputStream outputStream, OrderResponse response) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(response));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        return response;
+    private ResponseEntity<List<OrderResponse>> toPageResponse(OrderPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.orders());
+    }
+
+    private BatchCreateOrderResponse.OrderResult mapToResult(OrderBatchResult result) {
+        if (result.isCreated()) {
+            return new BatchCreateOrderResponse.OrderResult(
+                    result.index(), "CREATED", mapToResponse(result.order()), null, null);
+        }
+        String error = "NOT_SAVED";
+        if (result.error() instanceof ProductNotFoundException) {
+            error = "PRODUCT_NOT_FOUND";
+        } else if (result.error() instanceof InsufficientStockException) {
+            error = "INSUFFICIENT_STOCK";
+        }
+        return new BatchCreateOrderResponse.OrderResult(
+                result.index(), "FAILED", null, error, result.error().getMessage());
+    }
+
+    // Преобразование OrderEntity в OrderResponse (DTO)
+    private OrderResponse mapToResponse(OrderEntity order) {
+        return OrderService.toResponse(order);
     }
 }
@@ -0,0 +1,20 @@
+package com.github.arseniyryabov.order.controller.model;
+
+import com.github.arseniyryabov.order.service.OrderService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BatchCreateOrderRequest {
+
+    @NotEmpty(message = "Список заказов не может быть пустым")
+    @Size(max = OrderService.MAX_CREATE_BATCH_SIZE, message = "Не более 1000 заказов в одном запросе")
+    @Valid
+    private List<CreateOrderRequest> orders;
+}
@@ -0,0 +1,28 @@
+package com.github.arseniyryabov.order.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchCreateOrderResponse {
+    private int created;
+    private int failed;
+    private List<OrderResult> results;
+
+    // Результат по заказу с индексом index из запроса: order при успехе, error и message при отказе
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class OrderResult {
+        private int index;
+        private String status;
+        private OrderResponse order;
+        private String error;
+        private String message;
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.arseniyryabov.order.controller.model;
+
+import com.github.arseniyryabov.order.service.OrderBulkStatusService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Массовая смена статуса: заказы задаются списком orderIds или фильтром, но не тем и другим сразу
+@Data
+@NoArgsConstructor
+public class BulkStatusUpdateRequest {
+
+    @NotBlank(message = "Статус обязателен")
+    private String status;
+
+    @Size(max = OrderBulkStatusService.MAX_ORDER_IDS, message = "Не более 10000 заказов в одном запросе")
+    private List<@NotNull UUID> orderIds;
+
+    @Valid
+    private Filter filter;
+
+    // Заказы в статусе status, созданные в [createdFrom, createdTo)
+    @Data
+    @NoArgsConstructor
+    public static class Filter {
+
+        @NotBlank(message = "Статус фильтра обязателен")
+        private String status;
+
+        @NotNull(message = "Начало периода обязательно")
+        private LocalDateTime createdFrom;
+
+        @NotNull(message = "Конец периода обязателен")
+        private LocalDateTime createdTo;
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.arseniyryabov.order.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkStatusUpdateResponse {
+    private int updated;
+    // Заказы, уже бывшие в целевом статусе
+    private int unchanged;
+    private int rejected;
+    private List<Rejection> rejections;
+
+    // Отказ по заказу: error = NOT_FOUND или INVALID_TRANSITION (тогда currentStatus - текущий статус)
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Rejection {
+        private UUID orderId;
+        private String currentStatus;
+        private String error;
+    }
+}
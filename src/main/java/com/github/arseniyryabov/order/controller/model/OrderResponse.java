@@ -1,5 +1,7 @@
 package com.github.arseniyryabov.order.controller.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,9 +20,15 @@ public class OrderResponse {
     private String address;
     private String deliveryMethod;
     private String status;
+    // Только у заказов в статусе FAILED
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String failureReason;
     private BigDecimal totalAmount;
     private LocalDateTime createdAt;
     private List<OrderItemResponse> items;
+    // Версия строки заказа (не отдается клиенту): по ней переход статуса проверяет, что ответ в кэше не устарел
+    @JsonIgnore
+    private Long version;
 
     @Data
     @AllArgsConstructor
@@ -29,5 +37,8 @@ public class OrderResponse {
         private UUID orderItemId;
         private UUID productId;
         private Integer quantity;
+        private BigDecimal unitPrice;
+        private String productName;
+        private BigDecimal lineTotal;
     }
 }
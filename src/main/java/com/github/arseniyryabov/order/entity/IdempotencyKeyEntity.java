@@ -0,0 +1,57 @@
+package com.github.arseniyryabov.order.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/* Ключ идемпотентности создания заказа (заголовок Idempotency-Key), уникален в пределах пользователя
+Пока заказ создается, запись в статусе IN_PROGRESS и expiresAt - срок, после которого ее может забрать
+повторный запрос. После создания заказа хранится готовый ответ до expiresAt */
+@Entity
+@Table(name = "order_idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_idempotency_keys_user_key",
+                columnNames = {"user_id", "idempotency_key"}))
+@Data
+@NoArgsConstructor
+public class IdempotencyKeyEntity {
+
+    @Id
+    @TimeOrderedUuid
+    @Column(name = "key_id", nullable = false, unique = true)
+    private UUID keyId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    // SHA-256 тела запроса: повтор ключа с другим телом отклоняется
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    // OrderResponse в JSON, отдается повторным запросам без обращения к заказу
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Статусы ключа
+    public static class Status {
+        public static final String IN_PROGRESS = "IN_PROGRESS"; // Заказ создается
+        public static final String COMPLETED = "COMPLETED";     // Заказ создан, ответ сохранен
+    }
+}
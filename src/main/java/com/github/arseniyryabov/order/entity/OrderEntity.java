@@ -3,25 +3,25 @@ package com.github.arseniyryabov.order.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
+// Кэш второго уровня используется только при order.cache.second-level.enabled=true (SecondLevelCacheConfig)
 @Entity
 @Table(name = "orders")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 public class OrderEntity {
 
     @Id
-    @GeneratedValue(generator = "UUID")
-    @GenericGenerator(
-            name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator"
-    )
+    @TimeOrderedUuid
     @Column(name = "order_id", nullable = false, unique = true)
     private UUID orderId;
 
@@ -34,15 +34,26 @@ public class OrderEntity {
     @Column(name = "delivery_method", nullable = false)
     private String deliveryMethod;
 
+    @Convert(converter = OrderStatusConverter.class)
     @Column(nullable = false)
     private String status;
 
+    // Причина перехода в FAILED при асинхронном приеме
+    @Column(name = "failure_reason", length = 1000)
+    private String failureReason;
+
     @Column(name = "total_amount", nullable = false)
     private BigDecimal totalAmount;
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    // Оптимистическая блокировка, условные UPDATE в OrderRepository увеличивают версию сами
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     private List<OrderItemEntity> items;
 }
@@ -2,22 +2,22 @@ package com.github.arseniyryabov.order.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.math.BigDecimal;
 import java.util.UUID;
 
 @Entity
 @Table(name = "order_items")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 public class OrderItemEntity {
 
     @Id
-    @GeneratedValue(generator = "UUID")
-    @GenericGenerator(
-            name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator"
-    )
+    @TimeOrderedUuid
     @Column(name = "order_item_id", nullable = false, unique = true)
     private UUID orderItemId;
 
@@ -30,4 +30,14 @@ public class OrderItemEntity {
 
     @Column(nullable = false)
     private Integer quantity;
+
+    // Снимок данных товара на момент заказа, чтение заказа не обращается к product-service
+    @Column(name = "unit_price")
+    private BigDecimal unitPrice;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "line_total")
+    private BigDecimal lineTotal;
 }
@@ -0,0 +1,36 @@
+package com.github.arseniyryabov.order.entity;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Статусы заказа и разрешенные переходы между ними
+public final class OrderStatus {
+    public static final String CREATED = "CREATED";      // Создан
+    public static final String PROCESSING = "PROCESSING"; // В обработке
+    public static final String SHIPPED = "SHIPPED";      // Отправлен
+    public static final String DELIVERED = "DELIVERED";   // Доставлен
+    public static final String CANCELLED = "CANCELLED";   // Отменен
+    public static final String PENDING = "PENDING";       // В ожидании
+    public static final String FAILED = "FAILED";         // Не принят (асинхронный прием)
+
+    /* Разрешенные переходы PATCH /orders/{id}/status: CREATED -> PROCESSING -> SHIPPED -> DELIVERED,
+    отмена до отправки. PENDING и FAILED меняет только асинхронный прием заказов */
+    private static final Map<String, Set<String>> TRANSITIONS = Map.of(
+            CREATED, Set.of(PROCESSING, CANCELLED),
+            PROCESSING, Set.of(SHIPPED, CANCELLED),
+            SHIPPED, Set.of(DELIVERED));
+
+    private static final Map<String, Set<String>> SOURCES = TRANSITIONS.entrySet().stream()
+            .flatMap(transition -> transition.getValue().stream().map(to -> Map.entry(to, transition.getKey())))
+            .collect(Collectors.groupingBy(Map.Entry::getKey,
+                    Collectors.mapping(Map.Entry::getValue, Collectors.toUnmodifiableSet())));
+
+    private OrderStatus() {
+    }
+
+    // Статусы, из которых разрешен переход в to
+    public static Set<String> sourcesOf(String to) {
+        return SOURCES.getOrDefault(to, Set.of());
+    }
+}
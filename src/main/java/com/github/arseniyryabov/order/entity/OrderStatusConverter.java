@@ -0,0 +1,43 @@
+package com.github.arseniyryabov.order.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.List;
+
+/* Статус заказа хранится в БД как SMALLINT, в коде и API остается строкой
+Код статуса - позиция в списке, новые статусы добавляются только в конец */
+@Converter
+public class OrderStatusConverter implements AttributeConverter<String, Short> {
+
+    private static final List<String> STATUSES = List.of(
+            OrderStatus.CREATED,     // 0
+            OrderStatus.PROCESSING,  // 1
+            OrderStatus.SHIPPED,     // 2
+            OrderStatus.DELIVERED,   // 3
+            OrderStatus.CANCELLED,   // 4
+            OrderStatus.PENDING,     // 5
+            OrderStatus.FAILED       // 6
+    );
+
+    public static boolean isKnown(String status) {
+        return STATUSES.contains(status);
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(String status) {
+        if (status == null) {
+            return null;
+        }
+        int code = STATUSES.indexOf(status);
+        if (code < 0) {
+            throw new IllegalArgumentException("Неизвестный статус заказа: " + status);
+        }
+        return (short) code;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short code) {
+        return code != null ? STATUSES.get(code) : null;
+    }
+}
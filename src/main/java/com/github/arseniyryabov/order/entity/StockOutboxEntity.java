@@ -0,0 +1,65 @@
+package com.github.arseniyryabov.order.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Запись outbox об изменении остатка товара, отправляется в product-service фоновым relay
+@Entity
+@Table(name = "stock_outbox")
+@Data
+@NoArgsConstructor
+public class StockOutboxEntity {
+
+    @Id
+    @TimeOrderedUuid
+    @Column(name = "outbox_id", nullable = false, unique = true)
+    private UUID outboxId;
+
+    @Column(name = "order_id", nullable = false)
+    private UUID orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private UUID productId;
+
+    @Column(nullable = false)
+    private String operation;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Операции над остатком
+    public static class Operation {
+        public static final String DECREASE = "DECREASE"; // Списание при создании заказа
+        public static final String INCREASE = "INCREASE"; // Возврат при отмене заказа
+    }
+
+    // Статусы записи
+    public static class Status {
+        public static final String PENDING = "PENDING"; // Ожидает отправки
+        public static final String SENT = "SENT";       // Отправлена
+        public static final String FAILED = "FAILED";   // Исчерпаны попытки
+        public static final String CANCELLED = "CANCELLED"; // Не отправляется: заказ не принят
+    }
+}
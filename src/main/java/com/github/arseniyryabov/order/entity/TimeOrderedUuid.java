@@ -0,0 +1,16 @@
+package com.github.arseniyryabov.order.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/* Первичный ключ UUID, упорядоченный по времени создания (раскладка UUIDv7)
+Новые ключи попадают в правый край B-дерева индекса, а не в случайные страницы */
+@IdGeneratorType(TimeOrderedUuidGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedUuid {
+}
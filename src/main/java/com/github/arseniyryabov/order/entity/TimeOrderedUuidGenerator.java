@@ -0,0 +1,48 @@
+package com.github.arseniyryabov.order.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hibernate.generator.EventTypeSets.INSERT_ONLY;
+
+/* Генератор UUIDv7 (RFC 9562)
+Старшие 48 бит - время в миллисекундах, затем версия и 12-битный счетчик внутри миллисекунды,
+младшие 62 бита случайные. Время и счетчик хранятся в одном AtomicLong, поэтому ключи строго возрастают
+и при одновременной генерации из разных потоков. При переполнении счетчика ключи уходят в следующую
+миллисекунду раньше часов, при переводе часов назад продолжается последовательность от последнего ключа */
+public class TimeOrderedUuidGenerator implements BeforeExecutionGenerator {
+
+    private static final int SEQUENCE_BITS = 12;
+
+    // Последние выданные (время << 12 | счетчик)
+    private static final AtomicLong lastTimestampAndSequence = new AtomicLong();
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return nextUuid();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return INSERT_ONLY;
+    }
+
+    public static UUID nextUuid() {
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        long timestampAndSequence = lastTimestampAndSequence.updateAndGet(last -> Math.max(now, last + 1));
+
+        long timestamp = timestampAndSequence >>> SEQUENCE_BITS;
+        long sequence = timestampAndSequence & ((1L << SEQUENCE_BITS) - 1);
+        long mostSigBits = (timestamp << 16) | 0x7000L | sequence;
+        // Вариант RFC (10) и 62 случайных бита: ключ не секрет, заказ всегда проверяется по X-User-Id
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFF_FFFF_FFFF_FFFFL) | 0x8000_0000_0000_0000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
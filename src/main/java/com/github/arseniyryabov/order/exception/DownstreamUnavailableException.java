@@ -0,0 +1,8 @@
+package com.github.arseniyryabov.order.exception;
+
+public class DownstreamUnavailableException extends RuntimeException {
+
+    public DownstreamUnavailableException(String service, String endpoint, String reason, Throwable cause) {
+        super("Сервис " + service + " недоступен (" + endpoint + "): " + reason, cause);
+    }
+}
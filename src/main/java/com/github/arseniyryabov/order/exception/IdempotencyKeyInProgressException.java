@@ -0,0 +1,9 @@
+package com.github.arseniyryabov.order.exception;
+
+// Запрос с этим ключом идемпотентности еще выполняется на другом экземпляре сервиса
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    public IdempotencyKeyInProgressException(String idempotencyKey) {
+        super("Запрос с ключом идемпотентности " + idempotencyKey + " еще выполняется, повторите позже");
+    }
+}
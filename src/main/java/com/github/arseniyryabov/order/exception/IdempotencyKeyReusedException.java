@@ -0,0 +1,9 @@
+package com.github.arseniyryabov.order.exception;
+
+// Ключ идемпотентности уже использован для запроса с другим телом
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Ключ идемпотентности " + idempotencyKey + " уже использован для другого запроса");
+    }
+}
@@ -0,0 +1,9 @@
+package com.github.arseniyryabov.order.exception;
+
+// Некорректный запрос массовой смены статуса (нет заказов, слишком много заказов, неполный фильтр)
+public class InvalidBulkStatusRequestException extends RuntimeException {
+
+    public InvalidBulkStatusRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.github.arseniyryabov.order.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Некорректный курсор страницы: " + cursor);
+    }
+}
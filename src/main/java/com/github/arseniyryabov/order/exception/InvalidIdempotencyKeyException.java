@@ -0,0 +1,8 @@
+package com.github.arseniyryabov.order.exception;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+}
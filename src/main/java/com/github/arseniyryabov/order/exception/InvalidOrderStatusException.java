@@ -0,0 +1,8 @@
+package com.github.arseniyryabov.order.exception;
+
+public class InvalidOrderStatusException extends RuntimeException {
+
+    public InvalidOrderStatusException(String status) {
+        super("Неизвестный статус заказа: " + status);
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.arseniyryabov.order.exception;
+
+import java.util.UUID;
+
+// Переход статуса не разрешен из текущего статуса заказа (в том числе если статус успел измениться)
+public class InvalidStatusTransitionException extends RuntimeException {
+
+    public InvalidStatusTransitionException(UUID orderId, String currentStatus, String targetStatus) {
+        super("Заказ " + orderId + " нельзя перевести из статуса " + currentStatus + " в " + targetStatus);
+    }
+
+    // Массовая смена статуса по фильтру: заказы в статусе currentStatus нельзя перевести в targetStatus
+    public InvalidStatusTransitionException(String currentStatus, String targetStatus) {
+        super("Заказы нельзя перевести из статуса " + currentStatus + " в " + targetStatus);
+    }
+}
@@ -0,0 +1,9 @@
+package com.github.arseniyryabov.order.exception;
+
+// Очередь асинхронного приема заказов заполнена
+public class OrderIntakeOverloadedException extends RuntimeException {
+
+    public OrderIntakeOverloadedException() {
+        super("Очередь приема заказов заполнена, повторите запрос позже");
+    }
+}
@@ -0,0 +1,9 @@
+package com.github.arseniyryabov.order.exception;
+
+// product-service отклонил изменение остатка (ответ 4xx: товара нет, остатка недостаточно) - повтор не поможет
+public class StockChangeRejectedException extends RuntimeException {
+
+    public StockChangeRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.arseniyryabov.order.integration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockChangeRequest {
+    private UUID productId;
+    private Integer quantity;
+}
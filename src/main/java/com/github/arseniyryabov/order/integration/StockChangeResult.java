@@ -0,0 +1,16 @@
+package com.github.arseniyryabov.order.integration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockChangeResult {
+    private UUID productId;
+    private boolean success;
+    private String message;
+}
@@ -0,0 +1,59 @@
+package com.github.arseniyryabov.order.integration.client;
+
+import com.github.arseniyryabov.order.exception.DownstreamUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/* Время обращения клиента к нижестоящему сервису, включая повторы и ожидание автомата
+Измеряется только сам вызов через защиту: ответы из кэша и вложенные вызовы методов клиента не учитываются,
+поэтому один HTTP-запрос дает одно измерение.
+Метрика downstream.client.calls с тегами client, method и outcome:
+success, not_found (ответ 404), unavailable (DownstreamUnavailableException), error */
+class ClientCallTimer {
+
+    private final String client;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    ClientCallTimer(String client, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.meterRegistry = meterRegistry;
+    }
+
+    <T> T record(String method, Supplier<T> call) {
+        long started = System.nanoTime();
+        String outcome = "success";
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            timer(method, outcome).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String method, String outcome) {
+        return timers.computeIfAbsent(method + ':' + outcome, key -> Timer.builder("downstream.client.calls")
+                .description("Время вызова метода клиента нижестоящего сервиса")
+                .tags("client", client, "method", method, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static String outcome(RuntimeException e) {
+        if (e instanceof HttpClientErrorException.NotFound) {
+            return "not_found";
+        }
+        if (e instanceof DownstreamUnavailableException) {
+            return "unavailable";
+        }
+        return "error";
+    }
+}
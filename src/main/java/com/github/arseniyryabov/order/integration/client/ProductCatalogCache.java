@@ -0,0 +1,94 @@
+package com.github.arseniyryabov.order.integration.client;
+
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/* Локальный кэш каталога товаров
+Цена, название и существование товара живут ttl, остаток на складе считается свежим только stockTtl.
+Ответы 404 кэшируются отдельно на notFoundTtl. Счетчики попаданий, промахов и вытеснений
+публикуются как метрики cache.* с тегом cache=product.catalog / product.catalog.not-found */
+@Component
+public class ProductCatalogCache {
+
+    private final ProductServiceProperties.Cache properties;
+    private final Cache<UUID, CachedProduct> products;
+    private final Cache<UUID, Boolean> notFound;
+
+    public ProductCatalogCache(ProductServiceProperties productServiceProperties, MeterRegistry meterRegistry) {
+        this.properties = productServiceProperties.getCache();
+        this.products = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.notFound = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getNotFoundTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "product.catalog");
+        CaffeineCacheMetrics.monitor(meterRegistry, notFound, "product.catalog.not-found");
+    }
+
+    // Товар с актуальными ценой и названием, остаток может быть устаревшим
+    public ProductResponse getForMetadata(UUID productId) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        CachedProduct cached = products.getIfPresent(productId);
+        return cached != null ? cached.product() : null;
+    }
+
+    // Товар со свежим остатком на складе (не старше stockTtl)
+    public ProductResponse getWithFreshStock(UUID productId) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        CachedProduct cached = products.getIfPresent(productId);
+        if (cached == null || cached.stockExpired()
+                || System.nanoTime() - cached.stockLoadedAt() > properties.getStockTtl().toNanos()) {
+            return null;
+        }
+        return cached.product();
+    }
+
+    // Товар недавно не был найден в product-service
+    public boolean isKnownMissing(UUID productId) {
+        return properties.isEnabled() && notFound.getIfPresent(productId) != null;
+    }
+
+    // Проверки остатков перед оформлением заказа должны идти в обход кэша
+    public boolean isStrictStockChecks() {
+        return properties.isStrictStockChecks();
+    }
+
+    public void put(ProductResponse product) {
+        if (properties.isEnabled() && product != null && product.getProductId() != null) {
+            notFound.invalidate(product.getProductId());
+            products.put(product.getProductId(), new CachedProduct(product, System.nanoTime(), false));
+        }
+    }
+
+    public void putMissing(UUID productId) {
+        if (properties.isEnabled()) {
+            products.invalidate(productId);
+            notFound.put(productId, Boolean.TRUE);
+        }
+    }
+
+    // Остаток изменился (списание или возврат), метаданные товара остаются в кэше
+    public void expireStock(UUID productId) {
+        products.asMap().computeIfPresent(productId,
+                (id, cached) -> new CachedProduct(cached.product(), cached.stockLoadedAt(), true));
+    }
+
+    private record CachedProduct(ProductResponse product, long stockLoadedAt, boolean stockExpired) {
+    }
+}
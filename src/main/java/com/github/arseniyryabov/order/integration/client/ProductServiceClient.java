@@ -1,84 +1,143 @@
 package com.github.arseniyryabov.order.integration.client;
 
+import com.github.arseniyryabov.order.exception.DownstreamUnavailableException;
 import com.github.arseniyryabov.order.exception.ProductNotFoundException;
+import com.github.arseniyryabov.order.exception.StockChangeRejectedException;
 import com.github.arseniyryabov.order.integration.ProductResponse;
-import lombok.RequiredArgsConstructor;
+import com.github.arseniyryabov.order.integration.StockChangeRequest;
+import com.github.arseniyryabov.order.integration.StockChangeResult;
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 
 @Component
-@RequiredArgsConstructor
 public class ProductServiceClient {
 
     private final RestClient productServiceRestClient;
 
+    private final ProductCatalogCache productCatalogCache;
+
+    private final DownstreamResilience resilience;
+
+    private final ClientCallTimer callTimer;
+
+    // Одновременные запросы одного и того же товара разделяют один внешний вызов
+    private final SingleFlight<UUID, ProductResponse> productLookups;
+    private final SingleFlight<UUID, ProductResponse> batchLookups;
+
+    public ProductServiceClient(RestClient productServiceRestClient,
+                                ProductCatalogCache productCatalogCache,
+                                DownstreamResilience productServiceResilience,
+                                MeterRegistry meterRegistry) {
+        this.productServiceRestClient = productServiceRestClient;
+        this.productCatalogCache = productCatalogCache;
+        this.resilience = productServiceResilience;
+        this.callTimer = new ClientCallTimer("product-service", meterRegistry);
+        this.productLookups = new SingleFlight<>(savedCallsCounter(meterRegistry, "single"));
+        this.batchLookups = new SingleFlight<>(savedCallsCounter(meterRegistry, "batch"));
+    }
+
+    // Получение товара со свежим остатком: из кэша, если остаток не старше stockTtl, иначе из product-service
     public ProductResponse getProductById(UUID productId) {
-        try {
-            return productServiceRestClient.get()
-                    .uri("/products/{productId}", productId)
-                    .retrieve()
-                    .body(ProductResponse.class);
-        } catch (HttpClientErrorException.NotFound e) {
-            // Сервис Product вернул 404, преобразуем в ProductNotFoundException
+        if (productCatalogCache.isKnownMissing(productId)) {
             throw new ProductNotFoundException(productId);
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка при получении продукта: " + e.getMessage());
         }
+        ProductResponse cached = productCatalogCache.getWithFreshStock(productId);
+        if (cached != null) {
+            return cached;
+        }
+        return fetchProductById(productId);
     }
 
     // Проверка доступности товара
     public boolean isProductAvailable(UUID productId, Integer quantity) {
         try {
-            ProductResponse product = getProductById(productId);
+            // В строгом режиме остаток всегда запрашивается в product-service
+            ProductResponse product = productCatalogCache.isStrictStockChecks()
+                    ? fetchProductById(productId)
+                    : getProductById(productId);
             // Если getProductById выбросил ProductNotFoundException, то это не выполняется
             return product.getStockQuantity() >= quantity;
-        } catch (ProductNotFoundException e) {
-            // ProductNotFoundException пробрасывается дальше
+        } catch (ProductNotFoundException | DownstreamUnavailableException e) {
+            // ProductNotFoundException и недоступность сервиса пробрасываются дальше
             throw e;
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при проверке наличия товара: " + e.getMessage());
         }
     }
 
+    /* Получение товаров партией
+    Товары со свежим остатком берутся из кэша, остальные запрашиваются одним вызовом POST /products/batch.
+    Товары, отсутствующие в ответе, кэшируются как ненайденные */
     public List<ProductResponse> getProductsByIds(List<UUID> productIds) {
-        try {
-            return productServiceRestClient.post()
-                    .uri("/products/batch")
-                    .body(productIds)
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<List<ProductResponse>>() {});
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка при получении продуктов: " + e.getMessage());
+        List<ProductResponse> products = new ArrayList<>();
+        List<UUID> missed = new ArrayList<>();
+        for (UUID productId : productIds) {
+            if (productCatalogCache.isKnownMissing(productId)) {
+                continue;
+            }
+            ProductResponse cached = productCatalogCache.getWithFreshStock(productId);
+            if (cached != null) {
+                products.add(cached);
+            } else {
+                missed.add(productId);
+            }
         }
+        if (!missed.isEmpty()) {
+            products.addAll(fetchProductsByIds(missed));
+        }
+        return products;
     }
 
+    // Получение товаров для решения об оформлении заказа, в строгом режиме в обход кэша
+    public List<ProductResponse> getProductsForStockCheck(List<UUID> productIds) {
+        return productCatalogCache.isStrictStockChecks()
+                ? fetchProductsByIds(productIds)
+                : getProductsByIds(productIds);
+    }
+
+    // Цена меняется редко, поэтому допускается товар с устаревшим остатком
     public BigDecimal getProductPrice(UUID productId) {
-        ProductResponse product = getProductById(productId);
+        ProductResponse product = productCatalogCache.getForMetadata(productId);
+        if (product == null) {
+            product = getProductById(productId);
+        }
         if (product == null) {
             throw new RuntimeException("Продукт с ID " + productId + " не найден");
         }
         return product.getPrice();
     }
 
-    // Проверка товара
+    // Проверка товара (факт существования берется из кэша, если он там есть)
     public boolean isProductExists(UUID productId) {
+        if (productCatalogCache.isKnownMissing(productId)) {
+            return false;
+        }
+        if (productCatalogCache.getForMetadata(productId) != null) {
+            return true;
+        }
         try {
-            productServiceRestClient.get()
-                    .uri("/products/{id}", productId)
-                    .retrieve()
-                    .toBodilessEntity();
+            fetchProductById(productId);
             return true;
-        } catch (HttpClientErrorException.NotFound e) {
+        } catch (ProductNotFoundException e) {
             return false;
+        } catch (DownstreamUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при проверке товара: " + e.getMessage(), e);
         }
@@ -87,27 +146,161 @@ public class ProductServiceClient {
     // Уменьшение кол-ва товара на складе
     public void decreaseProductStock(UUID productId, Integer quantity) {
         try {
-            productServiceRestClient.post()
-                    .uri("/products/{productId}/decrease-stock", productId)
-                    .body(Map.of("quantity", quantity))
-                    .retrieve()
-                    .toBodilessEntity();
+            callTimer.record("decreaseProductStock", () ->
+                    resilience.execute("decrease-stock", DownstreamResilience.Call.WRITE, () ->
+                            productServiceRestClient.post()
+                                    .uri("/products/{productId}/decrease-stock", productId)
+                                    .body(Map.of("quantity", quantity))
+                                    .retrieve()
+                                    .toBodilessEntity()));
+        } catch (DownstreamUnavailableException e) {
+            throw e;
+        } catch (HttpClientErrorException e) {
+            throw stockChangeError("Ошибка при уменьшении количества товара: ", e);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при уменьшении количества товара: " + e.getMessage());
+        } finally {
+            productCatalogCache.expireStock(productId);
+        }
+    }
+
+    // Пакетное уменьшение кол-ва товаров на складе, результат возвращается по каждому товару
+    public List<StockChangeResult> decreaseProductsStock(List<StockChangeRequest> changes) {
+        try {
+            List<StockChangeResult> results = callTimer.record("decreaseProductsStock", () ->
+                    resilience.execute("decrease-stock-batch", DownstreamResilience.Call.WRITE, () ->
+                            productServiceRestClient.post()
+                                    .uri("/products/decrease-stock/batch")
+                                    .body(changes)
+                                    .retrieve()
+                                    .body(new ParameterizedTypeReference<List<StockChangeResult>>() {})));
+            return results != null ? results : List.of();
+        } catch (DownstreamUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при уменьшении количества товаров: " + e.getMessage());
+        } finally {
+            changes.forEach(change -> productCatalogCache.expireStock(change.getProductId()));
+        }
+    }
+
+    // Возврат товара на склад (компенсация списания)
+    public void increaseProductStock(UUID productId, Integer quantity) {
+        try {
+            callTimer.record("increaseProductStock", () ->
+                    resilience.execute("increase-stock", DownstreamResilience.Call.WRITE, () ->
+                            productServiceRestClient.post()
+                                    .uri("/products/{productId}/increase-stock", productId)
+                                    .body(Map.of("quantity", quantity))
+                                    .retrieve()
+                                    .toBodilessEntity()));
+        } catch (DownstreamUnavailableException e) {
+            throw e;
+        } catch (HttpClientErrorException e) {
+            throw stockChangeError("Ошибка при возврате товара на склад: ", e);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при возврате товара на склад: " + e.getMessage());
+        } finally {
+            productCatalogCache.expireStock(productId);
         }
     }
 
     // Получение информации о наличии товара партией
     public Map<UUID, Integer> getProductsStockInfo(List<UUID> productIds) {
         try {
-            List<ProductResponse> products = getProductsByIds(productIds);
+            List<ProductResponse> products = getProductsForStockCheck(productIds);
             return products.stream()
                     .collect(Collectors.toMap(
                             ProductResponse::getProductId,
                             ProductResponse::getStockQuantity
                     ));
+        } catch (DownstreamUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при получении информации о наличии товаров: " + e.getMessage());
         }
     }
+
+    // Запрос товара в product-service с обновлением кэша
+    private ProductResponse fetchProductById(UUID productId) {
+        return productLookups.execute(productId, () -> requestProductById(productId));
+    }
+
+    private ProductResponse requestProductById(UUID productId) {
+        try {
+            ProductResponse product = callTimer.record("getProductById", () ->
+                    resilience.execute("get-product", DownstreamResilience.Call.READ, () ->
+                            productServiceRestClient.get()
+                                    .uri("/products/{productId}", productId)
+                                    .retrieve()
+                                    .body(ProductResponse.class)));
+            productCatalogCache.put(product);
+            return product;
+        } catch (HttpClientErrorException.NotFound e) {
+            // Сервис Product вернул 404, преобразуем в ProductNotFoundException
+            productCatalogCache.putMissing(productId);
+            throw new ProductNotFoundException(productId);
+        } catch (DownstreamUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при получении продукта: " + e.getMessage());
+        }
+    }
+
+    // Запрос товаров партией в product-service с обновлением кэша, пересекающиеся одновременные запросы объединяются
+    private List<ProductResponse> fetchProductsByIds(List<UUID> productIds) {
+        Map<UUID, ProductResponse> products = batchLookups.executeAll(productIds, this::requestProductsByIds);
+        return productIds.stream()
+                .distinct()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private Map<UUID, ProductResponse> requestProductsByIds(List<UUID> productIds) {
+        List<ProductResponse> products;
+        try {
+            // POST /products/batch только читает каталог, поэтому повторяется как чтение
+            products = callTimer.record("getProductsByIds", () ->
+                    resilience.execute("get-products-batch", DownstreamResilience.Call.READ, () ->
+                            productServiceRestClient.post()
+                                    .uri("/products/batch")
+                                    .body(productIds)
+                                    .retrieve()
+                                    .body(new ParameterizedTypeReference<List<ProductResponse>>() {})));
+        } catch (DownstreamUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при получении продуктов: " + e.getMessage());
+        }
+        if (products == null) {
+            products = List.of();
+        }
+
+        Map<UUID, ProductResponse> found = new HashMap<>();
+        products.forEach(product -> {
+            productCatalogCache.put(product);
+            found.put(product.getProductId(), product);
+        });
+        productIds.stream()
+                .filter(productId -> !found.containsKey(productId))
+                .forEach(productCatalogCache::putMissing);
+        return found;
+    }
+
+    // Ответ 4xx на изменение остатка окончательный, кроме 408 и 429 (их можно повторить позже)
+    private static RuntimeException stockChangeError(String message, HttpClientErrorException e) {
+        if (e instanceof HttpClientErrorException.TooManyRequests
+                || e.getStatusCode().isSameCodeAs(HttpStatus.REQUEST_TIMEOUT)) {
+            return new RuntimeException(message + e.getMessage());
+        }
+        return new StockChangeRejectedException(message + e.getMessage(), e);
+    }
+
+    private static Counter savedCallsCounter(MeterRegistry meterRegistry, String mode) {
+        return Counter.builder("product.lookups.coalesced")
+                .description("Вызовы product-service, которые не понадобились благодаря объединению запросов")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
 }
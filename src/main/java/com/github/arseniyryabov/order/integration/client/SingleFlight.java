@@ -0,0 +1,177 @@
+package com.github.arseniyryabov.order.integration.client;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/* Объединение одновременных запросов с одинаковым ключом в один внешний вызов
+Первый вызывающий выполняет запрос, остальные получают его результат или исключение.
+Ключ удаляется сразу после завершения запроса, поэтому результаты здесь не кэшируются.
+Если запрос первого вызывающего прерван или отменен (например, ParallelLookups отменил его задачу),
+присоединившиеся не получают чужую отмену, а повторяют запрос сами */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter savedCalls;
+
+    public SingleFlight(Counter savedCalls) {
+        this.savedCalls = savedCalls;
+    }
+
+    // Выполнение запроса по одному ключу
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing;
+        while ((existing = inFlight.putIfAbsent(key, own)) != null) {
+            savedCalls.increment();
+            try {
+                return await(existing);
+            } catch (LeaderAbandoned e) {
+                // Запрос первого вызывающего прерван, ключ запрашивается заново
+            }
+        }
+
+        V value = null;
+        Throwable failure = null;
+        try {
+            value = call.get();
+            return value;
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+            complete(own, value, failure);
+        }
+    }
+
+    /* Пакетный запрос: ключи, которые уже запрашиваются другими, не попадают в новый вызов,
+    их результаты ожидаются после завершения собственного вызова.
+    Ключи, отсутствующие в ответе пакетного вызова, отсутствуют и в результате */
+    public Map<K, V> executeAll(Collection<K> keys, Function<List<K>, Map<K, V>> batchCall) {
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> joined = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (owned.containsKey(key) || joined.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> own = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+            if (existing != null) {
+                joined.put(key, existing);
+            } else {
+                owned.put(key, own);
+            }
+        }
+
+        Map<K, V> result = new HashMap<>();
+        if (owned.isEmpty()) {
+            // Все ключи уже запрашиваются другими вызовами - собственный вызов не нужен
+            savedCalls.increment();
+        } else {
+            Map<K, V> fetched = Map.of();
+            Throwable failure = null;
+            try {
+                fetched = batchCall.apply(new ArrayList<>(owned.keySet()));
+            } catch (Throwable e) {
+                failure = e;
+                throw e;
+            } finally {
+                owned.forEach(inFlight::remove);
+                for (Map.Entry<K, CompletableFuture<V>> entry : owned.entrySet()) {
+                    complete(entry.getValue(), failure == null ? fetched.get(entry.getKey()) : null, failure);
+                }
+            }
+            for (K key : owned.keySet()) {
+                V value = fetched.get(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        }
+
+        List<K> abandoned = new ArrayList<>();
+        joined.forEach((key, future) -> {
+            try {
+                V value = await(future);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            } catch (LeaderAbandoned e) {
+                abandoned.add(key);
+            }
+        });
+        if (!abandoned.isEmpty()) {
+            result.putAll(executeAll(abandoned, batchCall));
+        }
+        return result;
+    }
+
+    // Завершение ожидания присоединившихся при любом исходе, включая Error
+    private static <V> void complete(CompletableFuture<V> future, V value, Throwable failure) {
+        if (failure == null) {
+            future.complete(value);
+        } else if (isInterruption(failure)) {
+            future.completeExceptionally(LeaderAbandoned.INSTANCE);
+        } else {
+            future.completeExceptionally(failure);
+        }
+    }
+
+    // Отмена или прерывание относятся к вызывающему, а не к запрашиваемому ключу
+    private static boolean isInterruption(Throwable failure) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException
+                    || cause instanceof InterruptedException
+                    || cause instanceof InterruptedIOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Ожидание прерываемо: отмененный вызывающий не остается висеть на чужом запросе
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Ожидание запроса прервано");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    // Запрос первого вызывающего прерван, присоединившиеся повторяют его сами
+    private static final class LeaderAbandoned extends RuntimeException {
+
+        private static final LeaderAbandoned INSTANCE = new LeaderAbandoned();
+
+        private LeaderAbandoned() {
+            super(null, null, false, false);
+        }
+    }
+}
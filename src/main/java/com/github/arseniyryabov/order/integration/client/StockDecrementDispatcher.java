@@ -0,0 +1,194 @@
+package com.github.arseniyryabov.order.integration.client;
+
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.exception.StockChangeRejectedException;
+import com.github.arseniyryabov.order.integration.StockChangeRequest;
+import com.github.arseniyryabov.order.integration.StockChangeResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/* Объединение списаний со склада от всех одновременных заказов в пакетные запросы
+Списания копятся в очереди до window или maxBatchSize, суммируются по товару
+и отправляются одним вызовом POST /products/decrease-stock/batch.
+Если суммарное списание по товару не прошло, вклад каждого заказа списывается отдельно,
+чтобы большой заказ не лишал товара остальных. При выключенной настройке списание идет сразу */
+@Slf4j
+@Component
+public class StockDecrementDispatcher {
+
+    private final ProductServiceClient productServiceClient;
+    private final ProductServiceProperties.StockBatching properties;
+    private final BlockingQueue<PendingDecrement> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService senders =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stock-batch-", 0).factory());
+    private final Counter requestedDecrements;
+    private final DistributionSummary batchSize;
+
+    private volatile boolean running;
+    // Выставляется после остановки сборщика: новые списания больше не принимаются
+    private volatile boolean closed;
+    private Thread collector;
+
+    public StockDecrementDispatcher(ProductServiceClient productServiceClient,
+                                    ProductServiceProperties productServiceProperties,
+                                    MeterRegistry meterRegistry) {
+        this.productServiceClient = productServiceClient;
+        this.properties = productServiceProperties.getStockBatching();
+        this.requestedDecrements = Counter.builder("product.stock.decrements")
+                .description("Списания со склада, запрошенные заказами")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("product.stock.batch.size")
+                .description("Количество списаний в одном пакетном запросе к product-service")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled()) {
+            running = true;
+            collector = Thread.ofPlatform().daemon().name("stock-dispatcher").start(this::collectBatches);
+        }
+    }
+
+    /* Остановка: уже принятые списания отправляются до завершения.
+    closed выставляется до последнего чтения очереди, поэтому списание, попавшее в очередь позже,
+    забирает и завершает с ошибкой сам decrease() */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (collector != null) {
+            collector.interrupt();
+            collector.join();
+        }
+        closed = true;
+        List<PendingDecrement> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            send(remaining);
+        }
+        senders.close();
+    }
+
+    // Списание товара, результат завершается после ответа product-service
+    public CompletableFuture<Void> decrease(UUID productId, int quantity) {
+        requestedDecrements.increment();
+        if (closed) {
+            return CompletableFuture.failedFuture(stopped());
+        }
+        if (!running) {
+            try {
+                productServiceClient.decreaseProductStock(productId, quantity);
+                return CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        PendingDecrement pending = new PendingDecrement(productId, quantity, new CompletableFuture<>());
+        queue.add(pending);
+        // stop() мог завершиться между проверкой running и добавлением в очередь - тогда списание никто не отправит
+        if (closed && queue.remove(pending)) {
+            pending.result().completeExceptionally(stopped());
+        }
+        return pending.result();
+    }
+
+    private static IllegalStateException stopped() {
+        return new IllegalStateException("Пакетная отправка списаний остановлена");
+    }
+
+    // Сбор пакетов: первый элемент ждем без ограничения, следующие - до конца окна или до заполнения пакета
+    private void collectBatches() {
+        while (running) {
+            List<PendingDecrement> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + properties.getWindow().toNanos();
+                while (batch.size() < properties.getMaxBatchSize()) {
+                    PendingDecrement next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                senders.execute(() -> send(batch));
+            }
+        }
+    }
+
+    private void send(List<PendingDecrement> batch) {
+        batchSize.record(batch.size());
+        Map<UUID, List<PendingDecrement>> byProduct = batch.stream()
+                .collect(Collectors.groupingBy(PendingDecrement::productId, LinkedHashMap::new, Collectors.toList()));
+        List<StockChangeRequest> changes = byProduct.entrySet().stream()
+                .map(entry -> new StockChangeRequest(entry.getKey(),
+                        entry.getValue().stream().mapToInt(PendingDecrement::quantity).sum()))
+                .toList();
+
+        Map<UUID, StockChangeResult> results;
+        try {
+            results = productServiceClient.decreaseProductsStock(changes).stream()
+                    .collect(Collectors.toMap(StockChangeResult::getProductId, Function.identity(), (a, b) -> a));
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+
+        byProduct.forEach((productId, pending) -> {
+            StockChangeResult result = results.get(productId);
+            if (result == null) {
+                /* Нет результата - неизвестно, списал ли product-service товар.
+                Повторная отправка по отдельности могла бы списать его дважды, поэтому
+                все списания завершаются повторяемой ошибкой, их повторит outbox */
+                RuntimeException missing = new RuntimeException(
+                        "Ошибка при уменьшении количества товара: нет результата для товара " + productId);
+                pending.forEach(decrement -> decrement.result().completeExceptionally(missing));
+            } else if (result.isSuccess()) {
+                pending.forEach(decrement -> decrement.result().complete(null));
+            } else if (pending.size() > 1) {
+                // Суммарное списание не прошло - списываем вклад каждого заказа по отдельности
+                pending.forEach(this::decreaseIndividually);
+            } else {
+                // product-service отказал в списании по товару (как 409 на одиночный запрос)
+                pending.getFirst().result().completeExceptionally(
+                        new StockChangeRejectedException(
+                                "Ошибка при уменьшении количества товара: " + result.getMessage(), null));
+            }
+        });
+    }
+
+    private void decreaseIndividually(PendingDecrement decrement) {
+        try {
+            productServiceClient.decreaseProductStock(decrement.productId(), decrement.quantity());
+            decrement.result().complete(null);
+        } catch (RuntimeException e) {
+            decrement.result().completeExceptionally(e);
+        }
+    }
+
+    private record PendingDecrement(UUID productId, int quantity, CompletableFuture<Void> result) {
+    }
+}
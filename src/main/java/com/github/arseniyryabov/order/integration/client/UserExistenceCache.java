@@ -0,0 +1,67 @@
+package com.github.arseniyryabov.order.integration.client;
+
+import com.github.arseniyryabov.order.config.UserServiceProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+/* Кэш существования пользователей по userId
+Ответы "существует" и "не найден" хранятся с разными TTL.
+Отдельно хранится последний положительный ответ на existsTtl + staleIfErrorGrace,
+чтобы при недоступности user-service некоторое время продолжать отвечать "существует" */
+@Component
+public class UserExistenceCache {
+
+    private final UserServiceProperties.Cache properties;
+    private final Cache<Long, Boolean> existence;
+    private final Cache<Long, Boolean> lastKnownExisting;
+
+    public UserExistenceCache(UserServiceProperties userServiceProperties, MeterRegistry meterRegistry) {
+        this.properties = userServiceProperties.getCache();
+        this.existence = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(Expiry.<Long, Boolean>creating((userId, exists) ->
+                        exists ? properties.getExistsTtl() : properties.getNotFoundTtl()))
+                .recordStats()
+                .build();
+        this.lastKnownExisting = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExistsTtl().plus(properties.getStaleIfErrorGrace()))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, existence, "user.existence");
+    }
+
+    // true / false - известный ответ user-service, null - нужно спросить user-service
+    public Boolean get(Long userId) {
+        return properties.isEnabled() ? existence.getIfPresent(userId) : null;
+    }
+
+    public void putExists(Long userId) {
+        if (properties.isEnabled()) {
+            existence.put(userId, Boolean.TRUE);
+            lastKnownExisting.put(userId, Boolean.TRUE);
+        }
+    }
+
+    public void putNotFound(Long userId) {
+        if (properties.isEnabled()) {
+            existence.put(userId, Boolean.FALSE);
+            lastKnownExisting.invalidate(userId);
+        }
+    }
+
+    // Пользователь существовал недавно: ответ для деградации при недоступности user-service
+    public boolean isRecentlyExisting(Long userId) {
+        return properties.isEnabled()
+                && properties.getStaleIfErrorGrace().isPositive()
+                && lastKnownExisting.getIfPresent(userId) != null;
+    }
+
+    public void invalidate(Long userId) {
+        existence.invalidate(userId);
+        lastKnownExisting.invalidate(userId);
+    }
+}
@@ -1,29 +1,70 @@
 package com.github.arseniyryabov.order.integration.client;
 
+import com.github.arseniyryabov.order.exception.DownstreamUnavailableException;
 import com.github.arseniyryabov.order.exception.UserNotFoundException;
 import com.github.arseniyryabov.order.integration.UserResponse;
-import lombok.RequiredArgsConstructor;
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 
+@Slf4j
 @Component
-@RequiredArgsConstructor
 public class UserServiceClient {
 
     private final RestClient userServiceRestClient;
 
+    private final UserExistenceCache userExistenceCache;
+
+    private final DownstreamResilience userServiceResilience;
+
+    private final ClientCallTimer callTimer;
+
+    public UserServiceClient(RestClient userServiceRestClient,
+                             UserExistenceCache userExistenceCache,
+                             DownstreamResilience userServiceResilience,
+                             MeterRegistry meterRegistry) {
+        this.userServiceRestClient = userServiceRestClient;
+        this.userExistenceCache = userExistenceCache;
+        this.userServiceResilience = userServiceResilience;
+        this.callTimer = new ClientCallTimer("user-service", meterRegistry);
+    }
+
+    // Проверка существования пользователя, ответ берется из кэша существования, если он там есть
     public void getUserById(Long userId) {
+        Boolean exists = userExistenceCache.get(userId);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        if (Boolean.FALSE.equals(exists)) {
+            throw new UserNotFoundException(userId);
+        }
+
         try {
-            userServiceRestClient.get()
-                    .uri("/users/{id}", userId)
-                    .retrieve()
-                    .body(UserResponse.class);
+            callTimer.record("getUserById", () ->
+                    userServiceResilience.execute("get-user", DownstreamResilience.Call.READ, () ->
+                            userServiceRestClient.get()
+                                    .uri("/users/{id}", userId)
+                                    .retrieve()
+                                    .body(UserResponse.class)));
+            userExistenceCache.putExists(userId);
         } catch (HttpClientErrorException.NotFound e) {
             // Теперь это исключение автоматически преобразуется в UserNotFoundException в сервисе User
             // и возвращает статус 404
+            userExistenceCache.putNotFound(userId);
             throw new UserNotFoundException(userId);
         } catch (Exception e) {
+            // user-service недоступен, но пользователь существовал недавно - отвечаем последним известным результатом
+            if (userExistenceCache.isRecentlyExisting(userId)) {
+                log.warn("user-service недоступен, для пользователя {} используется последний известный ответ: {}",
+                        userId, e.getMessage());
+                return;
+            }
+            if (e instanceof DownstreamUnavailableException unavailable) {
+                throw unavailable;
+            }
             throw new RuntimeException("Ошибка при получении пользователя: " + e.getMessage(), e);
         }
     }
@@ -31,15 +72,24 @@ public class UserServiceClient {
     // Метод для проверки пользователя
     public boolean isUserExists(Long userId) {
         try {
-            userServiceRestClient.get()
-                    .uri("/users/{id}", userId)
-                    .retrieve()
-                    .toBodilessEntity();
+            callTimer.record("isUserExists", () ->
+                    userServiceResilience.execute("get-user", DownstreamResilience.Call.READ, () ->
+                            userServiceRestClient.get()
+                                    .uri("/users/{id}", userId)
+                                    .retrieve()
+                                    .toBodilessEntity()));
             return true;
         } catch (HttpClientErrorException.NotFound e) {
             return false;
+        } catch (DownstreamUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при проверке пользователя: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    // Сброс закэшированного ответа для пользователя (например, после его создания или удаления)
+    public void evictUser(Long userId) {
+        userExistenceCache.invalidate(userId);
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.arseniyryabov.order.integration.resilience;
+
+import com.github.arseniyryabov.order.config.ResilienceSettings;
+
+/* Автомат отключения вызовов по доле неудач в скользящем окне последних вызовов
+CLOSED - вызовы проходят, исходы записываются в окно;
+OPEN - вызовы отклоняются до истечения openDuration;
+HALF_OPEN - пропускается halfOpenCalls пробных вызовов: все успешны - CLOSED, первая неудача - снова OPEN */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final ResilienceSettings.CircuitBreaker settings;
+    private final boolean[] window;
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(ResilienceSettings.CircuitBreaker settings) {
+        this.settings = settings;
+        this.window = new boolean[settings.getSlidingWindowSize()];
+    }
+
+    // Разрешение на вызов, после вызова обязателен ровно один из onSuccess, onFailure, onIgnored
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < settings.getOpenDuration().toNanos()) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = settings.getHalfOpenCalls();
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= settings.getHalfOpenCalls()) {
+                state = State.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= settings.getMinimumCalls()
+                && failures * 100 >= settings.getFailureRateThreshold() * recorded) {
+            open();
+        }
+    }
+
+    // Исход вызова неизвестен (отклонен bulkhead, прерван, завершился Error), пробное разрешение возвращается
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        position = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,290 @@
+package com.github.arseniyryabov.order.integration.resilience;
+
+import com.github.arseniyryabov.order.config.ResilienceSettings;
+import com.github.arseniyryabov.order.exception.DownstreamUnavailableException;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/* Защита вызовов одного нижестоящего сервиса: повтор -> (дублирование) -> автомат эндпоинта -> bulkhead -> вызов
+Неудачей считаются ошибки соединения и таймауты, 5xx и 429. Остальные ответы (в том числе 404)
+означают, что сервис работает, и передаются вызывающему коду без изменений.
+Повторы и дублирование применяются только к чтению (Call.READ), изменения остатков выполняются один раз.
+Отказ защиты или исчерпание попыток - DownstreamUnavailableException (HTTP 503).
+Прерванный вызов (отмена вызывающим кодом) не считается ни успехом, ни неудачей и завершается CancellationException.
+Метрики: downstream.circuit.state, downstream.bulkhead.available, downstream.calls.rejected,
+downstream.retries, downstream.hedges с тегами service и endpoint */
+public class DownstreamResilience implements AutoCloseable {
+
+    // Тип вызова: чтение можно повторять и дублировать, изменение - нет
+    public enum Call {
+        READ, WRITE
+    }
+
+    private final String service;
+    private final ResilienceSettings settings;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore bulkhead;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    // Попытки выполняются с контекстом трассировки вызывающего потока
+    private final ExecutorService hedgeExecutor = ContextExecutorService.wrap(
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("hedge-", 0).factory()),
+            ContextSnapshotFactory.builder().build());
+
+    public DownstreamResilience(String service, ResilienceSettings settings, MeterRegistry meterRegistry) {
+        this.service = service;
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(settings.getBulkhead().getMaxConcurrentCalls());
+        Gauge.builder("downstream.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Свободные места для одновременных вызовов сервиса")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(String endpointName, Call call, Supplier<T> action) {
+        Endpoint endpoint = endpoints.computeIfAbsent(endpointName, Endpoint::new);
+        int maxAttempts = call == Call.READ ? Math.max(1, settings.getRetry().getMaxAttempts()) : 1;
+        boolean hedged = call == Call.READ && settings.getHedging().isEnabled();
+
+        TransientFailure lastFailure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                return hedged ? hedgedAttempt(endpoint, action) : attempt(endpoint, action);
+            } catch (TransientFailure failure) {
+                lastFailure = failure;
+            }
+            if (attempt < maxAttempts) {
+                endpoint.retries.increment();
+                sleep(backoff(attempt));
+            }
+        }
+        throw new DownstreamUnavailableException(service, endpointName,
+                lastFailure.getCause().getMessage(), lastFailure.getCause());
+    }
+
+    // Одна попытка через автомат эндпоинта и bulkhead сервиса
+    private <T> T attempt(Endpoint endpoint, Supplier<T> action) {
+        if (!endpoint.circuitBreaker.tryAcquire()) {
+            endpoint.rejectedByCircuit.increment();
+            throw new DownstreamUnavailableException(service, endpoint.name, "автомат разомкнут", null);
+        }
+        boolean acquired;
+        try {
+            acquired = acquireBulkhead();
+        } catch (CancellationException e) {
+            endpoint.circuitBreaker.onIgnored();
+            throw e;
+        }
+        if (!acquired) {
+            endpoint.circuitBreaker.onIgnored();
+            endpoint.rejectedByBulkhead.increment();
+            throw new DownstreamUnavailableException(service, endpoint.name, "превышен лимит одновременных вызовов", null);
+        }
+        long started = System.nanoTime();
+        // Исход записывается в finally: пробное разрешение HALF_OPEN возвращается и при Error
+        Outcome outcome = Outcome.IGNORED;
+        try {
+            T result = action.get();
+            outcome = Outcome.SUCCESS;
+            endpoint.latency.record(System.nanoTime() - started);
+            return result;
+        } catch (RuntimeException e) {
+            if (isInterrupted(e)) {
+                // Вызов отменен (например, ParallelLookups после первой ошибки), о состоянии сервиса он ничего не говорит
+                CancellationException cancelled = new CancellationException("Вызов прерван");
+                cancelled.initCause(e);
+                throw cancelled;
+            }
+            if (isFailure(e)) {
+                outcome = Outcome.FAILURE;
+                throw new TransientFailure(e);
+            }
+            outcome = Outcome.SUCCESS;
+            throw e;
+        } finally {
+            bulkhead.release();
+            switch (outcome) {
+                case SUCCESS -> endpoint.circuitBreaker.onSuccess();
+                case FAILURE -> endpoint.circuitBreaker.onFailure();
+                case IGNORED -> endpoint.circuitBreaker.onIgnored();
+            }
+        }
+    }
+
+    /* Если первый запрос не ответил за p95, отправляется второй, используется первый успешный ответ
+    Проигравший запрос не прерывается (блокирующий ввод-вывод), его ограничивает requestDeadline клиента */
+    private <T> T hedgedAttempt(Endpoint endpoint, Supplier<T> action) {
+        long p95 = endpoint.latency.p95Nanos();
+        if (p95 < 0) {
+            return attempt(endpoint, action);
+        }
+        long delay = Math.max(p95, settings.getHedging().getMinDelay().toNanos());
+
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(() -> attempt(endpoint, action), hedgeExecutor);
+        try {
+            return primary.get(delay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            endpoint.hedges.increment();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.cancel(true);
+            throw new CancellationException("Вызов прерван");
+        }
+
+        CompletableFuture<T> backup = CompletableFuture.supplyAsync(() -> attempt(endpoint, action), hedgeExecutor);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        primary.whenComplete((result, error) -> completeFirst(first, backup, result, error));
+        backup.whenComplete((result, error) -> completeFirst(first, primary, result, error));
+        try {
+            return first.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    // Успешный ответ побеждает сразу, ошибка - только если второй запрос тоже завершился ошибкой
+    private static <T> void completeFirst(CompletableFuture<T> first, CompletableFuture<T> other,
+                                          T result, Throwable error) {
+        if (error == null) {
+            first.complete(result);
+        } else if (other.isDone()) {
+            first.completeExceptionally(error);
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(settings.getBulkhead().getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Вызов прерван");
+        }
+    }
+
+    // Экспоненциальная задержка с full jitter: случайное значение от 0 до min(max, initial * 2^(n-1))
+    private long backoff(int attempt) {
+        long initial = settings.getRetry().getInitialBackoff().toMillis();
+        long max = settings.getRetry().getMaxBackoff().toMillis();
+        long ceiling = Math.min(max, initial << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Вызов прерван");
+        }
+    }
+
+    private static boolean isFailure(RuntimeException e) {
+        return e instanceof ResourceAccessException
+                || e instanceof HttpServerErrorException
+                || e instanceof HttpClientErrorException.TooManyRequests;
+    }
+
+    /* Ошибка вызова из-за прерывания потока: флаг прерывания выставлен или причина - само прерывание.
+    Подклассы InterruptedIOException (SocketTimeoutException, отмена по requestDeadline) - таймауты, а не прерывание */
+    private static boolean isInterrupted(RuntimeException e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause.getClass() == InterruptedIOException.class) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    public CircuitBreaker.State circuitState(String endpointName) {
+        Endpoint endpoint = endpoints.get(endpointName);
+        return endpoint != null ? endpoint.circuitBreaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    @Override
+    public void close() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    // Защита и метрики одного эндпоинта
+    private final class Endpoint {
+
+        private final String name;
+        private final CircuitBreaker circuitBreaker = new CircuitBreaker(settings.getCircuitBreaker());
+        private final LatencyTracker latency = new LatencyTracker();
+        private final Counter rejectedByCircuit;
+        private final Counter rejectedByBulkhead;
+        private final Counter retries;
+        private final Counter hedges;
+
+        private Endpoint(String name) {
+            this.name = name;
+            Gauge.builder("downstream.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                    .description("Состояние автомата: 0 - замкнут, 1 - разомкнут, 2 - пробные вызовы")
+                    .tags("service", service, "endpoint", name)
+                    .register(meterRegistry);
+            this.rejectedByCircuit = rejected("circuit_open");
+            this.rejectedByBulkhead = rejected("bulkhead_full");
+            this.retries = Counter.builder("downstream.retries")
+                    .description("Повторные попытки чтения после временной ошибки")
+                    .tags("service", service, "endpoint", name)
+                    .register(meterRegistry);
+            this.hedges = Counter.builder("downstream.hedges")
+                    .description("Дублирующие запросы после ожидания дольше p95")
+                    .tags("service", service, "endpoint", name)
+                    .register(meterRegistry);
+        }
+
+        private Counter rejected(String reason) {
+            return Counter.builder("downstream.calls.rejected")
+                    .description("Вызовы, отклоненные без обращения к сервису")
+                    .tags("service", service, "endpoint", name, "reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS, FAILURE, IGNORED
+    }
+
+    // Временная ошибка попытки, после которой допустим повтор
+    private static final class TransientFailure extends RuntimeException {
+
+        private TransientFailure(RuntimeException cause) {
+            super(cause.getMessage(), cause, false, false);
+        }
+    }
+}
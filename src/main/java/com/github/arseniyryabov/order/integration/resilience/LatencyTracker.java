@@ -0,0 +1,31 @@
+package com.github.arseniyryabov.order.integration.resilience;
+
+import java.util.Arrays;
+
+// Время последних успешных ответов эндпоинта, p95 пересчитывается раз в RECALCULATE_EVERY записей
+class LatencyTracker {
+
+    private static final int SIZE = 256;
+    private static final int RECALCULATE_EVERY = 32;
+
+    private final long[] latencies = new long[SIZE];
+    private int position;
+    private int recorded;
+    private volatile long p95Nanos = -1;
+
+    synchronized void record(long nanos) {
+        latencies[position] = nanos;
+        position = (position + 1) % SIZE;
+        recorded = Math.min(recorded + 1, SIZE);
+        if (position % RECALCULATE_EVERY == 0) {
+            long[] sorted = Arrays.copyOf(latencies, recorded);
+            Arrays.sort(sorted);
+            p95Nanos = sorted[(int) Math.ceil(recorded * 0.95) - 1];
+        }
+    }
+
+    // -1, пока ответов недостаточно для оценки
+    long p95Nanos() {
+        return p95Nanos;
+    }
+}
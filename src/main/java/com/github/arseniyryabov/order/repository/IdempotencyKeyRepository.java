@@ -0,0 +1,49 @@
+package com.github.arseniyryabov.order.repository;
+
+import com.github.arseniyryabov.order.entity.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, UUID> {
+
+    Optional<IdempotencyKeyEntity> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    /* Повторное занятие просроченного ключа: брошенного (экземпляр упал, не создав заказ)
+    или с истекшим ответом. Срабатывает только у одного из конкурентов */
+    @Modifying
+    @Query("update IdempotencyKeyEntity k set k.status = 'IN_PROGRESS', k.requestHash = :requestHash, " +
+            "k.orderId = null, k.response = null, k.createdAt = :now, k.expiresAt = :lockedUntil " +
+            "where k.keyId = :keyId and k.expiresAt < :now")
+    int takeOver(UUID keyId, String requestHash, LocalDateTime now, LocalDateTime lockedUntil);
+
+    /* Сохранение ответа, только пока ключ занят этим запросом: takenAt - время занятия (created_at).
+    0 - ключ просрочен и забран другим запросом, заказ создавать нельзя */
+    @Modifying
+    @Query("update IdempotencyKeyEntity k set k.status = 'COMPLETED', k.orderId = :orderId, " +
+            "k.response = :response, k.expiresAt = :expiresAt " +
+            "where k.keyId = :keyId and k.status = 'IN_PROGRESS' and k.requestHash = :requestHash " +
+            "and k.createdAt = :takenAt")
+    int complete(UUID keyId, String requestHash, LocalDateTime takenAt, UUID orderId, String response,
+                 LocalDateTime expiresAt);
+
+    // Освобождение ключа, если заказ не создан: повтор запроса выполнится заново. Ключ, забранный другим запросом, не трогается
+    @Modifying
+    @Query("delete from IdempotencyKeyEntity k where k.keyId = :keyId and k.status = 'IN_PROGRESS' " +
+            "and k.createdAt = :takenAt")
+    int release(UUID keyId, LocalDateTime takenAt);
+
+    // Удаление порции просроченных ключей
+    @Modifying
+    @Query(value = """
+            DELETE FROM order_idempotency_keys
+            WHERE key_id IN (
+                SELECT key_id FROM order_idempotency_keys
+                WHERE expires_at < :now
+                LIMIT :limit)""", nativeQuery = true)
+    int deleteExpired(LocalDateTime now, int limit);
+}
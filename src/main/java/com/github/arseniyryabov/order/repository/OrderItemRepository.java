@@ -1,11 +1,26 @@
 package com.github.arseniyryabov.order.repository;
 
 import com.github.arseniyryabov.order.entity.OrderItemEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItemEntity, UUID> {
+
+    // Позиции сразу для всех заказов страницы одним запросом
+    @Query("select new com.github.arseniyryabov.order.repository.OrderItemSummary(" +
+            "i.order.orderId, i.orderItemId, i.productId, i.quantity, i.unitPrice, i.productName, i.lineTotal) " +
+            "from OrderItemEntity i where i.order.orderId in :orderIds")
+    List<OrderItemSummary> findSummariesByOrderIds(Collection<UUID> orderIds);
+
+    // Позиции без снимка цены, keyset по order_item_id (для OrderItemPriceBackfill)
+    @Query("select i from OrderItemEntity i where i.unitPrice is null and i.orderItemId > :after " +
+            "order by i.orderItemId")
+    List<OrderItemEntity> findWithoutPriceAfter(UUID after, Limit limit);
 }
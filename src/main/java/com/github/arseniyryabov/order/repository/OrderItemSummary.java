@@ -0,0 +1,14 @@
+package com.github.arseniyryabov.order.repository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Позиция заказа для списков (DTO-проекция)
+public record OrderItemSummary(UUID orderId,
+                               UUID orderItemId,
+                               UUID productId,
+                               Integer quantity,
+                               BigDecimal unitPrice,
+                               String productName,
+                               BigDecimal lineTotal) {
+}
@@ -1,16 +1,133 @@
 package com.github.arseniyryabov.order.repository;
 
 import com.github.arseniyryabov.order.entity.OrderEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+// Позиции загружаются вместе с заказом: open-in-view выключен, ответ собирается вне транзакции
 public interface OrderRepository extends JpaRepository<OrderEntity, UUID> {
 
+    /* Списки заказов читаются DTO-проекциями, позиции догружаются вторым запросом
+    (OrderItemRepository.findSummariesByOrderIds), итого два запроса на страницу при любом ее размере */
+    String SELECT_SUMMARY = "select new com.github.arseniyryabov.order.repository.OrderSummary(" +
+            "o.orderId, o.userId, o.address, o.deliveryMethod, o.status, o.failureReason, o.totalAmount, o.createdAt) " +
+            "from OrderEntity o ";
+
+    @EntityGraph(attributePaths = "items")
     Optional<OrderEntity> findByOrderId(UUID orderId);
+
+    @EntityGraph(attributePaths = "items")
     Optional<OrderEntity> findByOrderIdAndUserId(UUID orderId, Long userId);
-    List<OrderEntity> findByUserId(Long userId);
-    List<OrderEntity> findByStatus(String status);
+
+    /* Заказ с блокировкой строки до конца транзакции (позиции догружаются лениво:
+    PostgreSQL не блокирует строки внешнего соединения, поэтому без EntityGraph) */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from OrderEntity o where o.orderId = :orderId")
+    Optional<OrderEntity> findForUpdate(UUID orderId);
+
+    // Заказы в статусе, созданные раньше createdBefore, старые первыми
+    @Query("select o.orderId from OrderEntity o where o.status = :status and o.createdAt < :createdBefore " +
+            "order by o.createdAt")
+    List<UUID> findIdsByStatusCreatedBefore(String status, LocalDateTime createdBefore, Limit limit);
+
+    // Перевод в FAILED заказов, еще ожидающих обработки (условие на статус защищает от гонки с воркером)
+    @Modifying
+    @Query("update OrderEntity o set o.status = :failed, o.failureReason = :reason, o.version = o.version + 1 " +
+            "where o.status = :pending and o.createdAt < :createdBefore")
+    int failPendingCreatedBefore(String pending, String failed, String reason, LocalDateTime createdBefore);
+
+    @Modifying
+    @Query("update OrderEntity o set o.status = :failed, o.failureReason = :reason, o.version = o.version + 1 " +
+            "where o.orderId = :orderId and o.status = :pending")
+    int failPending(UUID orderId, String pending, String failed, String reason);
+
+    // Перевод заказа в FAILED с причиной, только если его статус среди from
+    @Modifying
+    @Query("update OrderEntity o set o.status = :failed, o.failureReason = :reason, o.version = o.version + 1 " +
+            "where o.orderId = :orderId and o.status in :from")
+    int failFrom(UUID orderId, Collection<String> from, String failed, String reason);
+
+    /* Переход статуса одним UPDATE без чтения заказа: строка меняется, только если ее статус среди from.
+    Из одновременных переходов применяется первый, для остальных условие уже не выполняется (0 строк) */
+    @Modifying
+    @Query("update OrderEntity o set o.status = :to, o.version = o.version + 1 " +
+            "where o.orderId = :orderId and o.status in :from")
+    int transitionStatus(UUID orderId, Collection<String> from, String to);
+
+    // Тот же переход, но только если заказ не менялся с версии закэшированного ответа
+    @Modifying
+    @Query("update OrderEntity o set o.status = :to, o.version = o.version + 1 " +
+            "where o.orderId = :orderId and o.status in :from and o.version = :version")
+    int transitionStatusAtVersion(UUID orderId, Collection<String> from, String to, Long version);
+
+    /* Массовая смена статуса (OrderBulkStatusService): строки порции блокируются только этим запросом,
+    в порядке order_id, поэтому одновременные массовые изменения пересекающихся порций (по списку
+    и по фильтру) не блокируют друг друга взаимно */
+    String SELECT_STATUS_ROW = "select new com.github.arseniyryabov.order.repository.OrderStatusRow(" +
+            "o.orderId, o.userId, o.status, o.createdAt) from OrderEntity o ";
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(SELECT_STATUS_ROW + "where o.orderId in :orderIds order by o.orderId")
+    List<OrderStatusRow> findStatusRowsForUpdate(Collection<UUID> orderIds);
+
+    // Порция заказов по фильтру (статус и период создания) без блокировки, keyset по (created_at, order_id)
+    @Query(SELECT_STATUS_ROW + "where o.status = :status " +
+            "and o.createdAt >= :createdFrom and o.createdAt < :createdTo " +
+            "order by o.createdAt desc, o.orderId desc")
+    List<OrderStatusRow> findStatusRows(String status, LocalDateTime createdFrom, LocalDateTime createdTo,
+                                        Limit limit);
+
+    @Query(SELECT_STATUS_ROW + "where o.status = :status " +
+            "and o.createdAt >= :createdFrom and o.createdAt < :createdTo " +
+            "and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.orderId < :orderId)) " +
+            "order by o.createdAt desc, o.orderId desc")
+    List<OrderStatusRow> findStatusRowsAfter(String status, LocalDateTime createdFrom, LocalDateTime createdTo,
+                                             LocalDateTime createdAt, UUID orderId, Limit limit);
+
+    // Переход статуса порции заказов одним UPDATE (условие на статус сохраняется на случай изменений без блокировки)
+    @Modifying
+    @Query("update OrderEntity o set o.status = :to, o.version = o.version + 1 " +
+            "where o.orderId in :orderIds and o.status in :from")
+    int transitionStatuses(Collection<UUID> orderIds, Collection<String> from, String to);
+
+    // Keyset-пагинация заказов пользователя, новые заказы первыми
+    @Query(SELECT_SUMMARY + "where o.userId = :userId " +
+            "order by o.createdAt desc, o.orderId desc")
+    List<OrderSummary> findPageByUserId(Long userId, Limit limit);
+
+    @Query(SELECT_SUMMARY + "where o.userId = :userId " +
+            "and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.orderId < :orderId)) " +
+            "order by o.createdAt desc, o.orderId desc")
+    List<OrderSummary> findPageByUserIdAfter(Long userId, LocalDateTime createdAt, UUID orderId, Limit limit);
+
+    // Keyset-пагинация заказов по статусу, новые заказы первыми
+    @Query(SELECT_SUMMARY + "where o.status = :status " +
+            "order by o.createdAt desc, o.orderId desc")
+    List<OrderSummary> findPageByStatus(String status, Limit limit);
+
+    @Query(SELECT_SUMMARY + "where o.status = :status " +
+            "and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.orderId < :orderId)) " +
+            "order by o.createdAt desc, o.orderId desc")
+    List<OrderSummary> findPageByStatusAfter(String status, LocalDateTime createdAt, UUID orderId, Limit limit);
+
+    // Потоковое чтение заказов по статусу через forward-only курсор JDBC (только внутри транзакции)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_SUMMARY + "where o.status = :status order by o.createdAt desc, o.orderId desc")
+    Stream<OrderSummary> streamByStatus(String status);
 }
@@ -0,0 +1,11 @@
+package com.github.arseniyryabov.order.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Статус заказа для массовой смены статуса (DTO-проекция)
+public record OrderStatusRow(UUID orderId,
+                             Long userId,
+                             String status,
+                             LocalDateTime createdAt) {
+}
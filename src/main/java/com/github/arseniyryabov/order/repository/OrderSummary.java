@@ -0,0 +1,16 @@
+package com.github.arseniyryabov.order.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Строка заказа без позиций для списков (DTO-проекция, сущности в контекст персистентности не попадают)
+public record OrderSummary(UUID orderId,
+                           Long userId,
+                           String address,
+                           String deliveryMethod,
+                           String status,
+                           String failureReason,
+                           BigDecimal totalAmount,
+                           LocalDateTime createdAt) {
+}
@@ -0,0 +1,43 @@
+package com.github.arseniyryabov.order.repository;
+
+import com.github.arseniyryabov.order.entity.StockOutboxEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface StockOutboxRepository extends JpaRepository<StockOutboxEntity, UUID> {
+
+    // Захват пачки готовых к отправке записей, записи, заблокированные другими экземплярами, пропускаются
+    @Query(value = """
+            SELECT * FROM stock_outbox
+            WHERE status = 'PENDING' AND next_attempt_at <= :now
+            ORDER BY next_attempt_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<StockOutboxEntity> findPendingForUpdate(LocalDateTime now, int limit);
+
+    // Аренда захваченных записей: до leaseUntil их не заберет другой relay
+    @Modifying
+    @Query("update StockOutboxEntity o set o.nextAttemptAt = :leaseUntil, o.attempts = o.attempts + 1 " +
+            "where o.outboxId in :outboxIds")
+    int lease(List<UUID> outboxIds, LocalDateTime leaseUntil);
+
+    /* Захваченные записи с блокировкой строк на время фиксации результата отправки:
+    компенсация отказа по заказу (StockOutboxService.compensateDecreases) меняет их не одновременно с relay */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from StockOutboxEntity o where o.outboxId in :outboxIds order by o.outboxId")
+    List<StockOutboxEntity> findAllForUpdate(Collection<UUID> outboxIds);
+
+    // Записи заказа по операции с блокировкой строк
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from StockOutboxEntity o where o.orderId = :orderId and o.operation = :operation " +
+            "order by o.outboxId")
+    List<StockOutboxEntity> findByOrderIdForUpdate(UUID orderId, String operation);
+}
@@ -0,0 +1,19 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.entity.OrderEntity;
+
+// Результат создания одного заказа из партии: сохраненный заказ или причина отказа
+public record OrderBatchResult(int index, OrderEntity order, RuntimeException error) {
+
+    static OrderBatchResult created(int index, OrderEntity order) {
+        return new OrderBatchResult(index, order, null);
+    }
+
+    static OrderBatchResult failed(int index, RuntimeException error) {
+        return new OrderBatchResult(index, null, error);
+    }
+
+    public boolean isCreated() {
+        return order != null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.arseniyryabov.order.service;
+
+import java.util.List;
+import java.util.UUID;
+
+/* Результат массовой смены статуса: число переведенных заказов, число заказов, уже бывших в целевом статусе,
+и отказы по заказам (currentStatus = null - заказ не найден) */
+public record OrderBulkStatusResult(int updated, int unchanged, List<Rejection> rejected) {
+
+    public record Rejection(UUID orderId, String currentStatus) {
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.ReadYourWrites;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.entity.OrderStatusConverter;
+import com.github.arseniyryabov.order.exception.InvalidBulkStatusRequestException;
+import com.github.arseniyryabov.order.exception.InvalidOrderStatusException;
+import com.github.arseniyryabov.order.exception.InvalidStatusTransitionException;
+import com.github.arseniyryabov.order.repository.OrderItemRepository;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.OrderStatusRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/* Массовая смена статуса заказов (PATCH /orders/status) по списку orderId или по фильтру
+Заказы обрабатываются порциями по CHUNK_SIZE, каждая порция - одна транзакция:
+1. SELECT ... FOR UPDATE текущих статусов порции в порядке order_id (в обоих режимах, поэтому
+одновременные запросы с пересекающимися заказами не могут заблокировать друг друга взаимно)
+2. один UPDATE по заказам, для которых переход разрешен таблицей OrderStatus
+3. при отмене - позиции отмененных заказов одним запросом, записи возврата в outbox пачкой JDBC
+Заказы, которые нельзя перевести, возвращаются с текущим статусом, остальная порция применяется */
+@Service
+public class OrderBulkStatusService {
+
+    // Максимальное число orderId в одном запросе
+    public static final int MAX_ORDER_IDS = 10_000;
+
+    // Заказов в одной транзакции: блокировки строк держатся только на время порции
+    static final int CHUNK_SIZE = 1_000;
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final StockOutboxService stockOutboxService;
+    private final OrderResponseCache orderResponseCache;
+    private final ReadYourWrites readYourWrites;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer chunkTimer;
+    private final Counter updatedCounter;
+    private final Counter unchangedCounter;
+    private final Counter rejectedCounter;
+
+    public OrderBulkStatusService(OrderRepository orderRepository,
+                                  OrderItemRepository orderItemRepository,
+                                  StockOutboxService stockOutboxService,
+                                  OrderResponseCache orderResponseCache,
+                                  ReadYourWrites readYourWrites,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.stockOutboxService = stockOutboxService;
+        this.orderResponseCache = orderResponseCache;
+        this.readYourWrites = readYourWrites;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkTimer = Timer.builder("orders.status.bulk.chunk")
+                .description("Время транзакции массовой смены статуса одной порции заказов")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.updatedCounter = outcomeCounter(meterRegistry, "updated");
+        this.unchangedCounter = outcomeCounter(meterRegistry, "unchanged");
+        this.rejectedCounter = outcomeCounter(meterRegistry, "rejected");
+    }
+
+    // Перевод заказов из списка, повторяющиеся orderId учитываются один раз
+    public OrderBulkStatusResult updateStatus(List<UUID> orderIds, String status) {
+        Set<String> sources = sourcesOf(status);
+        if (orderIds == null || orderIds.isEmpty() || orderIds.contains(null)) {
+            throw new InvalidBulkStatusRequestException("Список orderIds пуст или содержит пустые значения");
+        }
+        if (orderIds.size() > MAX_ORDER_IDS) {
+            throw new InvalidBulkStatusRequestException("Не более " + MAX_ORDER_IDS + " заказов в одном запросе");
+        }
+        List<UUID> distinct = List.copyOf(new LinkedHashSet<>(orderIds));
+        Accumulator result = new Accumulator();
+        for (int from = 0; from < distinct.size(); from += CHUNK_SIZE) {
+            List<UUID> chunk = distinct.subList(from, Math.min(from + CHUNK_SIZE, distinct.size()));
+            result.add(chunkTimer.record(() -> transactionTemplate.execute(tx ->
+                    apply(chunk, orderRepository.findStatusRowsForUpdate(chunk), status, sources))));
+        }
+        return result.toResult();
+    }
+
+    /* Перевод всех заказов в статусе fromStatus, созданных в [createdFrom, createdTo)
+    Порции выбираются keyset-запросом по (created_at, order_id) без блокировки, затем блокируются
+    по orderId, как в режиме списка. Заказы, успевшие сменить статус, в порцию не попадают.
+    Если переход из fromStatus не разрешен, запрос отклоняется целиком */
+    public OrderBulkStatusResult updateStatusMatching(String fromStatus, LocalDateTime createdFrom,
+                                                      LocalDateTime createdTo, String status) {
+        Set<String> sources = sourcesOf(status);
+        if (fromStatus == null || createdFrom == null || createdTo == null || !createdFrom.isBefore(createdTo)) {
+            throw new InvalidBulkStatusRequestException(
+                    "Фильтру нужны статус и период createdFrom < createdTo");
+        }
+        validateStatus(fromStatus);
+        Accumulator result = new Accumulator();
+        if (fromStatus.equals(status)) {
+            return result.toResult();
+        }
+        if (!sources.contains(fromStatus)) {
+            throw new InvalidStatusTransitionException(fromStatus, status);
+        }
+        OrderStatusRow last = null;
+        while (true) {
+            OrderStatusRow after = last;
+            FilterChunk chunk = chunkTimer.record(() -> transactionTemplate.execute(tx -> {
+                List<OrderStatusRow> rows = after == null
+                        ? orderRepository.findStatusRows(fromStatus, createdFrom, createdTo, Limit.of(CHUNK_SIZE))
+                        : orderRepository.findStatusRowsAfter(fromStatus, createdFrom, createdTo,
+                        after.createdAt(), after.orderId(), Limit.of(CHUNK_SIZE));
+                if (rows.isEmpty()) {
+                    return new FilterChunk(rows, new OrderBulkStatusResult(0, 0, List.of()));
+                }
+                List<OrderStatusRow> locked = orderRepository.findStatusRowsForUpdate(
+                                rows.stream().map(OrderStatusRow::orderId).toList()).stream()
+                        .filter(row -> fromStatus.equals(row.status()))
+                        .toList();
+                return new FilterChunk(rows,
+                        apply(locked.stream().map(OrderStatusRow::orderId).toList(), locked, status, sources));
+            }));
+            result.add(chunk.result());
+            if (chunk.rows().size() < CHUNK_SIZE) {
+                return result.toResult();
+            }
+            last = chunk.rows().getLast();
+        }
+    }
+
+    // Шаги 2 и 3 для заблокированной порции, выполняется в ее транзакции
+    private OrderBulkStatusResult apply(List<UUID> orderIds, List<OrderStatusRow> rows, String status,
+                                        Set<String> sources) {
+        Map<UUID, OrderStatusRow> found = rows.stream()
+                .collect(Collectors.toMap(OrderStatusRow::orderId, Function.identity()));
+        List<UUID> eligible = new ArrayList<>();
+        List<OrderBulkStatusResult.Rejection> rejected = new ArrayList<>();
+        int unchanged = 0;
+        for (UUID orderId : orderIds) {
+            OrderStatusRow row = found.get(orderId);
+            if (row == null) {
+                rejected.add(new OrderBulkStatusResult.Rejection(orderId, null));
+            } else if (sources.contains(row.status())) {
+                eligible.add(orderId);
+            } else if (row.status().equals(status)) {
+                unchanged++;
+            } else {
+                rejected.add(new OrderBulkStatusResult.Rejection(orderId, row.status()));
+            }
+        }
+
+        if (!eligible.isEmpty()) {
+            orderRepository.transitionStatuses(eligible, sources, status);
+            if (OrderStatus.CANCELLED.equals(status)) {
+                stockOutboxService.enqueueReturns(orderItemRepository.findSummariesByOrderIds(eligible));
+            }
+            orderResponseCache.invalidateAll(eligible);
+            eligible.stream().map(found::get).map(OrderStatusRow::userId).distinct()
+                    .forEach(readYourWrites::recordWrite);
+        }
+        return new OrderBulkStatusResult(eligible.size(), unchanged, rejected);
+    }
+
+    private static Set<String> sourcesOf(String status) {
+        validateStatus(status);
+        return OrderStatus.sourcesOf(status);
+    }
+
+    private static void validateStatus(String status) {
+        if (!OrderStatusConverter.isKnown(status)) {
+            throw new InvalidOrderStatusException(status);
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("orders.status.bulk")
+                .description("Заказы массовой смены статуса по результату")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record FilterChunk(List<OrderStatusRow> rows, OrderBulkStatusResult result) {
+    }
+
+    // Сумма результатов порций
+    private final class Accumulator {
+
+        private int updated;
+        private int unchanged;
+        private final List<OrderBulkStatusResult.Rejection> rejected = new ArrayList<>();
+
+        void add(OrderBulkStatusResult chunk) {
+            updated += chunk.updated();
+            unchanged += chunk.unchanged();
+            rejected.addAll(chunk.rejected());
+            updatedCounter.increment(chunk.updated());
+            unchangedCounter.increment(chunk.unchanged());
+            rejectedCounter.increment(chunk.rejected().size());
+        }
+
+        OrderBulkStatusResult toResult() {
+            return new OrderBulkStatusResult(updated, unchanged, List.copyOf(rejected));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.exception.InvalidCursorException;
+import com.github.arseniyryabov.order.repository.OrderSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/* Курсор keyset-пагинации по (created_at, order_id)
+Для клиента это непрозрачная строка base64url, внутри - ключ последнего заказа страницы */
+public record OrderCursor(LocalDateTime createdAt, UUID orderId) {
+
+    public static OrderCursor after(OrderSummary order) {
+        return new OrderCursor(order.createdAt(), order.orderId());
+    }
+
+    public String encode() {
+        String key = createdAt + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf('|');
+            return new OrderCursor(
+                    LocalDateTime.parse(key.substring(0, separator)),
+                    UUID.fromString(key.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.github.arseniyryabov.order.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.arseniyryabov.order.config.IdempotencyProperties;
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+import com.github.arseniyryabov.order.entity.IdempotencyKeyEntity;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.exception.IdempotencyKeyInProgressException;
+import com.github.arseniyryabov.order.exception.IdempotencyKeyReusedException;
+import com.github.arseniyryabov.order.exception.InvalidIdempotencyKeyException;
+import com.github.arseniyryabov.order.integration.client.SingleFlight;
+import com.github.arseniyryabov.order.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/* Идемпотентное создание заказа по заголовку Idempotency-Key (ключ уникален в пределах пользователя)
+1. Кэш завершенных ключей в памяти: частый повтор получает сохраненный ответ без обращения к БД
+2. Одновременные повторы на этом экземпляре ждут результат первого запроса (SingleFlight)
+3. Таблица order_idempotency_keys с уникальным (user_id, idempotency_key) защищает от повторов на других
+   экземплярах: ключ занимается до обращений к user-service и product-service, ответ сохраняется в транзакции
+   заказа. Если заказ не создан, ключ освобождается и повтор выполнится заново
+4. Повтор ключа, который выполняется на другом экземпляре, опрашивает запись до ее срока (expiresAt):
+   получает сохраненный ответ, выполняется сам, если ключ освобожден, или получает 409 по истечении срока
+Повтор ключа с другим телом запроса отклоняется, просроченные ключи удаляет sweepExpired */
+@Slf4j
+@Service
+public class OrderIdempotencyService {
+
+    // Максимальная длина ключа (размер колонки idempotency_key)
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final OrderService orderService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+    private final Cache<Key, Completed> completed;
+    private final SingleFlight<Key, Outcome> inFlight;
+    private final Counter cacheReplays;
+    private final Counter databaseReplays;
+    private final Counter swept;
+
+    public OrderIdempotencyService(OrderService orderService,
+                                   IdempotencyKeyRepository idempotencyKeyRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   ObjectMapper objectMapper,
+                                   IdempotencyProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        // Ответ из кэша не должен пережить сам ключ
+        Duration cacheTtl = properties.getCacheTtl().compareTo(properties.getKeyTtl()) < 0
+                ? properties.getCacheTtl() : properties.getKeyTtl();
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaximumSize())
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "order.idempotency");
+        this.cacheReplays = replayCounter(meterRegistry, "cache");
+        this.databaseReplays = replayCounter(meterRegistry, "database");
+        this.inFlight = new SingleFlight<>(replayCounter(meterRegistry, "in-flight"));
+        this.swept = Counter.builder("orders.idempotency.swept")
+                .description("Удаленные просроченные ключи идемпотентности")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // Результат: ответ и признак того, что он повторен, а не получен созданием нового заказа
+    public record Result(OrderResponse response, boolean replayed) {
+    }
+
+    /* Создание заказа с ключом идемпотентности
+    mapper выполняется в транзакции заказа, его результат сохраняется и отдается повторам */
+    public Result createOrder(String idempotencyKey,
+                              CreateOrderRequest request,
+                              Long userId,
+                              Function<OrderEntity, OrderResponse> mapper) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                    "Ключ идемпотентности должен быть непустым и не длиннее " + MAX_KEY_LENGTH + " символов");
+        }
+        Key key = new Key(userId, idempotencyKey);
+        String requestHash = hash(request);
+
+        Completed cached = completed.getIfPresent(key);
+        if (cached != null) {
+            cacheReplays.increment();
+            return new Result(checkedResponse(cached, requestHash, idempotencyKey), true);
+        }
+
+        boolean[] owner = {false};
+        Outcome outcome = inFlight.execute(key, () -> {
+            owner[0] = true;
+            return execute(key, requestHash, request, mapper);
+        });
+        // Ожидавший повтор получает результат первого запроса, даже если тот создал заказ
+        return new Result(checkedResponse(outcome.completed(), requestHash, idempotencyKey),
+                outcome.replayed() || !owner[0]);
+    }
+
+    // Периодическое удаление просроченных ключей порциями
+    @Scheduled(fixedDelayString = "${order.idempotency.sweep-interval:10m}")
+    public void sweepExpired() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status ->
+                        idempotencyKeyRepository.deleteExpired(LocalDateTime.now(), properties.getSweepBatchSize()));
+                swept.increment(deleted);
+            } while (deleted == properties.getSweepBatchSize());
+        } catch (RuntimeException e) {
+            log.error("Ошибка удаления просроченных ключей идемпотентности: {}", e.getMessage(), e);
+        }
+    }
+
+    private Outcome execute(Key key, String requestHash, CreateOrderRequest request,
+                            Function<OrderEntity, OrderResponse> mapper) {
+        // Срок ключа, занятого другим экземпляром, при первом обнаружении: дольше него повтор не ждет
+        LocalDateTime waitUntil = null;
+        while (true) {
+            // Время занятия ключа хранится с точностью колонки: по нему complete и release узнают свой ключ
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            LocalDateTime lockedUntil = now.plus(properties.getInProgressTimeout());
+            UUID keyId;
+
+            // Чтение в транзакции на запись идет в основную БД, реплика может отставать
+            Optional<IdempotencyKeyEntity> existing = transactionTemplate.execute(status ->
+                    idempotencyKeyRepository.findByUserIdAndIdempotencyKey(key.userId(), key.idempotencyKey()));
+            if (existing.isPresent()) {
+                IdempotencyKeyEntity entity = existing.get();
+                if (entity.getExpiresAt().isAfter(now)) {
+                    if (!IdempotencyKeyEntity.Status.COMPLETED.equals(entity.getStatus())) {
+                        if (!entity.getRequestHash().equals(requestHash)) {
+                            throw new IdempotencyKeyReusedException(key.idempotencyKey());
+                        }
+                        waitUntil = waitUntil != null ? waitUntil : entity.getExpiresAt();
+                        awaitInProgress(key, waitUntil);
+                        continue;
+                    }
+                    Completed stored = new Completed(entity.getRequestHash(), readResponse(entity.getResponse()));
+                    completed.put(key, stored);
+                    databaseReplays.increment();
+                    return new Outcome(stored, true);
+                }
+                if (waitUntil != null) {
+                    // Срок ключа истек, пока повтор его ждал: забирать ключ будет следующий повтор клиента
+                    throw new IdempotencyKeyInProgressException(key.idempotencyKey());
+                }
+                // Ключ просрочен, но еще не удален: брошенный запрос или истекший ответ
+                keyId = entity.getKeyId();
+                Integer taken = transactionTemplate.execute(status ->
+                        idempotencyKeyRepository.takeOver(entity.getKeyId(), requestHash, now, lockedUntil));
+                if (taken == null || taken == 0) {
+                    // Ключ забрал конкурент: дальше как с ключом, занятым другим экземпляром
+                    continue;
+                }
+            } else {
+                keyId = insert(key, requestHash, now, lockedUntil);
+                if (keyId == null) {
+                    continue;
+                }
+            }
+            return createOrder(key, keyId, now, requestHash, request, mapper);
+        }
+    }
+
+    // Создание заказа по занятому ключу: ответ сохраняется в транзакции заказа, если ключ все еще занят этим запросом
+    private Outcome createOrder(Key key, UUID keyId, LocalDateTime takenAt, String requestHash,
+                                CreateOrderRequest request, Function<OrderEntity, OrderResponse> mapper) {
+        try {
+            OrderResponse[] response = new OrderResponse[1];
+            orderService.createOrder(request, key.userId(), savedOrder -> {
+                response[0] = mapper.apply(savedOrder);
+                int stored = idempotencyKeyRepository.complete(keyId, requestHash, takenAt, savedOrder.getOrderId(),
+                        writeResponse(response[0]), LocalDateTime.now().plus(properties.getKeyTtl()));
+                if (stored == 0) {
+                    // Ключ просрочен и забран повтором, который создаст заказ сам: этот заказ откатывается
+                    throw new IdempotencyKeyInProgressException(key.idempotencyKey());
+                }
+            });
+            Completed stored = new Completed(requestHash, response[0]);
+            completed.put(key, stored);
+            return new Outcome(stored, false);
+        } catch (RuntimeException e) {
+            release(keyId, takenAt, e);
+            throw e;
+        }
+    }
+
+    // Ожидание ключа, занятого на другом экземпляре: после срока - 409, клиент повторит позже
+    private void awaitInProgress(Key key, LocalDateTime waitUntil) {
+        Duration left = Duration.between(LocalDateTime.now(), waitUntil);
+        if (!left.isPositive()) {
+            throw new IdempotencyKeyInProgressException(key.idempotencyKey());
+        }
+        Duration poll = properties.getInProgressPollInterval();
+        try {
+            Thread.sleep(left.compareTo(poll) < 0 ? left : poll);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException(key.idempotencyKey());
+        }
+    }
+
+    // Занятие ключа, вставку конкурента с тем же ключом отклоняет уникальное ограничение (null - ключ уже есть)
+    private UUID insert(Key key, String requestHash, LocalDateTime now, LocalDateTime lockedUntil) {
+        IdempotencyKeyEntity entity = new IdempotencyKeyEntity();
+        entity.setUserId(key.userId());
+        entity.setIdempotencyKey(key.idempotencyKey());
+        entity.setRequestHash(requestHash);
+        entity.setStatus(IdempotencyKeyEntity.Status.IN_PROGRESS);
+        entity.setCreatedAt(now);
+        entity.setExpiresAt(lockedUntil);
+        try {
+            return idempotencyKeyRepository.saveAndFlush(entity).getKeyId();
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    private void release(UUID keyId, LocalDateTime takenAt, RuntimeException cause) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.release(keyId, takenAt));
+        } catch (RuntimeException e) {
+            // Ключ освободится по истечении inProgressTimeout
+            cause.addSuppressed(e);
+            log.warn("Не удалось освободить ключ идемпотентности {}: {}", keyId, e.getMessage());
+        }
+    }
+
+    private static OrderResponse checkedResponse(Completed completed, String requestHash, String idempotencyKey) {
+        if (!completed.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+        return completed.response();
+    }
+
+    // SHA-256 тела запроса в каноническом JSON
+    private String hash(CreateOrderRequest request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Не удалось вычислить хэш запроса", e);
+        }
+    }
+
+    private String writeResponse(OrderResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сохранить ответ по ключу идемпотентности", e);
+        }
+    }
+
+    private OrderResponse readResponse(String response) {
+        try {
+            return objectMapper.readValue(response, OrderResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать сохраненный ответ по ключу идемпотентности", e);
+        }
+    }
+
+    private static Counter replayCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("orders.idempotency.replays")
+                .description("Повторы POST /orders, получившие сохраненный ответ")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    private record Key(Long userId, String idempotencyKey) {
+    }
+
+    private record Completed(String requestHash, OrderResponse response) {
+    }
+
+    private record Outcome(Completed completed, boolean replayed) {
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.OrderIntakeProperties;
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.exception.OrderIntakeOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/* Асинхронный прием заказов (POST /orders с заголовком Prefer: respond-async)
+1. Запрос проверяется контроллером, заказ сохраняется в PENDING, клиент сразу получает 202 с orderId
+2. Ограниченный пул воркеров проверяет пользователя, рассчитывает заказ и резервирует товары (запись outbox),
+   заказ переходит в CREATED или в FAILED с причиной. Результат клиент получает через GET /orders/{id}
+3. Очередь ограничена queueCapacity: при заполнении прием отклоняется (503) до сохранения заказа
+Заказы, оставшиеся в PENDING дольше retryAfter (падение экземпляра, недоступность сервисов), снова ставятся
+в очередь recoverPending, дольше maxPendingAge - переводятся в FAILED. Повторная обработка безопасна:
+заказ меняется под блокировкой строки и только из PENDING */
+@Slf4j
+@Component
+public class OrderIntakePipeline {
+
+    private final OrderService orderService;
+    private final OrderIntakeProperties properties;
+    private final ThreadPoolExecutor workers;
+    // Места в очереди и у воркеров, занимается до сохранения заказа и освобождается после обработки
+    private final Semaphore capacity;
+    // Заказы этого экземпляра в очереди или в обработке, восстановление не ставит их повторно
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+    private final Timer queueTime;
+    private final Timer processingTime;
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    public OrderIntakePipeline(OrderService orderService,
+                               OrderIntakeProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.workers = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("order-intake-", 0).factory());
+        this.capacity = new Semaphore(properties.getWorkers() + properties.getQueueCapacity());
+
+        Gauge.builder("orders.intake.queue.depth", workers, executor -> executor.getQueue().size())
+                .description("Принятые заказы, ожидающие воркера")
+                .register(meterRegistry);
+        Gauge.builder("orders.intake.workers.busy", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Воркеры, обрабатывающие заказ")
+                .register(meterRegistry);
+        Gauge.builder("orders.intake.workers.utilization", workers,
+                        executor -> (double) executor.getActiveCount() / executor.getMaximumPoolSize())
+                .description("Доля занятых воркеров")
+                .register(meterRegistry);
+        this.queueTime = Timer.builder("orders.intake.queue.time")
+                .description("Время от приема заказа до начала его обработки")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.processingTime = Timer.builder("orders.intake.processing")
+                .description("Время обработки принятого заказа воркером")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("orders.intake.rejected")
+                .description("Заказы, не принятые из-за заполненной очереди")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // Прием заказа: сохранение в PENDING и постановка в очередь, при заполненной очереди - отказ
+    public OrderEntity accept(CreateOrderRequest request, Long userId) {
+        if (!capacity.tryAcquire()) {
+            rejected.increment();
+            throw new OrderIntakeOverloadedException();
+        }
+        OrderEntity order;
+        try {
+            order = orderService.createPendingOrder(request, userId);
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+        enqueue(order.getOrderId());
+        return order;
+    }
+
+    /* Восстановление: заказы, ожидающие дольше maxPendingAge, переводятся в FAILED,
+    ожидающие дольше retryAfter снова ставятся в очередь, пока в ней есть места */
+    @Scheduled(fixedDelayString = "${order.async-intake.recovery-interval:30s}")
+    public void recoverPending() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int expired = orderService.failPendingOrdersCreatedBefore(now.minus(properties.getMaxPendingAge()),
+                    "Заказ не обработан за " + properties.getMaxPendingAge());
+            if (expired > 0) {
+                outcome("expired").increment(expired);
+                log.warn("Переведено в FAILED заказов, не обработанных за {}: {}", properties.getMaxPendingAge(), expired);
+            }
+            for (UUID orderId : orderService.findPendingOrderIdsCreatedBefore(
+                    now.minus(properties.getRetryAfter()), properties.getRecoveryBatchSize())) {
+                if (queued.contains(orderId)) {
+                    continue;
+                }
+                if (!capacity.tryAcquire()) {
+                    break;
+                }
+                enqueue(orderId);
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка восстановления принятых заказов: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            // Заказы из очереди остаются в PENDING и будут обработаны после перезапуска
+            log.warn("Не обработано принятых заказов при остановке: {}", workers.shutdownNow().size());
+        }
+    }
+
+    // Место в очереди уже занято вызывающим
+    private void enqueue(UUID orderId) {
+        if (!queued.add(orderId)) {
+            capacity.release();
+            return;
+        }
+        long enqueuedAt = System.nanoTime();
+        try {
+            workers.execute(() -> process(orderId, enqueuedAt));
+        } catch (RuntimeException e) {
+            // Пул остановлен: заказ остается в PENDING до восстановления
+            queued.remove(orderId);
+            capacity.release();
+            log.warn("Заказ {} не поставлен в очередь обработки: {}", orderId, e.getMessage());
+        }
+    }
+
+    private void process(UUID orderId, long enqueuedAt) {
+        queueTime.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+        try {
+            String status = processingTime.record(() -> orderService.completePendingOrder(orderId));
+            outcome(status != null ? status.toLowerCase() : "missing").increment();
+        } catch (RuntimeException e) {
+            // Заказ остается в PENDING, recoverPending поставит его в очередь снова
+            outcome("retry").increment();
+            log.warn("Обработка заказа {} отложена: {}", orderId, e.getMessage());
+        } finally {
+            queued.remove(orderId);
+            capacity.release();
+        }
+    }
+
+    private Counter outcome(String outcome) {
+        return outcomes.computeIfAbsent(outcome, key -> Counter.builder("orders.intake.outcomes")
+                .description("Результаты обработки принятых заказов")
+                .tag("outcome", key)
+                .register(meterRegistry));
+    }
+}
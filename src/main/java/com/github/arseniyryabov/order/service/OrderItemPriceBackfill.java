@@ -0,0 +1,112 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.OrderItemBackfillProperties;
+import com.github.arseniyryabov.order.entity.OrderItemEntity;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.repository.OrderItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/* Заполнение unit_price, product_name и line_total у позиций, созданных до появления снимка цены
+Позиции обходятся порциями по order_item_id, товары порции запрашиваются одним вызовом POST /products/batch.
+Исторических цен product-service не хранит, поэтому берется текущая цена товара.
+Позиции удаленных товаров остаются без снимка. Запускается в отдельном потоке и не задерживает старт */
+@Slf4j
+@Component
+public class OrderItemPriceBackfill implements ApplicationRunner {
+
+    private static final UUID MIN_UUID = new UUID(0, 0);
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductServiceClient productServiceClient;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderItemBackfillProperties properties;
+
+    public OrderItemPriceBackfill(OrderItemRepository orderItemRepository,
+                                  ProductServiceClient productServiceClient,
+                                  TransactionTemplate transactionTemplate,
+                                  OrderItemBackfillProperties properties) {
+        this.orderItemRepository = orderItemRepository;
+        this.productServiceClient = productServiceClient;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread.ofVirtual().name("order-item-backfill").start(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                log.error("Заполнение снимка цены позиций прервано, будет продолжено при следующем запуске", e);
+            }
+        });
+    }
+
+    // Возвращает число заполненных позиций
+    public int backfill() {
+        int filled = 0;
+        int skipped = 0;
+        UUID after = MIN_UUID;
+        while (true) {
+            ChunkResult chunk = backfillChunk(after);
+            if (chunk == null) {
+                break;
+            }
+            filled += chunk.filled();
+            skipped += chunk.skipped();
+            after = chunk.lastOrderItemId();
+        }
+        log.info("Снимок цены заполнен у {} позиций, пропущено позиций без товара: {}", filled, skipped);
+        return filled;
+    }
+
+    /* Одна порция: позиции читаются короткой транзакцией, товары запрашиваются вне транзакции,
+    чтобы соединение с БД и блокировки не удерживались на время удаленного вызова с повторами.
+    Снимок применяется отдельной транзакцией, изменения отправляются пачкой UPDATE при фиксации.
+    Позиции, заполненные за это время другим путем, не перезаписываются */
+    private ChunkResult backfillChunk(UUID after) {
+        List<OrderItemEntity> items = transactionTemplate.execute(status ->
+                orderItemRepository.findWithoutPriceAfter(after, Limit.of(properties.getChunkSize())));
+        if (items == null || items.isEmpty()) {
+            return null;
+        }
+        List<UUID> productIds = items.stream().map(OrderItemEntity::getProductId).distinct().toList();
+        Map<UUID, ProductResponse> products = productServiceClient.getProductsByIds(productIds).stream()
+                .filter(product -> product.getPrice() != null)
+                .collect(Collectors.toMap(ProductResponse::getProductId, Function.identity(), (a, b) -> a));
+        List<UUID> priced = items.stream()
+                .filter(item -> products.containsKey(item.getProductId()))
+                .map(OrderItemEntity::getOrderItemId)
+                .toList();
+
+        int filled = priced.isEmpty() ? 0 : transactionTemplate.execute(status -> {
+            int applied = 0;
+            for (OrderItemEntity item : orderItemRepository.findAllById(priced)) {
+                if (item.getUnitPrice() == null) {
+                    OrderService.applyPriceSnapshot(item, products.get(item.getProductId()));
+                    applied++;
+                }
+            }
+            return applied;
+        });
+        return new ChunkResult(filled, items.size() - priced.size(), items.getLast().getOrderItemId());
+    }
+
+    private record ChunkResult(int filled, int skipped, UUID lastOrderItemId) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+
+import java.util.List;
+
+// Страница заказов и курсор следующей страницы (null, если страница последняя)
+public record OrderPage(List<OrderResponse> orders, String nextCursor) {
+}
@@ -0,0 +1,121 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.exception.InsufficientStockException;
+import com.github.arseniyryabov.order.exception.ProductNotFoundException;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/* Этап проверки и расчета стоимости заказа
+Все товары корзины запрашиваются одним вызовом POST /products/batch,
+дальше проверка наличия, поиск отсутствующих товаров и расчет суммы идут по карте в памяти */
+@Service
+@RequiredArgsConstructor
+public class OrderPricingService {
+
+    private final ProductServiceClient productServiceClient;
+
+    // Проверка товаров и расчет общей суммы заказа
+    public PricedOrder price(List<CreateOrderRequest.OrderItemRequest> items) {
+        Map<UUID, Integer> requestedQuantities = requestedQuantities(items);
+        Map<UUID, ProductResponse> products = fetchProducts(new ArrayList<>(requestedQuantities.keySet()));
+        return price(items, requestedQuantities, products, availableStock(products));
+    }
+
+    /* Проверка и расчет партии заказов
+    Товары всех заказов запрашиваются одним вызовом по объединенному списку без повторов.
+    Заказы резервируют остаток из полученного снимка по порядку, поэтому партия целиком не может
+    запросить больше, чем есть на складе. Ошибка одного заказа возвращается в его результате */
+    public List<PricingResult> priceAll(List<List<CreateOrderRequest.OrderItemRequest>> orders) {
+        Set<UUID> productIds = new LinkedHashSet<>();
+        orders.forEach(items -> items.forEach(item -> productIds.add(item.getProductId())));
+        Map<UUID, ProductResponse> products = fetchProducts(new ArrayList<>(productIds));
+        Map<UUID, Integer> remainingStock = availableStock(products);
+
+        List<PricingResult> results = new ArrayList<>(orders.size());
+        for (List<CreateOrderRequest.OrderItemRequest> items : orders) {
+            Map<UUID, Integer> requestedQuantities = requestedQuantities(items);
+            try {
+                PricedOrder pricedOrder = price(items, requestedQuantities, products, remainingStock);
+                requestedQuantities.forEach((productId, quantity) ->
+                        remainingStock.merge(productId, -quantity, Integer::sum));
+                results.add(new PricingResult(pricedOrder, null));
+            } catch (ProductNotFoundException | InsufficientStockException e) {
+                results.add(new PricingResult(null, e));
+            }
+        }
+        return results;
+    }
+
+    private PricedOrder price(List<CreateOrderRequest.OrderItemRequest> items,
+                              Map<UUID, Integer> requestedQuantities,
+                              Map<UUID, ProductResponse> products,
+                              Map<UUID, Integer> availableStock) {
+
+        // Проверка наличия всех товаров в порядке позиций заказа
+        requestedQuantities.forEach((productId, requestedQuantity) -> {
+            if (!products.containsKey(productId)) {
+                throw new ProductNotFoundException(productId);
+            }
+            int available = availableStock.get(productId);
+            if (available < requestedQuantity) {
+                throw new InsufficientStockException(productId, available, requestedQuantity);
+            }
+        });
+
+        BigDecimal totalAmount = items.stream()
+                .map(item -> products.get(item.getProductId()).getPrice()
+                        .multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        return new PricedOrder(products, totalAmount);
+    }
+
+    // Суммарное количество по каждому товару (один товар может встречаться в нескольких позициях)
+    private static Map<UUID, Integer> requestedQuantities(List<CreateOrderRequest.OrderItemRequest> items) {
+        Map<UUID, Integer> requestedQuantities = new LinkedHashMap<>();
+        items.forEach(item -> requestedQuantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+        return requestedQuantities;
+    }
+
+    private static Map<UUID, Integer> availableStock(Map<UUID, ProductResponse> products) {
+        Map<UUID, Integer> stock = new HashMap<>();
+        products.forEach((productId, product) ->
+                stock.put(productId, product.getStockQuantity() != null ? product.getStockQuantity() : 0));
+        return stock;
+    }
+
+    /* Получение всех товаров корзины одним запросом, товары без ответа или без цены в карту не попадают
+    и отклоняются как отсутствующие. Результат решает, можно ли оформить заказ, поэтому в строгом режиме
+    кэш каталога не используется */
+    private Map<UUID, ProductResponse> fetchProducts(List<UUID> productIds) {
+        List<ProductResponse> response = productServiceClient.getProductsForStockCheck(productIds);
+        Map<UUID, ProductResponse> products = new HashMap<>();
+        if (response != null) {
+            response.stream()
+                    .filter(product -> product.getPrice() != null)
+                    .forEach(product -> products.put(product.getProductId(), product));
+        }
+        return products;
+    }
+
+    // Результат этапа: данные товаров и итоговая сумма
+    public record PricedOrder(Map<UUID, ProductResponse> products, BigDecimal totalAmount) {
+    }
+
+    // Результат проверки одного заказа партии: либо рассчитанный заказ, либо причина отказа
+    public record PricingResult(PricedOrder pricedOrder, RuntimeException error) {
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.OrderCacheProperties;
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/* Кэш готовых ответов GET /orders/{orderId} по orderId
+Заполняется при чтении и при создании заказа, изменения заказа удаляют запись после фиксации транзакции.
+Загрузка при промахе выполняется под блокировкой ключа в Caffeine, удаление того же ключа ждет ее окончания,
+поэтому ответ, прочитанный до изменения, не остается в кэше после него.
+Часть попаданий (staleCheckRate) сверяется с основной БД, расхождение заменяет запись и учитывается в метрике */
+@Slf4j
+@Component
+public class OrderResponseCache {
+
+    private final OrderCacheProperties.ById properties;
+    private final boolean secondLevel;
+    private final Cache<UUID, OrderResponse> responses;
+    private final Counter freshChecks;
+    private final Counter staleChecks;
+
+    public OrderResponseCache(OrderCacheProperties cacheProperties, MeterRegistry meterRegistry) {
+        this.properties = cacheProperties.getById();
+        this.secondLevel = cacheProperties.getSecondLevel().isEnabled();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "orders.by-id");
+        Gauge.builder("cache.hit.ratio", responses, cache -> cache.stats().hitRate())
+                .description("Доля попаданий в кэш с момента запуска")
+                .tag("cache", "orders.by-id")
+                .register(meterRegistry);
+        this.freshChecks = staleChecksCounter(meterRegistry, "fresh");
+        this.staleChecks = staleChecksCounter(meterRegistry, "stale");
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // Включен кэш второго уровня Hibernate: заказ выгоднее читать по ключу (findById), а не запросом
+    public boolean isSecondLevelEnabled() {
+        return secondLevel;
+    }
+
+    // Ответ из кэша или из loader (null - заказа нет, не кэшируется)
+    public OrderResponse get(UUID orderId, Function<UUID, OrderResponse> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(orderId);
+        }
+        boolean[] loaded = {false};
+        OrderResponse response = responses.get(orderId, id -> {
+            loaded[0] = true;
+            return loader.apply(id);
+        });
+        if (response == null || loaded[0] || !shouldCheck()) {
+            return response;
+        }
+        OrderResponse current = loader.apply(orderId);
+        if (isSameState(response, current)) {
+            freshChecks.increment();
+            return response;
+        }
+        staleChecks.increment();
+        log.warn("Устаревший ответ в кэше заказа {}: статус {}, в БД {}", orderId, response.getStatus(),
+                current != null ? current.getStatus() : null);
+        responses.invalidate(orderId);
+        return current;
+    }
+
+    // Ответ из кэша без загрузки (null - промах или кэш выключен)
+    public OrderResponse peek(UUID orderId) {
+        return properties.isEnabled() ? responses.getIfPresent(orderId) : null;
+    }
+
+    public void put(OrderResponse response) {
+        if (properties.isEnabled()) {
+            responses.put(response.getOrderId(), response);
+        }
+    }
+
+    /* Удаление сейчас и после фиксации текущей транзакции: до фиксации запись могла заполниться старыми данными
+    Вызывается внутри транзакции изменения, иначе удаление после фиксации не регистрируется */
+    public void invalidate(UUID orderId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        responses.invalidate(orderId);
+        afterCommit(() -> responses.invalidate(orderId));
+    }
+
+    // То же для партии заказов (массовая смена статуса)
+    public void invalidateAll(Collection<UUID> orderIds) {
+        if (!properties.isEnabled() || orderIds.isEmpty()) {
+            return;
+        }
+        List<UUID> keys = List.copyOf(orderIds);
+        responses.invalidateAll(keys);
+        afterCommit(() -> responses.invalidateAll(keys));
+    }
+
+    // Удаление ответов по условию (массовые изменения, у которых нет списка заказов), также и после фиксации
+    public void invalidateIf(Predicate<OrderResponse> condition) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        responses.asMap().values().removeIf(condition);
+        afterCommit(() -> responses.asMap().values().removeIf(condition));
+    }
+
+    // Изменяемая часть заказа: статус и причина отказа, сумма меняется только при обработке PENDING
+    private static boolean isSameState(OrderResponse cached, OrderResponse current) {
+        return current != null
+                && Objects.equals(cached.getStatus(), current.getStatus())
+                && Objects.equals(cached.getFailureReason(), current.getFailureReason())
+                && cached.getTotalAmount().compareTo(current.getTotalAmount()) == 0;
+    }
+
+    private boolean shouldCheck() {
+        double rate = properties.getStaleCheckRate();
+        return rate > 0 && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static Counter staleChecksCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("orders.by-id.cache.stale.checks")
+                .description("Сверки попаданий в кэш заказов с основной БД")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
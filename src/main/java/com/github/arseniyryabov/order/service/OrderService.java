@@ -1,211 +1,652 @@
 package com.github.arseniyryabov.order.service;
 
+import com.github.arseniyryabov.order.config.ReadYourWrites;
 import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
 import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderItemEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.entity.OrderStatusConverter;
 import com.github.arseniyryabov.order.exception.InsufficientStockException;
+import com.github.arseniyryabov.order.exception.InvalidOrderStatusException;
+import com.github.arseniyryabov.order.exception.InvalidStatusTransitionException;
 import com.github.arseniyryabov.order.exception.ProductNotFoundException;
-import com.github.arseniyryabov.order.entity.OrderItemEntity;
 import com.github.arseniyryabov.order.exception.UserNotFoundException;
 import com.github.arseniyryabov.order.integration.ProductResponse;
 
-import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
 import com.github.arseniyryabov.order.integration.client.UserServiceClient;
 import com.github.arseniyryabov.order.repository.OrderItemRepository;
+import com.github.arseniyryabov.order.repository.OrderItemSummary;
 import com.github.arseniyryabov.order.repository.OrderRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.arseniyryabov.order.repository.OrderSummary;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // Сервис для работы с заказами
 @Service
-@RequiredArgsConstructor
 public class  OrderService {
 
+    // Максимальный размер страницы списков заказов
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Максимальное число заказов в одном запросе POST /orders/batch
+    public static final int MAX_CREATE_BATCH_SIZE = 1000;
+
+    // Сколько заказов вставляется одной транзакцией при создании партии
+    private static final int CREATE_BATCH_CHUNK_SIZE = 100;
+
+    // Размер порции потоковой выдачи (совпадает с fetch size курсора)
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    // Статусы заказа, который еще можно не выполнять, если товар не удалось списать
+    private static final Set<String> STOCK_REJECTION_SOURCES = Set.of(OrderStatus.CREATED, OrderStatus.PROCESSING);
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final UserServiceClient userServiceClient;
-    private final ProductServiceClient productServiceClient;
+    private final OrderPricingService orderPricingService;
+    private final ParallelLookups parallelLookups;
+    private final StockOutboxService stockOutboxService;
+    private final TransactionTemplate transactionTemplate;
+    // Транзакции только на чтение: при включенных репликах выполняются на реплике
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ReadYourWrites readYourWrites;
+    private final OrderResponseCache orderResponseCache;
+    private final Timer createOrderTransactionTimer;
+    private final DistributionSummary orderItemsSummary;
+    private final DistributionSummary orderTotalSummary;
+
+    public OrderService(OrderRepository orderRepository,
+                        OrderItemRepository orderItemRepository,
+                        UserServiceClient userServiceClient,
+                        OrderPricingService orderPricingService,
+                        ParallelLookups parallelLookups,
+                        StockOutboxService stockOutboxService,
+                        TransactionTemplate transactionTemplate,
+                        ReadYourWrites readYourWrites,
+                        OrderResponseCache orderResponseCache,
+                        MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.userServiceClient = userServiceClient;
+        this.orderPricingService = orderPricingService;
+        this.parallelLookups = parallelLookups;
+        this.stockOutboxService = stockOutboxService;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.readYourWrites = readYourWrites;
+        this.orderResponseCache = orderResponseCache;
+        // Время транзакции вставки заказа, т.е. время удержания соединения из пула на один заказ
+        this.createOrderTransactionTimer = Timer.builder("orders.create.transaction")
+                .description("Время транзакции сохранения нового заказа")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        // Распределения размера и суммы созданных заказов, по ним видно, какие заказы попадают в хвост задержек
+        this.orderItemsSummary = DistributionSummary.builder("orders.items")
+                .description("Число позиций в созданном заказе")
+                .baseUnit("items")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1_000.0)
+                .register(meterRegistry);
+        this.orderTotalSummary = DistributionSummary.builder("orders.total.amount")
+                .description("Сумма созданного заказа")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
-    // Создание нового заказа
-    @Transactional
+    /* Создание нового заказа в два этапа
+    1. Проверка пользователя и расчет стоимости по данным product-service (без транзакции)
+    2. Короткая транзакция, в которой вставляются заказ, его позиции и записи outbox на списание товаров.
+       Списание со склада выполняет StockOutboxRelay после фиксации транзакции */
     public OrderEntity createOrder(CreateOrderRequest request, Long userId) {
+        return createOrder(request, userId, savedOrder -> { });
+    }
+
+    // То же, inTransaction выполняется в транзакции вставки заказа и фиксируется вместе с ним
+    public OrderEntity createOrder(CreateOrderRequest request, Long userId, Consumer<OrderEntity> inTransaction) {
 
-        // Проверка существования пользователя
-        validateUserExistenceOrThrow(userId);
+        // Проверка пользователя и товаров выполняются параллельно, первая ошибка отменяет вторую проверку
+        OrderPricingService.PricedOrder pricedOrder;
+        try (ParallelLookups.Scope scope = parallelLookups.open()) {
+            scope.execute(() -> validateUserExistenceOrThrow(userId));
+            Future<OrderPricingService.PricedOrder> pricing =
+                    scope.fork(() -> orderPricingService.price(request.getItems()));
+            scope.join();
+            pricedOrder = pricing.resultNow();
+        }
 
-        // Проверка наличия всех товаров перед расчетом суммы
-        validateProductsAvailability(request.getItems());
+        OrderEntity order = buildOrder(request, userId, pricedOrder);
 
-        // Расчет общей суммы заказа
-        BigDecimal totalAmount = calculateTotalAmount(request.getItems());
+        // Заказ, позиции и outbox сохраняются в одной транзакции, соединение с БД удерживается только на время вставки
+        OrderEntity savedOrder = createOrderTransactionTimer.record(() ->
+                transactionTemplate.execute(status -> {
+                    OrderEntity saved = orderRepository.save(order);
+                    stockOutboxService.enqueueDecrease(saved);
+                    inTransaction.accept(saved);
+                    return saved;
+                }));
+        recordCreated(savedOrder);
+        // Клиенты опрашивают новый заказ через GET /orders/{orderId}, ответ кэшируется сразу
+        orderResponseCache.put(toResponse(savedOrder));
+        return savedOrder;
+    }
 
-        // Создание объекта заказа
+    // Прием заказа без обращений к внешним сервисам: заказ сохраняется в PENDING без цен
+    public OrderEntity createPendingOrder(CreateOrderRequest request, Long userId) {
         OrderEntity order = new OrderEntity();
         order.setUserId(userId);
         order.setAddress(request.getAddress());
         order.setDeliveryMethod(request.getDeliveryMethod());
-        order.setStatus(OrderStatus.CREATED);
-        order.setTotalAmount(totalAmount);
-        order.setCreatedAt(LocalDateTime.now());
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalAmount(BigDecimal.ZERO);
+        order.setCreatedAt(now());
+        order.setItems(request.getItems().stream()
+                .map(itemRequest -> {
+                    OrderItemEntity item = new OrderItemEntity();
+                    item.setOrder(order);
+                    item.setProductId(itemRequest.getProductId());
+                    item.setQuantity(itemRequest.getQuantity());
+                    return item;
+                })
+                .collect(Collectors.toList()));
+        OrderEntity saved = transactionTemplate.execute(status -> orderRepository.save(order));
+        readYourWrites.recordWrite(userId);
+        orderResponseCache.put(toResponse(saved));
+        return saved;
+    }
 
-        // Сохранение заказа, чтобы получить ID
-        order = orderRepository.save(order);
+    /* Обработка заказа, принятого в PENDING, теми же этапами, что и createOrder
+    1. Проверка пользователя и расчет стоимости (без транзакции)
+    2. Короткая транзакция: заказ блокируется, получает снимок цен и статус CREATED, в outbox пишется списание
+    Если пользователь или товар не найден или товара не хватает, заказ переводится в FAILED с причиной.
+    Ошибки нижестоящих сервисов пробрасываются, заказ остается в PENDING для повторной обработки.
+    Возвращает итоговый статус заказа (заказ, уже обработанный другим воркером, не меняется) */
+    public String completePendingOrder(UUID orderId) {
+        // Чтение в транзакции на запись идет в основную БД: только что принятого заказа может еще не быть на реплике
+        OrderEntity pending = transactionTemplate.execute(status -> orderRepository.findByOrderId(orderId))
+                .orElseThrow(() -> new RuntimeException("Заказ не найден"));
+        if (!OrderStatus.PENDING.equals(pending.getStatus())) {
+            return pending.getStatus();
+        }
+        List<CreateOrderRequest.OrderItemRequest> items = pending.getItems().stream()
+                .map(item -> {
+                    CreateOrderRequest.OrderItemRequest itemRequest = new CreateOrderRequest.OrderItemRequest();
+                    itemRequest.setProductId(item.getProductId());
+                    itemRequest.setQuantity(item.getQuantity());
+                    return itemRequest;
+                })
+                .toList();
 
-        // Создание элементов заказа
-        List<OrderItemEntity> items = createOrderItems(order, request.getItems());
-        order.setItems(items);
+        OrderPricingService.PricedOrder pricedOrder;
+        try (ParallelLookups.Scope scope = parallelLookups.open()) {
+            scope.execute(() -> validateUserExistenceOrThrow(pending.getUserId()));
+            Future<OrderPricingService.PricedOrder> pricing = scope.fork(() -> orderPricingService.price(items));
+            scope.join();
+            pricedOrder = pricing.resultNow();
+        } catch (UserNotFoundException | ProductNotFoundException | InsufficientStockException e) {
+            return failPendingOrder(orderId, e.getMessage()) ? OrderStatus.FAILED : currentStatus(orderId);
+        }
 
-        // Уменьшение количества товаров на складе
-        decreaseProductsStock(request.getItems());
+        OrderEntity created = createOrderTransactionTimer.record(() ->
+                transactionTemplate.execute(status -> {
+                    OrderEntity order = orderRepository.findForUpdate(orderId).orElseThrow();
+                    if (!OrderStatus.PENDING.equals(order.getStatus())) {
+                        return null;
+                    }
+                    order.getItems().forEach(item ->
+                            applyPriceSnapshot(item, pricedOrder.products().get(item.getProductId())));
+                    order.setTotalAmount(pricedOrder.totalAmount());
+                    order.setStatus(OrderStatus.CREATED);
+                    stockOutboxService.enqueueDecrease(order);
+                    orderResponseCache.invalidate(orderId);
+                    return order;
+                }));
+        if (created == null) {
+            return currentStatus(orderId);
+        }
+        recordCreated(created);
+        return OrderStatus.CREATED;
+    }
 
-        // Сохранение заказа с элементами
-        return orderRepository.save(order);
+    // Перевод заказа из PENDING в FAILED, false - заказ уже не в PENDING
+    public boolean failPendingOrder(UUID orderId, String reason) {
+        Integer updated = transactionTemplate.execute(status -> {
+            int rows = orderRepository.failPending(orderId, OrderStatus.PENDING, OrderStatus.FAILED, truncate(reason));
+            if (rows > 0) {
+                orderResponseCache.invalidate(orderId);
+            }
+            return rows;
+        });
+        return updated != null && updated > 0;
     }
 
-    // Получение заказов пользователя
-    public List<OrderEntity> getUserOrders(Long userId) {
+    /* Компенсация списания товара, окончательно не прошедшего в product-service (отказ или исчерпаны попытки).
+    Вызывается StockOutboxRelay в транзакции фиксации результатов: еще не отправленный заказ переводится
+    в FAILED, уже списанные по нему товары возвращаются на склад, неотправленные списания отменяются.
+    false - заказ уже в другом статусе (отправлен, отменен) и не меняется */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean failOrderOnStockRejection(UUID orderId, String reason) {
+        int rows = orderRepository.failFrom(orderId, STOCK_REJECTION_SOURCES, OrderStatus.FAILED, truncate(reason));
+        if (rows == 0) {
+            return false;
+        }
+        stockOutboxService.compensateDecreases(orderId);
+        orderResponseCache.invalidate(orderId);
+        return true;
+    }
 
-        // Проверка существования пользователя (если не найден, будет 404)
-        userServiceClient.getUserById(userId);
+    // Перевод в FAILED заказов, ожидающих обработки с момента раньше createdBefore
+    public int failPendingOrdersCreatedBefore(LocalDateTime createdBefore, String reason) {
+        Integer updated = transactionTemplate.execute(status -> {
+            int rows = orderRepository.failPendingCreatedBefore(
+                    OrderStatus.PENDING, OrderStatus.FAILED, truncate(reason), createdBefore);
+            if (rows > 0) {
+                orderResponseCache.invalidateIf(order -> OrderStatus.PENDING.equals(order.getStatus())
+                        && order.getCreatedAt().isBefore(createdBefore));
+            }
+            return rows;
+        });
+        return updated != null ? updated : 0;
+    }
 
-        return orderRepository.findByUserId(userId);
+    // Идентификаторы заказов, ожидающих обработки с момента раньше createdBefore
+    public List<UUID> findPendingOrderIdsCreatedBefore(LocalDateTime createdBefore, int limit) {
+        return orderRepository.findIdsByStatusCreatedBefore(OrderStatus.PENDING, createdBefore, Limit.of(limit));
     }
 
-    // Получение конкретного заказа пользователя
-    public OrderEntity getOrderById(UUID orderId, Long userId) {
-        // Проверка существования пользователя
-        try {
-            userServiceClient.getUserById(userId);
-        } catch (UserNotFoundException e) {
-            throw e;  // Пробрасывается исключение дальше для обработки в @RestControllerAdvice
+    private String currentStatus(UUID orderId) {
+        return transactionTemplate.execute(status ->
+                orderRepository.findById(orderId).map(OrderEntity::getStatus).orElse(null));
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
         }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
 
-        return orderRepository.findByOrderIdAndUserId(orderId, userId)
-                .orElseThrow(() -> new RuntimeException("Заказ не найден"));
+    /* Создание партии заказов одного пользователя
+    1. Пользователь проверяется один раз, товары всех заказов запрашиваются одним вызовом
+    2. Заказы вставляются порциями по CREATE_BATCH_CHUNK_SIZE в отдельных транзакциях (JDBC batch).
+       Если порция не сохранилась, ее заказы сохраняются по одному, чтобы ошибка одного заказа
+       не отменила остальные. Результат возвращается по каждому заказу в порядке запроса */
+    public List<OrderBatchResult> createOrders(List<CreateOrderRequest> requests, Long userId) {
+
+        List<OrderPricingService.PricingResult> pricing;
+        try (ParallelLookups.Scope scope = parallelLookups.open()) {
+            scope.execute(() -> validateUserExistenceOrThrow(userId));
+            Future<List<OrderPricingService.PricingResult>> pricingAll = scope.fork(() ->
+                    orderPricingService.priceAll(requests.stream().map(CreateOrderRequest::getItems).toList()));
+            scope.join();
+            pricing = pricingAll.resultNow();
+        }
+
+        OrderBatchResult[] results = new OrderBatchResult[requests.size()];
+        List<Integer> accepted = new ArrayList<>();
+        List<OrderEntity> orders = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            OrderPricingService.PricingResult result = pricing.get(i);
+            if (result.error() != null) {
+                results[i] = OrderBatchResult.failed(i, result.error());
+            } else {
+                accepted.add(i);
+                orders.add(buildOrder(requests.get(i), userId, result.pricedOrder()));
+            }
+        }
+
+        for (int from = 0; from < orders.size(); from += CREATE_BATCH_CHUNK_SIZE) {
+            int to = Math.min(from + CREATE_BATCH_CHUNK_SIZE, orders.size());
+            List<OrderEntity> chunk = orders.subList(from, to);
+            List<Integer> chunkIndexes = accepted.subList(from, to);
+            try {
+                saveOrders(chunk);
+                for (int j = 0; j < chunk.size(); j++) {
+                    results[chunkIndexes.get(j)] = OrderBatchResult.created(chunkIndexes.get(j), chunk.get(j));
+                    recordCreated(chunk.get(j));
+                }
+            } catch (RuntimeException chunkError) {
+                // Порция откатилась целиком, заказы повторяются по одному
+                for (int j = 0; j < chunk.size(); j++) {
+                    int index = chunkIndexes.get(j);
+                    OrderEntity order = resetForRetry(chunk.get(j));
+                    try {
+                        saveOrders(List.of(order));
+                        results[index] = OrderBatchResult.created(index, order);
+                        recordCreated(order);
+                    } catch (RuntimeException e) {
+                        results[index] = OrderBatchResult.failed(index, e);
+                    }
+                }
+            }
+        }
+        return List.of(results);
     }
 
-    // Обновление статуса заказа
-    @Transactional
-    public OrderEntity updateOrderStatus(UUID orderId, String status) {
-        OrderEntity order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Заказ не найден"));
+    private void recordCreated(OrderEntity order) {
+        readYourWrites.recordWrite(order.getUserId());
+        orderItemsSummary.record(order.getItems().size());
+        orderTotalSummary.record(order.getTotalAmount().doubleValue());
+    }
+
+    // Вставка заказов, позиций и записей outbox одной транзакцией, Hibernate отправляет их пачками
+    private void saveOrders(List<OrderEntity> orders) {
+        createOrderTransactionTimer.record(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    orderRepository.saveAll(orders);
+                    orders.forEach(stockOutboxService::enqueueDecrease);
+                }));
+    }
 
-        // Если заказ отменен, то товары вернутся на склад
-        if (OrderStatus.CANCELLED.equals(status) && !OrderStatus.CANCELLED.equals(order.getStatus())) {
-            returnProductsToStock(order);
+    /* После отката транзакции сгенерированные ключи и версия не были сохранены, заказ вставляется заново
+    Без сброса версии Spring Data считает заказ существующим и делает merge в копию, а у исходного объекта
+    orderId остается пустым */
+    private static OrderEntity resetForRetry(OrderEntity order) {
+        order.setOrderId(null);
+        order.setVersion(null);
+        order.getItems().forEach(item -> item.setOrderItemId(null));
+        return order;
+    }
+
+    // Создание объекта заказа по рассчитанной корзине
+    private OrderEntity buildOrder(CreateOrderRequest request, Long userId,
+                                   OrderPricingService.PricedOrder pricedOrder) {
+        OrderEntity order = new OrderEntity();
+        order.setUserId(userId);
+        order.setAddress(request.getAddress());
+        order.setDeliveryMethod(request.getDeliveryMethod());
+        order.setStatus(OrderStatus.CREATED);
+        order.setTotalAmount(pricedOrder.totalAmount());
+        order.setCreatedAt(now());
+        order.setItems(createOrderItems(order, request.getItems(), pricedOrder));
+        return order;
+    }
+
+    /* Получение страницы заказов пользователя
+    Проверка пользователя идет в виртуальном потоке параллельно с запросом в БД в текущем потоке.
+    Заказы и их позиции читаются одной транзакцией только на чтение (с одной реплики) */
+    public OrderPage getUserOrders(Long userId, String cursor, int limit) {
+        try (ParallelLookups.Scope scope = parallelLookups.open()) {
+            // Проверка существования пользователя (если не найден, будет 404)
+            scope.execute(() -> userServiceClient.getUserById(userId));
+
+            int pageSize = pageSize(limit);
+            OrderPage page = readYourWrites.read(userId, () -> readOnlyTransactionTemplate.execute(status -> {
+                List<OrderSummary> orders = cursor == null
+                        ? orderRepository.findPageByUserId(userId, Limit.of(pageSize + 1))
+                        : afterCursor(OrderCursor.decode(cursor), (createdAt, orderId) ->
+                        orderRepository.findPageByUserIdAfter(userId, createdAt, orderId, Limit.of(pageSize + 1)));
+                return toPage(orders, pageSize);
+            }));
+            scope.join();
+            return page;
         }
+    }
+
+    // Получение конкретного заказа пользователя (проверка пользователя параллельно с запросом в БД)
+    public OrderEntity getOrderById(UUID orderId, Long userId) {
+        Optional<OrderEntity> order;
+        try (ParallelLookups.Scope scope = parallelLookups.open()) {
+            // Проверка существования пользователя, UserNotFoundException пробрасывается из join()
+            scope.execute(() -> userServiceClient.getUserById(userId));
 
-        order.setStatus(status);
-        return orderRepository.save(order);
+            order = readYourWrites.read(userId, () -> orderRepository.findByOrderIdAndUserId(orderId, userId));
+            scope.join();
+        }
+
+        return order.orElseThrow(() -> new RuntimeException("Заказ не найден"));
     }
 
-    // Получение заказов по статусу
-    public List<OrderEntity> getOrdersByStatus(String status) {
-        return orderRepository.findByStatus(status);
+    /* Ответ по конкретному заказу пользователя через кэш OrderResponseCache
+    Проверка пользователя идет параллельно с чтением, принадлежность заказа проверяется и для ответа из кэша.
+    При промахе заказ читается из основной БД: ответ с отстающей реплики попал бы в кэш на весь ttl.
+    С выключенным кэшем чтение идет как в getOrderById (реплика или основная БД для недавно писавших) */
+    public OrderResponse getOrderResponseById(UUID orderId, Long userId) {
+        OrderResponse response;
+        try (ParallelLookups.Scope scope = parallelLookups.open()) {
+            scope.execute(() -> userServiceClient.getUserById(userId));
+
+            response = orderResponseCache.isEnabled()
+                    ? orderResponseCache.get(orderId, this::loadResponse)
+                    : readYourWrites.read(userId, () -> readOnlyTransactionTemplate.execute(status -> findResponse(orderId)));
+            scope.join();
+        }
+
+        if (response == null || !response.getUserId().equals(userId)) {
+            throw new RuntimeException("Заказ не найден");
+        }
+        return response;
     }
 
-    // Проверка существования пользователя с выбрасыванием исключения
-    private void validateUserExistenceOrThrow(Long userId) {
-        userServiceClient.getUserById(userId);
+    // Ответ по заказу из основной БД (для кэша заказов)
+    private OrderResponse loadResponse(UUID orderId) {
+        return transactionTemplate.execute(status -> findResponse(orderId));
     }
 
-    /* Проверка наличия всех товаров в заказе
-    Проверка наличия товара через product-service
-    Получение информации о товаре для детализации ошибки*/
-    private void validateProductsAvailability(List<CreateOrderRequest.OrderItemRequest> items) {
-        for (CreateOrderRequest.OrderItemRequest itemRequest : items) {
-            UUID productId = itemRequest.getProductId();
-            Integer requestedQuantity = itemRequest.getQuantity();
+    // С кэшем второго уровня заказ и позиции берутся из него по ключу, без него - одним запросом с позициями
+    private OrderResponse findResponse(UUID orderId) {
+        Optional<OrderEntity> order = orderResponseCache.isSecondLevelEnabled()
+                ? orderRepository.findById(orderId)
+                : orderRepository.findByOrderId(orderId);
+        return order.map(OrderService::toResponse).orElse(null);
+    }
 
-            try {
-                // Проверяем доступность товара
-                boolean isAvailable = productServiceClient.isProductAvailable(productId, requestedQuantity);
-                if (!isAvailable) {
-                    // Если товар существует, но недостаточно на складе
-                    ProductResponse product = productServiceClient.getProductById(productId);
-                    throw new InsufficientStockException(
-                            productId,
-                            product.getStockQuantity(),
-                            requestedQuantity
-                    );
+    /* Обновление статуса заказа по таблице переходов OrderStatus
+    Переход - один условный UPDATE без предварительного чтения заказа, из одновременных запросов
+    (например, отмена и отправка) применяется первый, остальные получают InvalidStatusTransitionException.
+    При отмене возврат товаров записывается в outbox в той же транзакции.
+    Повторный перевод в текущий статус не ошибка. Если заказ есть в кэше, UPDATE дополнительно требует
+    версию закэшированного ответа, и при успехе ответ - этот заказ с новым статусом. Если версия не совпала
+    (ответ устарел), переход повторяется без нее, а заказ читается из БД, как и при промахе кэша */
+    public OrderResponse updateOrderStatus(UUID orderId, String status) {
+        validateStatus(status);
+        Set<String> sources = OrderStatus.sourcesOf(status);
+        OrderResponse cached = orderResponseCache.peek(orderId);
+        Long cachedVersion = cached != null ? cached.getVersion() : null;
+        boolean[] cachedApplied = {false};
+        Integer updated = sources.isEmpty() ? Integer.valueOf(0) : transactionTemplate.execute(tx -> {
+            int rows = 0;
+            if (cachedVersion != null) {
+                rows = orderRepository.transitionStatusAtVersion(orderId, sources, status, cachedVersion);
+                cachedApplied[0] = rows > 0;
+            }
+            if (rows == 0) {
+                rows = orderRepository.transitionStatus(orderId, sources, status);
+            }
+            if (rows > 0) {
+                if (OrderStatus.CANCELLED.equals(status)) {
+                    stockOutboxService.enqueueReturn(orderRepository.findByOrderId(orderId).orElseThrow());
                 }
-            } catch (ProductNotFoundException e) {
-                // Если товар не найден, пробрасываем исключение дальше
-                throw e;
+                orderResponseCache.invalidate(orderId);
+            }
+            return rows;
+        });
+
+        if (updated == null || updated == 0) {
+            // Причина отказа определяется только на пути ошибки
+            String current = currentStatus(orderId);
+            if (current == null) {
+                throw new RuntimeException("Заказ не найден");
             }
+            if (!current.equals(status)) {
+                throw new InvalidStatusTransitionException(orderId, current, status);
+            }
+        }
+
+        OrderResponse response = cachedApplied[0]
+                ? withStatus(cached, status)
+                : orderResponseCache.get(orderId, this::loadResponse);
+        if (response == null) {
+            throw new RuntimeException("Заказ не найден");
         }
+        readYourWrites.recordWrite(response.getUserId());
+        return response;
     }
 
-    // Расчет общей суммы заказа
-    private BigDecimal calculateTotalAmount(List<CreateOrderRequest.OrderItemRequest> items) {
-        return items.stream()
-                .map(itemRequest -> {
-                    // Если товар не найден, getProductById выбросит ProductNotFoundException
-                    ProductResponse product = productServiceClient.getProductById(itemRequest.getProductId());
-                    return product.getPrice().multiply(BigDecimal.valueOf(itemRequest.getQuantity()));
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Получение страницы заказов по статусу (заказы и позиции читаются одной транзакцией только на чтение)
+    @Transactional(readOnly = true)
+    public OrderPage getOrdersByStatus(String status, String cursor, int limit) {
+        validateStatus(status);
+        int pageSize = pageSize(limit);
+        List<OrderSummary> orders = cursor == null
+                ? orderRepository.findPageByStatus(status, Limit.of(pageSize + 1))
+                : afterCursor(OrderCursor.decode(cursor), (createdAt, orderId) ->
+                orderRepository.findPageByStatusAfter(status, createdAt, orderId, Limit.of(pageSize + 1)));
+        return toPage(orders, pageSize);
+    }
+
+    /* Потоковая выдача всех заказов со статусом
+    Заказы читаются forward-only курсором, позиции догружаются одним запросом на порцию.
+    Читаются только DTO-проекции, контекст персистентности не растет с числом заказов */
+    @Transactional(readOnly = true)
+    public void streamOrdersByStatus(String status, Consumer<OrderResponse> consumer) {
+        validateStatus(status);
+        try (Stream<OrderSummary> orders = orderRepository.streamByStatus(status)) {
+            List<OrderSummary> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            orders.forEach(order -> {
+                chunk.add(order);
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    withItems(chunk).forEach(consumer);
+                    chunk.clear();
+                }
+            });
+            withItems(chunk).forEach(consumer);
+        }
+    }
+
+    // Страница заказов: запрашивается на один заказ больше, чтобы понять, есть ли следующая страница
+    private OrderPage toPage(List<OrderSummary> orders, int pageSize) {
+        boolean hasNext = orders.size() > pageSize;
+        List<OrderSummary> pageOrders = hasNext ? orders.subList(0, pageSize) : orders;
+        String nextCursor = hasNext ? OrderCursor.after(pageOrders.getLast()).encode() : null;
+        return new OrderPage(withItems(pageOrders), nextCursor);
     }
 
-    // Создание элементов заказа
+    // Сборка ответов: позиции всех переданных заказов загружаются одним запросом order_id IN (...)
+    private List<OrderResponse> withItems(List<OrderSummary> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, List<OrderResponse.OrderItemResponse>> itemsByOrder = orderItemRepository
+                .findSummariesByOrderIds(orders.stream().map(OrderSummary::orderId).toList()).stream()
+                .collect(Collectors.groupingBy(OrderItemSummary::orderId, Collectors.mapping(
+                        item -> new OrderResponse.OrderItemResponse(item.orderItemId(), item.productId(),
+                                item.quantity(), item.unitPrice(), item.productName(), item.lineTotal()),
+                        Collectors.toList())));
+        return orders.stream()
+                .map(order -> new OrderResponse(
+                        order.orderId(),
+                        order.userId(),
+                        order.address(),
+                        order.deliveryMethod(),
+                        order.status(),
+                        order.failureReason(),
+                        order.totalAmount(),
+                        order.createdAt(),
+                        itemsByOrder.getOrDefault(order.orderId(), new ArrayList<>()),
+                        null))
+                .toList();
+    }
+
+    // Преобразование OrderEntity в OrderResponse (позиции должны быть загружены)
+    public static OrderResponse toResponse(OrderEntity order) {
+        OrderResponse response = new OrderResponse();
+        response.setOrderId(order.getOrderId());
+        response.setUserId(order.getUserId());
+        response.setAddress(order.getAddress());
+        response.setDeliveryMethod(order.getDeliveryMethod());
+        response.setStatus(order.getStatus());
+        response.setFailureReason(order.getFailureReason());
+        response.setTotalAmount(order.getTotalAmount());
+        response.setCreatedAt(order.getCreatedAt());
+        response.setVersion(order.getVersion());
+
+        if (order.getItems() != null) {
+            List<OrderResponse.OrderItemResponse> itemResponses = order.getItems().stream()
+                    .map(item -> new OrderResponse.OrderItemResponse(item.getOrderItemId(), item.getProductId(),
+                            item.getQuantity(), item.getUnitPrice(), item.getProductName(), item.getLineTotal()))
+                    .collect(Collectors.toList());
+            response.setItems(itemResponses);
+        }
+
+        return response;
+    }
+
+    // Ответ после перехода по версии закэшированного: UPDATE увеличил версию на 1
+    private static OrderResponse withStatus(OrderResponse response, String status) {
+        return new OrderResponse(response.getOrderId(), response.getUserId(), response.getAddress(),
+                response.getDeliveryMethod(), status, response.getFailureReason(), response.getTotalAmount(),
+                response.getCreatedAt(), response.getItems(), response.getVersion() + 1);
+    }
+
+    // Время создания с точностью хранения в PostgreSQL: ответ из кэша совпадает с прочитанным из БД
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static <T> T afterCursor(OrderCursor cursor, BiFunction<LocalDateTime, UUID, T> query) {
+        return query.apply(cursor.createdAt(), cursor.orderId());
+    }
+
+    private static int pageSize(int limit) {
+        return Math.clamp(limit, 1, MAX_PAGE_SIZE);
+    }
+
+    // Статус хранится в БД кодом, поэтому неизвестный статус отклоняется до обращения к БД
+    private static void validateStatus(String status) {
+        if (!OrderStatusConverter.isKnown(status)) {
+            throw new InvalidOrderStatusException(status);
+        }
+    }
+
+    // Проверка существования пользователя с выбрасыванием исключения
+    private void validateUserExistenceOrThrow(Long userId) {
+        userServiceClient.getUserById(userId);
+    }
+
+    // Создание элементов заказа со снимком цены и названия из данных, по которым считалась сумма
     private List<OrderItemEntity> createOrderItems(OrderEntity order,
-                                                   List<CreateOrderRequest.OrderItemRequest> items) {
+                                                   List<CreateOrderRequest.OrderItemRequest> items,
+                                                   OrderPricingService.PricedOrder pricedOrder) {
         return items.stream()
                 .map(itemRequest -> {
                     OrderItemEntity item = new OrderItemEntity();
                     item.setOrder(order);
                     item.setProductId(itemRequest.getProductId());
                     item.setQuantity(itemRequest.getQuantity());
+                    applyPriceSnapshot(item, pricedOrder.products().get(itemRequest.getProductId()));
                     return item;
                 })
                 .collect(Collectors.toList());
     }
 
-    /* Уменьшение количества товаров на складе
-    catch: Если не удалось уменьшить количество, отменяем весь заказ */
-    private void decreaseProductsStock(List<CreateOrderRequest.OrderItemRequest> items) {
-        items.forEach(itemRequest -> {
-            try {
-                productServiceClient.decreaseProductStock(
-                        itemRequest.getProductId(),
-                        itemRequest.getQuantity()
-                );
-            } catch (Exception e) {
-                throw new RuntimeException("Не удалось обновить количество товара на складе: " + e.getMessage());
-            }
-        });
-    }
-
-    /* Возврат товаров на склад при отмене заказа
-    try: Логирование, временная реализация
-    - Для продакта добавить endpoint в ProductService.
-    - productServiceClient.increaseProductStock(item.getProductId(), item.getQuantity());
-    catch: Логирование ошибки, но отмена заказа не прерывается */
-    private void returnProductsToStock(OrderEntity order) {
-        order.getItems()
-                .forEach(item -> {
-                    try {
-                        System.out.println("Возврат товара на склад: " +
-                                item.getProductId() + ", количество: " + item.getQuantity());
-                    } catch (Exception e) {
-                        System.err.println("Ошибка при возврате товара на складе: " + e.getMessage());
-                    }
-                });
-    }
-
-    // Класс со статусами заказа
-    public static class OrderStatus {
-        public static final String CREATED = "CREATED";      // Создан
-        public static final String PROCESSING = "PROCESSING"; // В обработке
-        public static final String SHIPPED = "SHIPPED";      // Отправлен
-        public static final String DELIVERED = "DELIVERED";   // Доставлен
-        public static final String CANCELLED = "CANCELLED";   // Отменен
-        public static final String PENDING = "PENDING";       // В ожидании
+    // Заполнение цены, названия и суммы позиции по данным товара
+    public static void applyPriceSnapshot(OrderItemEntity item, ProductResponse product) {
+        item.setUnitPrice(product.getPrice());
+        item.setProductName(product.getName());
+        item.setLineTotal(product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
     }
 }
@@ -0,0 +1,90 @@
+package com.github.arseniyryabov.order.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Параллельный запуск независимых обращений к внешним сервисам на виртуальных потоках
+@Component
+@RequiredArgsConstructor
+public class ParallelLookups {
+
+    private final ExecutorService orderLookupExecutor;
+
+    // Открытие группы параллельных задач
+    public Scope open() {
+        return new Scope(orderLookupExecutor);
+    }
+
+    /* Группа задач с fail-fast семантикой
+    Первая ошибка отменяет (прерывает) остальные задачи и пробрасывается вызывающему как есть,
+    поэтому UserNotFoundException и ProductNotFoundException обрабатываются GlobalExceptionHandler без изменений */
+    public static final class Scope implements AutoCloseable {
+
+        private final ExecutorCompletionService<Object> completionService;
+        private final List<Future<Object>> tasks = new ArrayList<>();
+
+        private Scope(ExecutorService executor) {
+            this.completionService = new ExecutorCompletionService<>(executor);
+        }
+
+        // Запуск задачи с результатом, результат доступен через resultNow() после join()
+        @SuppressWarnings("unchecked")
+        public <T> Future<T> fork(Callable<T> task) {
+            Future<Object> future = completionService.submit((Callable<Object>) task);
+            tasks.add(future);
+            return (Future<T>) future;
+        }
+
+        // Запуск задачи без результата (проверки существования)
+        public void execute(Runnable task) {
+            fork(() -> {
+                task.run();
+                return null;
+            });
+        }
+
+        // Ожидание всех задач в порядке завершения, при первой ошибке остальные отменяются
+        public void join() {
+            try {
+                for (int i = 0; i < tasks.size(); i++) {
+                    completionService.take().get();
+                }
+            } catch (ExecutionException e) {
+                cancelAll();
+                throw unwrap(e.getCause());
+            } catch (InterruptedException e) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Ожидание параллельных запросов прервано", e);
+            }
+        }
+
+        // Незавершенные задачи отменяются, если join() не был вызван или завершился ошибкой
+        @Override
+        public void close() {
+            cancelAll();
+        }
+
+        private void cancelAll() {
+            tasks.forEach(task -> task.cancel(true));
+        }
+
+        private static RuntimeException unwrap(Throwable cause) {
+            if (cause instanceof RuntimeException runtimeException) {
+                return runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            return new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.config.StockOutboxProperties;
+import com.github.arseniyryabov.order.entity.StockOutboxEntity;
+import com.github.arseniyryabov.order.exception.StockChangeRejectedException;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.StockDecrementDispatcher;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/* Фоновая отправка изменений остатков из outbox в product-service
+1. Короткая транзакция: захват пачки записей FOR UPDATE SKIP LOCKED и аренда их на lease
+2. Отправка без транзакции: списания через StockDecrementDispatcher, возвраты параллельно
+3. Короткая транзакция: успешные записи помечаются SENT, неуспешные откладываются с экспоненциальной
+   задержкой и jitter, после maxAttempts переводятся в FAILED. Записи, отклоненные product-service
+   окончательно (StockChangeRejectedException, ответ 4xx), переводятся в FAILED сразу.
+   Заказ, списание по которому окончательно не прошло, в той же транзакции переводится в FAILED,
+   остальные его списания возвращаются на склад или отменяются (OrderService.failOrderOnStockRejection)
+Доставка "хотя бы один раз": product-service не принимает ключ идемпотентности, поэтому запись,
+изменение по которой применено, но не зафиксировано как SENT (падение экземпляра или ошибка БД между
+ответом product-service и шагом 3, аренда, истекшая во время отправки), после аренды будет отправлена
+повторно и остаток изменится дважды. Чтобы живой relay всегда успевал зафиксировать результат, аренда
+при запуске проверяется: она должна быть не меньше MIN_LEASE_SENDS предельных времен отправки
+(дедлайн запроса, окно пакета списаний и ожидание bulkhead) */
+@Slf4j
+@Component
+public class StockOutboxRelay {
+
+    // Во сколько раз аренда должна превышать предельное время отправки
+    static final int MIN_LEASE_SENDS = 3;
+
+    private final StockOutboxRepository stockOutboxRepository;
+    private final StockDecrementDispatcher stockDecrementDispatcher;
+    private final ProductServiceClient productServiceClient;
+    private final StockOutboxService stockOutboxService;
+    private final OrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+    private final StockOutboxProperties properties;
+    private final ExecutorService senders =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stock-outbox-", 0).factory());
+    private final Counter sent;
+    private final Counter failedAttempts;
+    private final Counter exhausted;
+    private final Counter rejected;
+
+    public StockOutboxRelay(StockOutboxRepository stockOutboxRepository,
+                            StockDecrementDispatcher stockDecrementDispatcher,
+                            ProductServiceClient productServiceClient,
+                            StockOutboxService stockOutboxService,
+                            OrderService orderService,
+                            TransactionTemplate transactionTemplate,
+                            StockOutboxProperties properties,
+                            ProductServiceProperties productServiceProperties,
+                            MeterRegistry meterRegistry) {
+        Duration minLease = maxSendTime(productServiceProperties).multipliedBy(MIN_LEASE_SENDS);
+        if (properties.getLease().compareTo(minLease) < 0) {
+            throw new IllegalStateException("order.stock-outbox.lease (" + properties.getLease()
+                    + ") должна быть не меньше " + minLease + ", иначе записи будут отправляться повторно "
+                    + "во время отправки");
+        }
+        this.stockOutboxRepository = stockOutboxRepository;
+        this.stockDecrementDispatcher = stockDecrementDispatcher;
+        this.productServiceClient = productServiceClient;
+        this.stockOutboxService = stockOutboxService;
+        this.orderService = orderService;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.sent = Counter.builder("stock.outbox.sent")
+                .description("Изменения остатков, подтвержденные product-service")
+                .register(meterRegistry);
+        this.failedAttempts = Counter.builder("stock.outbox.failed.attempts")
+                .description("Неудачные попытки отправки изменений остатков")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("stock.outbox.exhausted")
+                .description("Изменения остатков, переведенные в FAILED после всех попыток")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("stock.outbox.rejected")
+                .description("Изменения остатков, отклоненные product-service и переведенные в FAILED без повторов")
+                .register(meterRegistry);
+    }
+
+    // Периодический проход: пачки отправляются подряд, пока очередь не опустеет
+    @Scheduled(fixedDelayString = "${order.stock-outbox.poll-interval:200ms}")
+    public void relayPending() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            while (relayBatch() == properties.getBatchSize()) {
+                // Пачка была полной - сразу забираем следующую
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка relay outbox остатков: {}", e.getMessage(), e);
+        }
+    }
+
+    // Отправка одной пачки, возвращает количество захваченных записей
+    public int relayBatch() {
+        List<StockOutboxEntity> claimed = transactionTemplate.execute(status -> claim());
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Void>> sends = claimed.stream()
+                .map(this::send)
+                .toList();
+
+        List<UUID> succeeded = new ArrayList<>();
+        List<Failure> failed = new ArrayList<>();
+        for (int i = 0; i < claimed.size(); i++) {
+            StockOutboxEntity record = claimed.get(i);
+            try {
+                sends.get(i).join();
+                succeeded.add(record.getOutboxId());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                failed.add(new Failure(record.getOutboxId(), cause.getMessage(),
+                        cause instanceof StockChangeRejectedException));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> recordOutcomes(succeeded, failed));
+        return claimed.size();
+    }
+
+    @PreDestroy
+    void stop() {
+        senders.close();
+    }
+
+    private List<StockOutboxEntity> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockOutboxEntity> claimed = stockOutboxRepository.findPendingForUpdate(now, properties.getBatchSize());
+        if (!claimed.isEmpty()) {
+            stockOutboxRepository.lease(
+                    claimed.stream().map(StockOutboxEntity::getOutboxId).toList(),
+                    now.plus(properties.getLease()));
+        }
+        return claimed;
+    }
+
+    private CompletableFuture<Void> send(StockOutboxEntity record) {
+        if (StockOutboxEntity.Operation.DECREASE.equals(record.getOperation())) {
+            return stockDecrementDispatcher.decrease(record.getProductId(), record.getQuantity());
+        }
+        return CompletableFuture.runAsync(
+                () -> productServiceClient.increaseProductStock(record.getProductId(), record.getQuantity()),
+                senders);
+    }
+
+    /* Фиксация результатов отправки. Записи блокируются и читаются заново: пока шла отправка,
+    компенсация отказа по заказу могла отменить часть списаний (CANCELLED) */
+    private void recordOutcomes(List<UUID> succeeded, List<Failure> failed) {
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> outboxIds = new ArrayList<>(succeeded);
+        failed.forEach(failure -> outboxIds.add(failure.outboxId()));
+        Map<UUID, StockOutboxEntity> records = stockOutboxRepository.findAllForUpdate(outboxIds).stream()
+                .collect(Collectors.toMap(StockOutboxEntity::getOutboxId, Function.identity()));
+
+        succeeded.forEach(outboxId -> {
+            StockOutboxEntity record = records.get(outboxId);
+            if (StockOutboxEntity.Status.CANCELLED.equals(record.getStatus())) {
+                // Списание прошло уже после отказа по заказу - товар возвращается на склад
+                stockOutboxService.enqueueReturn(record);
+            }
+            record.setStatus(StockOutboxEntity.Status.SENT);
+            record.setProcessedAt(now);
+            record.setLastError(null);
+        });
+        sent.increment(succeeded.size());
+
+        List<StockOutboxEntity> failedDecreases = new ArrayList<>();
+        failed.forEach(failure -> {
+            StockOutboxEntity record = records.get(failure.outboxId());
+            failedAttempts.increment();
+            record.setLastError(truncate(failure.message()));
+            if (StockOutboxEntity.Status.CANCELLED.equals(record.getStatus())) {
+                // Заказ уже не выполняется, повторять списание не нужно
+                return;
+            }
+            // attempts уже учитывает текущую попытку: счетчик увеличивается при захвате
+            int attempts = record.getAttempts();
+            if (failure.rejected()) {
+                rejected.increment();
+                log.error("Изменение остатка {} ({} товара {} x{}, заказ {}) отклонено product-service: {}",
+                        record.getOutboxId(), record.getOperation(), record.getProductId(), record.getQuantity(),
+                        record.getOrderId(), failure.message());
+            } else if (attempts >= properties.getMaxAttempts()) {
+                exhausted.increment();
+                log.error("Изменение остатка {} ({} товара {} x{}, заказ {}) не отправлено после {} попыток: {}",
+                        record.getOutboxId(), record.getOperation(), record.getProductId(), record.getQuantity(),
+                        record.getOrderId(), attempts, failure.message());
+            } else {
+                record.setNextAttemptAt(now.plus(backoff(attempts)));
+                return;
+            }
+            record.setStatus(StockOutboxEntity.Status.FAILED);
+            record.setNextAttemptAt(now);
+            if (StockOutboxEntity.Operation.DECREASE.equals(record.getOperation())) {
+                failedDecreases.add(record);
+            }
+        });
+
+        // Заказ, товар которого не удалось списать, не выполняется
+        failedDecreases.forEach(record -> {
+            if (orderService.failOrderOnStockRejection(record.getOrderId(), record.getLastError())) {
+                log.warn("Заказ {} переведен в FAILED: не удалось списать товар {}",
+                        record.getOrderId(), record.getProductId());
+            }
+        });
+    }
+
+    // Предельное время отправки одной записи: изменения остатков не повторяются внутри клиента
+    private static Duration maxSendTime(ProductServiceProperties productServiceProperties) {
+        return productServiceProperties.getHttp().getRequestDeadline()
+                .plus(productServiceProperties.getStockBatching().getWindow())
+                .plus(productServiceProperties.getResilience().getBulkhead().getMaxWait());
+    }
+
+    // Экспоненциальная задержка с jitter: случайное значение из [d/2, d]
+    private Duration backoff(int attempts) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long max = properties.getMaxBackoff().toMillis();
+        long delay = Math.min(max, initial << Math.min(attempts - 1, 30));
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    private record Failure(UUID outboxId, String message, boolean rejected) {
+    }
+}
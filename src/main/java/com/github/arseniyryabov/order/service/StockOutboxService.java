@@ -0,0 +1,95 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.StockOutboxEntity;
+import com.github.arseniyryabov.order.repository.OrderItemSummary;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/* Запись изменений остатков в outbox
+Вызывается только внутри транзакции, которая создает заказ или меняет его статус,
+поэтому изменение остатка фиксируется вместе с заказом или не фиксируется вовсе */
+@Service
+@RequiredArgsConstructor
+public class StockOutboxService {
+
+    private final StockOutboxRepository stockOutboxRepository;
+
+    // Списание товаров нового заказа
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueDecrease(OrderEntity order) {
+        enqueue(order, StockOutboxEntity.Operation.DECREASE);
+    }
+
+    // Возврат товаров отмененного заказа на склад
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueReturn(OrderEntity order) {
+        enqueue(order, StockOutboxEntity.Operation.INCREASE);
+    }
+
+    // Возврат товаров партии отмененных заказов по их позициям (массовая смена статуса)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueReturns(List<OrderItemSummary> items) {
+        LocalDateTime now = LocalDateTime.now();
+        stockOutboxRepository.saveAll(items.stream()
+                .map(item -> record(item.orderId(), item.productId(), item.quantity(),
+                        StockOutboxEntity.Operation.INCREASE, now))
+                .toList());
+    }
+
+    // Возврат на склад товара, списанного записью decrease
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueReturn(StockOutboxEntity decrease) {
+        stockOutboxRepository.save(record(decrease.getOrderId(), decrease.getProductId(), decrease.getQuantity(),
+                StockOutboxEntity.Operation.INCREASE, LocalDateTime.now()));
+    }
+
+    /* Компенсация списаний заказа, который не будет выполнен: отправленные списания возвращаются на склад
+    записями INCREASE, неотправленные отменяются (CANCELLED). Строки блокируются, поэтому списание,
+    которое relay отправляет в этот момент, он увидит отмененным при фиксации результата и вернет сам */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void compensateDecreases(UUID orderId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockOutboxEntity> returns = new ArrayList<>();
+        for (StockOutboxEntity decrease : stockOutboxRepository.findByOrderIdForUpdate(
+                orderId, StockOutboxEntity.Operation.DECREASE)) {
+            if (StockOutboxEntity.Status.SENT.equals(decrease.getStatus())) {
+                returns.add(record(orderId, decrease.getProductId(), decrease.getQuantity(),
+                        StockOutboxEntity.Operation.INCREASE, now));
+            } else if (StockOutboxEntity.Status.PENDING.equals(decrease.getStatus())) {
+                decrease.setStatus(StockOutboxEntity.Status.CANCELLED);
+            }
+        }
+        stockOutboxRepository.saveAll(returns);
+    }
+
+    private void enqueue(OrderEntity order, String operation) {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockOutboxEntity> records = order.getItems().stream()
+                .map(item -> record(order.getOrderId(), item.getProductId(), item.getQuantity(), operation, now))
+                .toList();
+        stockOutboxRepository.saveAll(records);
+    }
+
+    private static StockOutboxEntity record(UUID orderId, UUID productId, Integer quantity, String operation,
+                                            LocalDateTime now) {
+        StockOutboxEntity record = new StockOutboxEntity();
+        record.setOrderId(orderId);
+        record.setProductId(productId);
+        record.setOperation(operation);
+        record.setQuantity(quantity);
+        record.setStatus(StockOutboxEntity.Status.PENDING);
+        record.setAttempts(0);
+        record.setNextAttemptAt(now);
+        record.setCreatedAt(now);
+        return record;
+    }
+}
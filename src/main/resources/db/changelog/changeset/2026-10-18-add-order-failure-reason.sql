@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+
+--changeset arseniyryabov:add-order-failure-reason
+-- Причина отказа для заказов, принятых асинхронно и не прошедших проверку (статус FAILED = 6)
+ALTER TABLE orders ADD COLUMN failure_reason VARCHAR(1000);
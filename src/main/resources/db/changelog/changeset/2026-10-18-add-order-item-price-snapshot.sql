@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+
+--changeset arseniyryabov:add-order-item-price-snapshot
+-- Цена и название товара на момент заказа, у старых позиций заполняются OrderItemPriceBackfill
+ALTER TABLE order_items ADD COLUMN unit_price DECIMAL(10, 2);
+ALTER TABLE order_items ADD COLUMN product_name VARCHAR(255);
+ALTER TABLE order_items ADD COLUMN line_total DECIMAL(12, 2);
+
+--changeset arseniyryabov:create-order-items-backfill-index
+CREATE INDEX idx_order_items_without_price ON order_items(order_item_id) WHERE unit_price IS NULL;
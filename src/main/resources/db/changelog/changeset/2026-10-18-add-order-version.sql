@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+
+--changeset arseniyryabov:add-order-version
+-- Версия строки заказа: увеличивается каждым изменением, в том числе условными UPDATE перехода статуса
+ALTER TABLE orders ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+
+--changeset arseniyryabov:create-stock-outbox-order-index
+-- Поиск записей заказа при компенсации списаний, по которым product-service отказал
+CREATE INDEX idx_stock_outbox_order ON stock_outbox(order_id);
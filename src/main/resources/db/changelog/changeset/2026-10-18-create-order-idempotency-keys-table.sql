@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+
+--changeset arseniyryabov:create-order-idempotency-keys
+CREATE TABLE order_idempotency_keys (
+    key_id UUID PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    order_id UUID,
+    response TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_order_idempotency_keys_user_key UNIQUE (user_id, idempotency_key)
+);
+
+--changeset arseniyryabov:create-order-idempotency-keys-indexes
+-- Удаление просроченных ключей очистителем
+CREATE INDEX idx_order_idempotency_keys_expires_at ON order_idempotency_keys(expires_at);
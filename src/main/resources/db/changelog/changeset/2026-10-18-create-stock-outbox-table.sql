@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+
+--changeset arseniyryabov:create-stock-outbox
+CREATE TABLE stock_outbox (
+    outbox_id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    order_id UUID NOT NULL,
+    product_id UUID NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    quantity INTEGER NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP
+);
+
+--changeset arseniyryabov:create-stock-outbox-indexes
+CREATE INDEX idx_stock_outbox_pending ON stock_outbox(next_attempt_at) WHERE status = 'PENDING';
@@ -0,0 +1,29 @@
+--liquibase formatted sql
+
+
+--changeset arseniyryabov:convert-order-status-to-code
+--preconditions onFail:HALT onError:HALT
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM orders WHERE status NOT IN ('CREATED', 'PROCESSING', 'SHIPPED', 'DELIVERED', 'CANCELLED', 'PENDING', 'FAILED')
+-- PATCH /orders/{id}/status до проверки статусов сохранял любую строку. Заказы с другим статусом
+-- останавливают миграцию до изменения типа (CASE превратил бы их статус в NULL): их нужно исправить вручную
+ALTER TABLE orders ALTER COLUMN status DROP DEFAULT;
+ALTER TABLE orders ALTER COLUMN status TYPE SMALLINT USING CASE status
+    WHEN 'CREATED' THEN 0
+    WHEN 'PROCESSING' THEN 1
+    WHEN 'SHIPPED' THEN 2
+    WHEN 'DELIVERED' THEN 3
+    WHEN 'CANCELLED' THEN 4
+    WHEN 'PENDING' THEN 5
+    WHEN 'FAILED' THEN 6
+END;
+ALTER TABLE orders ALTER COLUMN status SET DEFAULT 0;
+
+--changeset arseniyryabov:create-order-access-path-indexes
+-- Заказы пользователя в порядке keyset-пагинации
+CREATE INDEX idx_orders_user_created ON orders(user_id, created_at DESC, order_id DESC);
+-- Заказы по статусу: активные статусы (CREATED, PROCESSING, PENDING) составляют малую часть таблицы,
+-- завершенные статусы читаются обходом idx_orders_created_at с фильтром
+CREATE INDEX idx_orders_active_status_created ON orders(status, created_at DESC, order_id DESC)
+    WHERE status IN (0, 1, 5);
+-- Загрузка позиций заказов по order_id IN (...)
+CREATE INDEX idx_order_items_order_id ON order_items(order_id);
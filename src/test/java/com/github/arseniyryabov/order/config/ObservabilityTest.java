@@ -0,0 +1,84 @@
+package com.github.arseniyryabov.order.config;
+
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.support.StubProductService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Метрики горячего пути видны в /actuator/prometheus, исходящие вызовы несут контекст трассировки
+@SpringBootTest(properties = {
+        "order.stock-outbox.enabled=false",
+        "management.tracing.sampling.probability=1.0"})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class ObservabilityTest {
+
+    private static final StubProductService productService = StubProductService.start();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @DynamicPropertySource
+    static void productServiceUrl(DynamicPropertyRegistry registry) {
+        registry.add("service.product.url", productService::baseUrl);
+        // Каждый заказ запрашивает товары в product-service, без кэша
+        registry.add("service.product.cache.strict-stock-checks", () -> "true");
+    }
+
+    @AfterAll
+    static void stopProductService() {
+        productService.close();
+    }
+
+    @Test
+    void hotPathMetricsArePublishedAndTraceContextIsPropagated() throws Exception {
+        UUID productId = productService.addProduct(new BigDecimal("10.00"), 100);
+        String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+        mockMvc.perform(post("/orders")
+                        .header("X-User-Id", 1L)
+                        .header("traceparent", "00-" + traceId + "-00f067aa0ba902b7-01")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"address":"Москва","deliveryMethod":"COURIER",
+                                 "items":[{"productId":"%s","quantity":2}]}""".formatted(productId)))
+                .andExpect(status().isCreated());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("http_client_requests_seconds_bucket{")
+                .contains("uri=\"/orders\"")
+                .containsPattern("downstream_client_calls_seconds_bucket\\{[^}]*method=\"getProductsByIds\",outcome=\"success\"")
+                .contains("orders_items_count 1")
+                .contains("orders_total_amount_bucket{")
+                .contains("hikaricp_connections_acquire_seconds");
+        // Запрос в product-service уходит из виртуального потока, но продолжает трассу входящего запроса
+        assertThat(productService.lastHeader("traceparent")).startsWith("00-" + traceId + "-");
+    }
+}
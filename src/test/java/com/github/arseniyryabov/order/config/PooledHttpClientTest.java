@@ -0,0 +1,127 @@
+package com.github.arseniyryabov.order.config;
+
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.support.StubProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PooledHttpClientTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HttpClientSettings settings = new HttpClientSettings();
+    private StubProductService productService;
+    private PooledHttpClient httpClient;
+
+    @BeforeEach
+    void setUp() {
+        productService = StubProductService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        productService.close();
+    }
+
+    @Test
+    void reusesPooledConnectionsAndPublishesPoolMetrics() {
+        settings.setMaxConnections(4);
+        RestClient client = restClient();
+        UUID productId = productService.addProduct(BigDecimal.TEN, 5);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(client.get().uri("/products/{id}", productId).retrieve().body(ProductResponse.class))
+                    .extracting(ProductResponse::getProductId).isEqualTo(productId);
+        }
+
+        assertThat(meterRegistry.get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", "product-service").gauge().value()).isEqualTo(4);
+        // Последовательные запросы идут через одно keep-alive соединение
+        assertThat(meterRegistry.get("httpcomponents.httpclient.pool.total.connections")
+                .tag("httpclient", "product-service").tag("state", "available").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void completedRequestsReleaseTheirDeadlines() {
+        settings.setRequestDeadline(Duration.ofMinutes(5));
+        RestClient client = restClient();
+        UUID productId = productService.addProduct(BigDecimal.TEN, 5);
+
+        for (int i = 0; i < 50; i++) {
+            client.get().uri("/products/{id}", productId).retrieve().body(ProductResponse.class);
+        }
+        assertThatThrownBy(() -> client.get().uri("/products/{id}", UUID.randomUUID()).retrieve()
+                .body(ProductResponse.class)).isInstanceOf(HttpClientErrorException.NotFound.class);
+
+        // Таймеры отмены не копятся в очереди планировщика на весь срок requestDeadline
+        assertThat(httpClient.pendingDeadlines()).isZero();
+    }
+
+    @Test
+    void slowResponseIsCutOffByRequestDeadline() {
+        settings.setReadTimeout(Duration.ofSeconds(10));
+        settings.setRequestDeadline(Duration.ofMillis(300));
+        RestClient client = restClient();
+        UUID productId = productService.addProduct(BigDecimal.TEN, 5);
+        productService.setLatency(Duration.ofSeconds(3));
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> client.get().uri("/products/{id}", productId).retrieve().body(ProductResponse.class))
+                .isInstanceOf(ResourceAccessException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void requestsBeyondPoolLimitFailFastInsteadOfQueueing() throws Exception {
+        settings.setMaxConnections(2);
+        settings.setPoolAcquireTimeout(Duration.ofMillis(100));
+        RestClient client = restClient();
+        UUID productId = productService.addProduct(BigDecimal.TEN, 5);
+        productService.setLatency(Duration.ofMillis(700));
+
+        List<CompletableFuture<Boolean>> calls = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 6; i++) {
+                calls.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        client.get().uri("/products/{id}", productId).retrieve().toBodilessEntity();
+                        return true;
+                    } catch (ResourceAccessException e) {
+                        return false;
+                    }
+                }, executor));
+            }
+        }
+
+        // Два запроса заняли пул, остальные не дождались соединения за poolAcquireTimeout
+        assertThat(calls).extracting(CompletableFuture::join).containsOnly(true, false)
+                .filteredOn(Boolean::booleanValue).hasSize(2);
+    }
+
+    private RestClient restClient() {
+        httpClient = new PooledHttpClient("product-service", settings, meterRegistry);
+        return RestClient.builder()
+                .baseUrl(productService.baseUrl())
+                .requestFactory(httpClient.requestFactory())
+                .build();
+    }
+}
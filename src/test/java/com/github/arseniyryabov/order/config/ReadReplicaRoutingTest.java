@@ -0,0 +1,111 @@
+package com.github.arseniyryabov.order.config;
+
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import com.github.arseniyryabov.order.service.OrderService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+// Реплика - отдельная база H2 со схемой без данных: чтение с реплики не видит заказов основной БД
+@SpringBootTest(properties = {
+        "order.stock-outbox.enabled=false",
+        "order.read-replicas.enabled=true",
+        "order.read-replicas.replicas[0].url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "order.read-replicas.replicas[0].username=sa"})
+@ActiveProfiles("test")
+class ReadReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    private static final long WRITER_ID = 31L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    private final UUID phone = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        stockOutboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        when(productServiceClient.getProductsForStockCheck(anyList())).thenReturn(List.of(
+                new ProductResponse(phone, "Телефон", new BigDecimal("100.00"), null, 10, null, null)));
+
+        // Схема основной БД (создана Hibernate) переносится на реплику без данных
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("DROP ALL OBJECTS");
+        new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NODATA", String.class).stream()
+                .filter(statement -> !statement.startsWith("CREATE USER"))
+                .forEach(replica::execute);
+    }
+
+    @Test
+    void readOnlyQueriesGoToReplica() {
+        orderService.createOrder(request(), WRITER_ID);
+
+        // Методы чтения репозиториев тоже транзакции только на чтение
+        assertThat(new JdbcTemplate(primaryDataSource).queryForObject("SELECT COUNT(*) FROM orders", Long.class))
+                .isEqualTo(1);
+        assertThat(orderRepository.count()).isZero();
+        assertThat(orderService.getOrdersByStatus(OrderStatus.CREATED, null, 10).orders()).isEmpty();
+        assertThat(orderService.getUserOrders(WRITER_ID + 1, null, 10).orders()).isEmpty();
+    }
+
+    @Test
+    void writerReadsOwnOrdersFromPrimary() {
+        OrderEntity order = orderService.createOrder(request(), WRITER_ID);
+
+        assertThat(orderService.getOrderById(order.getOrderId(), WRITER_ID).getOrderId())
+                .isEqualTo(order.getOrderId());
+        assertThat(orderService.getUserOrders(WRITER_ID, null, 10).orders())
+                .extracting(response -> response.getOrderId())
+                .containsExactly(order.getOrderId());
+    }
+
+    private CreateOrderRequest request() {
+        CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+        item.setProductId(phone);
+        item.setQuantity(1);
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setAddress("Москва");
+        request.setDeliveryMethod("COURIER");
+        request.setItems(List.of(item));
+        return request;
+    }
+}
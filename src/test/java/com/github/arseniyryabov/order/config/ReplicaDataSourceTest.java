@@ -0,0 +1,122 @@
+package com.github.arseniyryabov.order.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DataSource primary = h2("primary");
+
+    @Test
+    void readsAreSpreadOverReplicasRoundRobin() throws SQLException {
+        ReplicaDataSource dataSource = replicaDataSource(readYourWrites(true),
+                new ReplicaDataSource.Replica("replica-0", h2("replica0")),
+                new ReplicaDataSource.Replica("replica-1", h2("replica1")));
+
+        List<String> targets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            targets.add(target(dataSource));
+        }
+
+        assertThat(targets).containsExactly("replica0", "replica1", "replica0", "replica1");
+    }
+
+    @Test
+    void failingReplicaIsSkippedUntilHealthCheckSucceeds() throws SQLException {
+        AtomicBoolean down = new AtomicBoolean(true);
+        ReplicaDataSource dataSource = replicaDataSource(readYourWrites(true),
+                new ReplicaDataSource.Replica("replica-0", failing(h2("replica0"), down)),
+                new ReplicaDataSource.Replica("replica-1", h2("replica1")));
+
+        assertThat(List.of(target(dataSource), target(dataSource), target(dataSource)))
+                .containsOnly("replica1");
+        assertThat(dataSource.getReplicas().getFirst().isHealthy()).isFalse();
+        assertThat(meterRegistry.get("db.replica.healthy").tag("replica", "replica-0").gauge().value()).isZero();
+
+        down.set(false);
+        dataSource.checkHealth();
+
+        assertThat(List.of(target(dataSource), target(dataSource))).containsExactlyInAnyOrder("replica0", "replica1");
+    }
+
+    @Test
+    void readsFallBackToPrimaryWithoutHealthyReplicas() throws SQLException {
+        ReplicaDataSource dataSource = replicaDataSource(readYourWrites(true),
+                new ReplicaDataSource.Replica("replica-0", failing(h2("replica0"), new AtomicBoolean(true))));
+
+        assertThat(target(dataSource)).isEqualTo("primary");
+        assertThat(meterRegistry.get("db.reads.routed").tag("reason", "no_healthy_replica").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void recentWriterReadsFromPrimary() throws SQLException {
+        ReadYourWrites readYourWrites = readYourWrites(true);
+        ReplicaDataSource dataSource = replicaDataSource(readYourWrites,
+                new ReplicaDataSource.Replica("replica-0", h2("replica0")));
+        readYourWrites.recordWrite(1L);
+
+        assertThat(readYourWrites.read(1L, () -> uncheckedTarget(dataSource))).isEqualTo("primary");
+        assertThat(readYourWrites.read(2L, () -> uncheckedTarget(dataSource))).isEqualTo("replica0");
+        assertThat(readYourWrites(false).read(1L, () -> uncheckedTarget(dataSource))).isEqualTo("replica0");
+    }
+
+    private ReplicaDataSource replicaDataSource(ReadYourWrites readYourWrites, ReplicaDataSource.Replica... replicas) {
+        return new ReplicaDataSource(primary, List.of(replicas), readYourWrites, Duration.ofSeconds(1), meterRegistry);
+    }
+
+    private static ReadYourWrites readYourWrites(boolean enabled) {
+        ReadReplicaProperties properties = new ReadReplicaProperties();
+        properties.setEnabled(true);
+        properties.getReadYourWrites().setEnabled(enabled);
+        return new ReadYourWrites(properties);
+    }
+
+    // Имя базы, из которой получено соединение
+    private static String target(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            String url = connection.getMetaData().getURL();
+            return url.substring("jdbc:h2:mem:".length(), url.indexOf(';') > 0 ? url.indexOf(';') : url.length());
+        }
+    }
+
+    private static String uncheckedTarget(DataSource dataSource) {
+        try {
+            return target(dataSource);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+
+    // Реплика, отказывающая в соединении, пока down = true
+    private static DataSource failing(DataSource target, AtomicBoolean down) {
+        return new DelegatingDataSource(target) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (down.get()) {
+                    throw new SQLException("Connection refused");
+                }
+                return super.getConnection();
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.arseniyryabov.order.config;
+
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+// Режим кэша второго уровня без кэша ответов: повторное чтение заказа не обращается к БД
+@SpringBootTest(properties = {
+        "order.stock-outbox.enabled=false",
+        "order.cache.by-id.enabled=false",
+        "order.cache.second-level.enabled=true"})
+@ActiveProfiles("test")
+class SecondLevelCacheTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    @Test
+    void repeatedReadIsServedFromSecondLevelCache() {
+        UUID phone = UUID.randomUUID();
+        when(productServiceClient.getProductsForStockCheck(anyList())).thenReturn(List.of(
+                new ProductResponse(phone, "Телефон", new BigDecimal("100.00"), null, 10, null, null)));
+        CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+        item.setProductId(phone);
+        item.setQuantity(2);
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setAddress("Москва");
+        request.setDeliveryMethod("COURIER");
+        request.setItems(List.of(item));
+        OrderEntity order = orderService.createOrder(request, 1L);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        orderService.getOrderResponseById(order.getOrderId(), 1L);
+        statistics.clear();
+        orderService.getOrderResponseById(order.getOrderId(), 1L);
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+        assertThat(meterRegistry.find("hibernate.second.level.cache.requests").meters()).isNotEmpty();
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.arseniyryabov.order.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.arseniyryabov.order.config.OrderIntakeProperties;
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.exception.OrderIntakeOverloadedException;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import com.github.arseniyryabov.order.service.OrderIntakePipeline;
+import com.github.arseniyryabov.order.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "order.stock-outbox.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderAsyncIntakeTest {
+
+    private static final long USER_ID = 21L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderIntakePipeline orderIntakePipeline;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    private final UUID phone = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        stockOutboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        when(productServiceClient.getProductsForStockCheck(anyList())).thenReturn(List.of(
+                new ProductResponse(phone, "Телефон", new BigDecimal("100.00"), null, 10, null, null)));
+    }
+
+    @Test
+    void acceptedOrderIsCreatedInBackground() throws Exception {
+        MvcResult result = createOrderAsync(2)
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(OrderController.PREFERENCE_APPLIED_HEADER, OrderController.RESPOND_ASYNC))
+                .andReturn();
+        OrderResponse accepted = objectMapper.readValue(result.getResponse().getContentAsString(), OrderResponse.class);
+        assertThat(accepted.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(result.getResponse().getHeader("Location")).endsWith("/orders/" + accepted.getOrderId());
+
+        OrderEntity order = awaitStatusChange(accepted.getOrderId());
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.CREATED);
+        assertThat(order.getTotalAmount()).isEqualByComparingTo("200.00");
+        assertThat(order.getItems()).allSatisfy(item -> assertThat(item.getUnitPrice()).isEqualByComparingTo("100.00"));
+        assertThat(stockOutboxRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void orderFailingValidationMovesToFailedWithReason() throws Exception {
+        MvcResult result = createOrderAsync(11).andExpect(status().isAccepted()).andReturn();
+        UUID orderId = objectMapper.readValue(result.getResponse().getContentAsString(), OrderResponse.class)
+                .getOrderId();
+
+        OrderEntity order = awaitStatusChange(orderId);
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.FAILED);
+        assertThat(order.getFailureReason()).contains("Недостаточно");
+        assertThat(stockOutboxRepository.count()).isZero();
+    }
+
+    @Test
+    void recoveryExpiresOrdersPendingTooLong() {
+        OrderEntity order = orderService.createPendingOrder(request(1), USER_ID);
+        order.setCreatedAt(LocalDateTime.now().minusHours(1));
+        orderRepository.save(order);
+
+        orderIntakePipeline.recoverPending();
+
+        OrderEntity expired = orderRepository.findByOrderId(order.getOrderId()).orElseThrow();
+        assertThat(expired.getStatus()).isEqualTo(OrderStatus.FAILED);
+        assertThat(expired.getFailureReason()).startsWith("Заказ не обработан");
+    }
+
+    @Test
+    void fullQueueRejectsBeforeSavingOrder() throws Exception {
+        OrderService blockingService = mock(OrderService.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(blockingService.createPendingOrder(any(), anyLong())).thenAnswer(invocation -> {
+            OrderEntity order = new OrderEntity();
+            order.setOrderId(UUID.randomUUID());
+            return order;
+        });
+        when(blockingService.completePendingOrder(any())).thenAnswer(invocation -> {
+            release.await();
+            return OrderStatus.CREATED;
+        });
+        OrderIntakeProperties properties = new OrderIntakeProperties();
+        properties.setWorkers(1);
+        properties.setQueueCapacity(1);
+        properties.setShutdownTimeout(Duration.ofSeconds(1));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OrderIntakePipeline pipeline = new OrderIntakePipeline(blockingService, properties, meterRegistry);
+
+        // Один заказ у воркера, один в очереди
+        pipeline.accept(request(1), USER_ID);
+        pipeline.accept(request(1), USER_ID);
+        assertThatThrownBy(() -> pipeline.accept(request(1), USER_ID))
+                .isInstanceOf(OrderIntakeOverloadedException.class);
+        assertThat(meterRegistry.get("orders.intake.queue.depth").gauge().value()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("orders.intake.rejected").counter().count()).isEqualTo(1.0);
+
+        // После обработки места освобождаются
+        release.countDown();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (meterRegistry.get("orders.intake.workers.busy").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        pipeline.accept(request(1), USER_ID);
+        assertThat(meterRegistry.get("orders.intake.queue.time").timer().count()).isGreaterThanOrEqualTo(2);
+    }
+
+    private ResultActions createOrderAsync(int quantity) throws Exception {
+        return mockMvc.perform(post("/orders")
+                .header("X-User-Id", USER_ID)
+                .header(OrderController.PREFER_HEADER, OrderController.RESPOND_ASYNC)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request(quantity))));
+    }
+
+    private OrderEntity awaitStatusChange(UUID orderId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            OrderEntity order = orderRepository.findByOrderId(orderId).orElseThrow();
+            if (!OrderStatus.PENDING.equals(order.getStatus())) {
+                return order;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Заказ " + orderId + " не обработан");
+    }
+
+    private CreateOrderRequest request(int quantity) {
+        CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+        item.setProductId(phone);
+        item.setQuantity(quantity);
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setAddress("Москва");
+        request.setDeliveryMethod("COURIER");
+        request.setItems(List.of(item));
+        return request;
+    }
+}
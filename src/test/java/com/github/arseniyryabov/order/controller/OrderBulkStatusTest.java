@@ -0,0 +1,186 @@
+package com.github.arseniyryabov.order.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.arseniyryabov.order.controller.model.BulkStatusUpdateResponse;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderItemEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.entity.StockOutboxEntity;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "order.stock-outbox.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderBulkStatusTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @BeforeEach
+    void setUp() {
+        stockOutboxRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void listedOrdersAreUpdatedAndRejectionsReported() throws Exception {
+        UUID created = save(OrderStatus.CREATED, 1);
+        UUID processing = save(OrderStatus.PROCESSING, 1);
+        UUID shipped = save(OrderStatus.SHIPPED, 1);
+        UUID missing = UUID.randomUUID();
+
+        BulkStatusUpdateResponse response = response(updateStatuses(Map.of(
+                "status", OrderStatus.PROCESSING,
+                "orderIds", List.of(created, processing, shipped, missing, created)))
+                .andExpect(status().isOk()));
+
+        assertThat(response.getUpdated()).isEqualTo(1);
+        assertThat(response.getUnchanged()).isEqualTo(1);
+        assertThat(response.getRejections()).containsExactly(
+                new BulkStatusUpdateResponse.Rejection(shipped, OrderStatus.SHIPPED, "INVALID_TRANSITION"),
+                new BulkStatusUpdateResponse.Rejection(missing, null, "NOT_FOUND"));
+        OrderEntity updated = orderRepository.findByOrderId(created).orElseThrow();
+        assertThat(updated.getStatus()).isEqualTo(OrderStatus.PROCESSING);
+        assertThat(updated.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void cancellationQueuesStockReturnsInSamePass() throws Exception {
+        UUID created = save(OrderStatus.CREATED, 2);
+        UUID processing = save(OrderStatus.PROCESSING, 1);
+        UUID delivered = save(OrderStatus.DELIVERED, 3);
+
+        BulkStatusUpdateResponse response = response(updateStatuses(Map.of(
+                "status", OrderStatus.CANCELLED,
+                "orderIds", List.of(created, processing, delivered)))
+                .andExpect(status().isOk()));
+
+        assertThat(response.getUpdated()).isEqualTo(2);
+        assertThat(response.getRejected()).isEqualTo(1);
+        assertThat(stockOutboxRepository.findAll())
+                .allSatisfy(record -> assertThat(record.getOperation()).isEqualTo(StockOutboxEntity.Operation.INCREASE))
+                .extracting(StockOutboxEntity::getOrderId)
+                .containsExactlyInAnyOrder(created, created, processing);
+    }
+
+    @Test
+    void filterUpdatesAllMatchingOrdersInChunks() throws Exception {
+        List<OrderEntity> orders = new ArrayList<>();
+        IntStream.range(0, 2_500).forEach(i -> orders.add(order(OrderStatus.CREATED, BASE.plusSeconds(i), 1)));
+        orders.add(order(OrderStatus.CREATED, BASE.minusDays(1), 1));
+        orders.add(order(OrderStatus.PROCESSING, BASE.plusSeconds(1), 1));
+        orderRepository.saveAll(orders);
+
+        BulkStatusUpdateResponse response = response(updateStatuses(Map.of(
+                "status", OrderStatus.PROCESSING,
+                "filter", Map.of(
+                        "status", OrderStatus.CREATED,
+                        "createdFrom", BASE.toString(),
+                        "createdTo", BASE.plusDays(1).toString())))
+                .andExpect(status().isOk()));
+
+        assertThat(response.getUpdated()).isEqualTo(2_500);
+        assertThat(response.getRejections()).isEmpty();
+        assertThat(orderRepository.findAll())
+                .filteredOn(order -> OrderStatus.CREATED.equals(order.getStatus()))
+                .extracting(OrderEntity::getCreatedAt)
+                .containsExactly(BASE.minusDays(1));
+    }
+
+    @Test
+    void disallowedFilterTransitionIsRejectedWithConflict() throws Exception {
+        updateStatuses(Map.of(
+                "status", OrderStatus.DELIVERED,
+                "filter", Map.of(
+                        "status", OrderStatus.CREATED,
+                        "createdFrom", BASE.toString(),
+                        "createdTo", BASE.plusDays(1).toString())))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void requestMustSelectOrdersOneWay() throws Exception {
+        updateStatuses(Map.of("status", OrderStatus.SHIPPED))
+                .andExpect(status().isBadRequest());
+        updateStatuses(Map.of(
+                "status", OrderStatus.SHIPPED,
+                "orderIds", List.of(UUID.randomUUID()),
+                "filter", Map.of("status", OrderStatus.PROCESSING)))
+                .andExpect(status().isBadRequest());
+        updateStatuses(Map.of(
+                "status", OrderStatus.SHIPPED,
+                "filter", Map.of("status", OrderStatus.PROCESSING)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions updateStatuses(Map<String, Object> body) throws Exception {
+        return mockMvc.perform(patch("/orders/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body)));
+    }
+
+    private BulkStatusUpdateResponse response(ResultActions result) throws Exception {
+        return objectMapper.readValue(result.andReturn().getResponse().getContentAsString(),
+                BulkStatusUpdateResponse.class);
+    }
+
+    private UUID save(String status, int itemCount) {
+        return orderRepository.save(order(status, BASE, itemCount)).getOrderId();
+    }
+
+    private static OrderEntity order(String status, LocalDateTime createdAt, int itemCount) {
+        OrderEntity order = new OrderEntity();
+        order.setUserId(1L);
+        order.setAddress("Москва");
+        order.setDeliveryMethod("COURIER");
+        order.setStatus(status);
+        order.setTotalAmount(BigDecimal.TEN);
+        order.setCreatedAt(createdAt);
+        order.setItems(IntStream.range(0, itemCount).mapToObj(i -> {
+            OrderItemEntity item = new OrderItemEntity();
+            item.setOrder(order);
+            item.setProductId(UUID.randomUUID());
+            item.setQuantity(1);
+            return item;
+        }).toList());
+        return order;
+    }
+}
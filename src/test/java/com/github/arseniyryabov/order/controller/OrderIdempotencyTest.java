@@ -0,0 +1,276 @@
+package com.github.arseniyryabov.order.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+import com.github.arseniyryabov.order.entity.IdempotencyKeyEntity;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.repository.IdempotencyKeyRepository;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import com.github.arseniyryabov.order.service.OrderIdempotencyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "order.stock-outbox.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderIdempotencyTest {
+
+    private static final long USER_ID = 7L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private OrderIdempotencyService orderIdempotencyService;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    private final UUID phone = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyKeyRepository.deleteAll();
+        stockOutboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        when(productServiceClient.getProductsForStockCheck(anyList())).thenReturn(List.of(product()));
+    }
+
+    @Test
+    void repeatedKeyReplaysFirstResponseWithoutCreatingOrder() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        OrderResponse first = response(createOrder(key, 1)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(OrderController.IDEMPOTENT_REPLAYED_HEADER, "false")));
+        OrderResponse repeated = response(createOrder(key, 1)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(OrderController.IDEMPOTENT_REPLAYED_HEADER, "true")));
+
+        assertThat(repeated).isEqualTo(first);
+        assertThat(orderRepository.count()).isEqualTo(1);
+        verify(productServiceClient, times(1)).getProductsForStockCheck(anyList());
+        IdempotencyKeyEntity stored = idempotencyKeyRepository.findByUserIdAndIdempotencyKey(USER_ID, key).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(IdempotencyKeyEntity.Status.COMPLETED);
+        assertThat(stored.getOrderId()).isEqualTo(first.getOrderId());
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForFirstRequest() throws Exception {
+        when(productServiceClient.getProductsForStockCheck(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return List.of(product());
+        });
+        String key = UUID.randomUUID().toString();
+
+        List<Future<MvcResult>> requests = new ArrayList<>();
+        try (ExecutorService clients = Executors.newFixedThreadPool(5)) {
+            for (int i = 0; i < 5; i++) {
+                requests.add(clients.submit(() -> createOrder(key, 1).andReturn()));
+            }
+        }
+
+        List<UUID> orderIds = new ArrayList<>();
+        for (Future<MvcResult> request : requests) {
+            MvcResult result = request.get();
+            assertThat(result.getResponse().getStatus()).isEqualTo(201);
+            orderIds.add(objectMapper.readValue(result.getResponse().getContentAsString(), OrderResponse.class)
+                    .getOrderId());
+        }
+        assertThat(orderIds).containsOnly(orderIds.getFirst());
+        assertThat(orderRepository.count()).isEqualTo(1);
+        verify(productServiceClient, times(1)).getProductsForStockCheck(anyList());
+    }
+
+    @Test
+    void duplicateInFlightOnAnotherInstanceWaitsForItsResponse() throws Exception {
+        IdempotencyKeyEntity done = completedKey();
+        // Тот же запрос с другим ключом выполняется на другом экземпляре
+        IdempotencyKeyEntity inFlight = idempotencyKeyRepository.save(
+                inProgressKey("in-flight", done.getRequestHash(), LocalDateTime.now().plusSeconds(5)));
+
+        Future<MvcResult> duplicate;
+        try (ExecutorService client = Executors.newSingleThreadExecutor()) {
+            duplicate = client.submit(() -> createOrder("in-flight", 1).andReturn());
+            Thread.sleep(300);
+            inFlight.setStatus(IdempotencyKeyEntity.Status.COMPLETED);
+            inFlight.setOrderId(done.getOrderId());
+            inFlight.setResponse(done.getResponse());
+            idempotencyKeyRepository.save(inFlight);
+        }
+
+        MvcResult result = duplicate.get();
+        assertThat(result.getResponse().getStatus()).isEqualTo(201);
+        assertThat(result.getResponse().getHeader(OrderController.IDEMPOTENT_REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(objectMapper.readValue(result.getResponse().getContentAsString(), OrderResponse.class).getOrderId())
+                .isEqualTo(done.getOrderId());
+        assertThat(orderRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void duplicateInFlightPastItsDeadlineIsRejected() throws Exception {
+        IdempotencyKeyEntity done = completedKey();
+        idempotencyKeyRepository.save(
+                inProgressKey("stuck", done.getRequestHash(), LocalDateTime.now().plusNanos(300_000_000)));
+
+        long started = System.nanoTime();
+        createOrder("stuck", 1).andExpect(status().isConflict());
+
+        assertThat(System.nanoTime() - started).isGreaterThanOrEqualTo(250_000_000L);
+        assertThat(orderRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void orderIsRolledBackWhenKeyWasTakenOverMeanwhile() throws Exception {
+        when(productServiceClient.getProductsForStockCheck(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return List.of(product());
+        });
+        String key = UUID.randomUUID().toString();
+
+        Future<MvcResult> request;
+        try (ExecutorService client = Executors.newSingleThreadExecutor()) {
+            request = client.submit(() -> createOrder(key, 1).andReturn());
+            Thread.sleep(100);
+            // Ключ забран повтором на другом экземпляре (например, после паузы этого запроса дольше срока ключа)
+            IdempotencyKeyEntity taken = idempotencyKeyRepository.findByUserIdAndIdempotencyKey(USER_ID, key).orElseThrow();
+            taken.setCreatedAt(taken.getCreatedAt().plusSeconds(1));
+            idempotencyKeyRepository.save(taken);
+        }
+
+        assertThat(request.get().getResponse().getStatus()).isEqualTo(409);
+        assertThat(orderRepository.count()).isZero();
+        // Ключ нового владельца не освобожден
+        assertThat(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(USER_ID, key).orElseThrow().getStatus())
+                .isEqualTo(IdempotencyKeyEntity.Status.IN_PROGRESS);
+    }
+
+    @Test
+    void keyReusedWithDifferentBodyIsRejected() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        createOrder(key, 1).andExpect(status().isCreated());
+        createOrder(key, 2).andExpect(status().isUnprocessableEntity());
+
+        assertThat(orderRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedRequestReleasesKeyForRetry() throws Exception {
+        when(productServiceClient.getProductsForStockCheck(anyList()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(product()));
+        String key = UUID.randomUUID().toString();
+
+        createOrder(key, 1).andExpect(status().isNotFound());
+        assertThat(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(USER_ID, key)).isEmpty();
+
+        createOrder(key, 1)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(OrderController.IDEMPOTENT_REPLAYED_HEADER, "false"));
+        assertThat(orderRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void sweeperDeletesOnlyExpiredKeys() {
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyKeyRepository.save(key("expired", now.minusMinutes(1)));
+        idempotencyKeyRepository.save(key("active", now.plusHours(1)));
+
+        orderIdempotencyService.sweepExpired();
+
+        assertThat(idempotencyKeyRepository.findAll())
+                .extracting(IdempotencyKeyEntity::getIdempotencyKey)
+                .containsExactly("active");
+    }
+
+    private ResultActions createOrder(String idempotencyKey, int quantity) throws Exception {
+        return mockMvc.perform(post("/orders")
+                .header("X-User-Id", USER_ID)
+                .header(OrderController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"address":"Москва","deliveryMethod":"COURIER",
+                         "items":[{"productId":"%s","quantity":%d}]}""".formatted(phone, quantity)));
+    }
+
+    private OrderResponse response(ResultActions result) throws Exception {
+        return objectMapper.readValue(result.andReturn().getResponse().getContentAsString(), OrderResponse.class);
+    }
+
+    private ProductResponse product() {
+        return new ProductResponse(phone, "Телефон", new BigDecimal("100.00"), null, 1_000, null, null);
+    }
+
+    // Завершенный ключ настоящего запроса: его хэш и ответ используются ключами "других экземпляров"
+    private IdempotencyKeyEntity completedKey() throws Exception {
+        String key = UUID.randomUUID().toString();
+        createOrder(key, 1).andExpect(status().isCreated());
+        return idempotencyKeyRepository.findByUserIdAndIdempotencyKey(USER_ID, key).orElseThrow();
+    }
+
+    private static IdempotencyKeyEntity inProgressKey(String idempotencyKey, String requestHash,
+                                                      LocalDateTime expiresAt) {
+        IdempotencyKeyEntity entity = key(idempotencyKey, expiresAt);
+        entity.setRequestHash(requestHash);
+        entity.setStatus(IdempotencyKeyEntity.Status.IN_PROGRESS);
+        entity.setCreatedAt(LocalDateTime.now());
+        return entity;
+    }
+
+    private static IdempotencyKeyEntity key(String idempotencyKey, LocalDateTime expiresAt) {
+        IdempotencyKeyEntity entity = new IdempotencyKeyEntity();
+        entity.setUserId(USER_ID);
+        entity.setIdempotencyKey(idempotencyKey);
+        entity.setRequestHash("0".repeat(64));
+        entity.setStatus(IdempotencyKeyEntity.Status.COMPLETED);
+        entity.setCreatedAt(expiresAt.minusHours(24));
+        entity.setExpiresAt(expiresAt);
+        return entity;
+    }
+}
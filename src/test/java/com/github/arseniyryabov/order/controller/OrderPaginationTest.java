@@ -0,0 +1,146 @@
+package com.github.arseniyryabov.order.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderItemEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderPaginationTest {
+
+    private static final long USER_ID = 42L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    private List<OrderEntity> userOrders;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+
+        // Часть заказов создана в одну и ту же секунду, порядок внутри нее задает order_id
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<OrderEntity> orders = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            orders.add(order(USER_ID, OrderStatus.CREATED, base.plusSeconds(i / 3)));
+        }
+        for (int i = 0; i < 30; i++) {
+            orders.add(order(USER_ID + 1, OrderStatus.SHIPPED, base.plusSeconds(i)));
+        }
+        orderRepository.saveAll(orders);
+        userOrders = orders.subList(0, 120);
+    }
+
+    @Test
+    void userOrdersArePagedByCursorWithoutGapsOrDuplicates() throws Exception {
+        List<OrderResponse> collected = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            var requestBuilder = get("/orders").header("X-User-Id", USER_ID).param("limit", "50");
+            if (cursor != null) {
+                requestBuilder.param("cursor", cursor);
+            }
+            MvcResult result = mockMvc.perform(requestBuilder).andExpect(status().isOk()).andReturn();
+            List<OrderResponse> page = objectMapper.readValue(
+                    result.getResponse().getContentAsByteArray(), new TypeReference<>() {});
+            pageSizes.add(page.size());
+            collected.addAll(page);
+            cursor = result.getResponse().getHeader(OrderController.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertThat(pageSizes).containsExactly(50, 50, 20);
+        // Порядок order_id внутри одной секунды задает БД, поэтому проверяется только порядок по времени
+        assertThat(collected).extracting(OrderResponse::getOrderId)
+                .doesNotHaveDuplicates()
+                .containsExactlyInAnyOrderElementsOf(userOrders.stream().map(OrderEntity::getOrderId).toList());
+        assertThat(collected).extracting(OrderResponse::getCreatedAt)
+                .isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(collected).allSatisfy(order -> assertThat(order.getItems()).hasSize(2));
+    }
+
+    @Test
+    void invalidCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/orders/status/CREATED").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void ordersByStatusAreStreamedAsNdjson() throws Exception {
+        MvcResult started = mockMvc.perform(get("/orders/status/SHIPPED/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+
+        List<OrderResponse> streamed = new ArrayList<>();
+        for (String line : Arrays.stream(result.getResponse().getContentAsString().split("\n"))
+                .filter(line -> !line.isBlank()).toList()) {
+            streamed.add(objectMapper.readValue(line, OrderResponse.class));
+        }
+
+        assertThat(streamed).hasSize(30);
+        assertThat(streamed).allSatisfy(order -> {
+            assertThat(order.getStatus()).isEqualTo(OrderStatus.SHIPPED);
+            assertThat(order.getItems()).hasSize(2);
+        });
+    }
+
+    private static OrderEntity order(Long userId, String status, LocalDateTime createdAt) {
+        OrderEntity order = new OrderEntity();
+        order.setUserId(userId);
+        order.setAddress("Москва");
+        order.setDeliveryMethod("COURIER");
+        order.setStatus(status);
+        order.setTotalAmount(BigDecimal.TEN);
+        order.setCreatedAt(createdAt);
+        order.setItems(List.of(item(order), item(order)));
+        return order;
+    }
+
+    private static OrderItemEntity item(OrderEntity order) {
+        OrderItemEntity item = new OrderItemEntity();
+        item.setOrder(order);
+        item.setProductId(UUID.randomUUID());
+        item.setQuantity(1);
+        return item;
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.arseniyryabov.order.controller;
+
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.entity.StockOutboxEntity;
+import com.github.arseniyryabov.order.exception.InvalidStatusTransitionException;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import com.github.arseniyryabov.order.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "order.stock-outbox.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderStatusTransitionTest {
+
+    private static final long USER_ID = 24L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    private final UUID phone = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        stockOutboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        when(productServiceClient.getProductsForStockCheck(anyList())).thenReturn(List.of(
+                new ProductResponse(phone, "Телефон", new BigDecimal("100.00"), null, 10, null, null)));
+    }
+
+    @Test
+    void orderMovesThroughDeliveryChain() throws Exception {
+        UUID orderId = orderService.createOrder(request(), USER_ID).getOrderId();
+
+        for (String status : List.of(OrderStatus.PROCESSING, OrderStatus.SHIPPED,
+                OrderStatus.DELIVERED)) {
+            mockMvc.perform(patch("/orders/{orderId}/status", orderId).param("status", status))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value(status));
+        }
+
+        OrderEntity delivered = orderRepository.findByOrderId(orderId).orElseThrow();
+        assertThat(delivered.getStatus()).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(delivered.getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    void skippedStepIsRejectedWithConflict() throws Exception {
+        UUID orderId = orderService.createOrder(request(), USER_ID).getOrderId();
+
+        mockMvc.perform(patch("/orders/{orderId}/status", orderId).param("status", OrderStatus.DELIVERED))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Invalid Status Transition"));
+
+        assertThat(orderRepository.findByOrderId(orderId).orElseThrow().getStatus())
+                .isEqualTo(OrderStatus.CREATED);
+    }
+
+    @Test
+    void cancellationReturnsStockOnlyBeforeShipping() {
+        UUID cancelled = orderService.createOrder(request(), USER_ID).getOrderId();
+        UUID shipped = orderService.createOrder(request(), USER_ID).getOrderId();
+        orderService.updateOrderStatus(shipped, OrderStatus.PROCESSING);
+        orderService.updateOrderStatus(shipped, OrderStatus.SHIPPED);
+
+        orderService.updateOrderStatus(cancelled, OrderStatus.CANCELLED);
+        // Повтор отмены не ошибка и не возвращает товары второй раз
+        orderService.updateOrderStatus(cancelled, OrderStatus.CANCELLED);
+        assertThatThrownBy(() -> orderService.updateOrderStatus(shipped, OrderStatus.CANCELLED))
+                .isInstanceOf(InvalidStatusTransitionException.class);
+
+        assertThat(stockOutboxRepository.findAll())
+                .filteredOn(record -> StockOutboxEntity.Operation.INCREASE.equals(record.getOperation()))
+                .extracting(StockOutboxEntity::getOrderId)
+                .containsExactly(cancelled);
+    }
+
+    @Test
+    void concurrentCancelAndShipApplyOnlyOne() throws Exception {
+        UUID orderId = orderService.createOrder(request(), USER_ID).getOrderId();
+        orderService.updateOrderStatus(orderId, OrderStatus.PROCESSING);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService clients = Executors.newFixedThreadPool(2)) {
+            for (String status : List.of(OrderStatus.CANCELLED, OrderStatus.SHIPPED)) {
+                results.add(clients.submit(() -> {
+                    start.await();
+                    try {
+                        return orderService.updateOrderStatus(orderId, status).getStatus();
+                    } catch (InvalidStatusTransitionException e) {
+                        return "CONFLICT";
+                    }
+                }));
+            }
+            start.countDown();
+        }
+
+        List<String> outcomes = new ArrayList<>();
+        for (Future<String> result : results) {
+            outcomes.add(result.get());
+        }
+        assertThat(outcomes).containsOnlyOnce("CONFLICT");
+        String applied = outcomes.stream().filter(outcome -> !"CONFLICT".equals(outcome)).findFirst().orElseThrow();
+        OrderEntity order = orderRepository.findByOrderId(orderId).orElseThrow();
+        assertThat(order.getStatus()).isEqualTo(applied);
+        assertThat(order.getVersion()).isEqualTo(2);
+    }
+
+    private CreateOrderRequest request() {
+        CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+        item.setProductId(phone);
+        item.setQuantity(1);
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setAddress("Москва");
+        request.setDeliveryMethod("COURIER");
+        request.setItems(List.of(item));
+        return request;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.arseniyryabov.order.entity;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/* Сравнение вставки заказов с ключами UUIDv4 и UUIDv7 на файловой БД H2
+Запуск: ORDER_BENCHMARKS=true ./gradlew test --tests '*TimeOrderedUuidBenchmarkTest*' */
+@EnabledIfEnvironmentVariable(named = "ORDER_BENCHMARKS", matches = "true")
+class TimeOrderedUuidBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compareInsertThroughputAndIndexSize() throws Exception {
+        // Прогрев JIT и драйвера
+        run("warmup-v4", UUID::randomUUID, 100_000);
+        run("warmup-v7", TimeOrderedUuidGenerator::nextUuid, 100_000);
+
+        report("UUIDv4 (random)", run("v4", UUID::randomUUID, ROWS));
+        report("UUIDv7 (time-ordered)", run("v7", TimeOrderedUuidGenerator::nextUuid, ROWS));
+    }
+
+    private Result run(String name, Supplier<UUID> ids, int rows) throws Exception {
+        String url = "jdbc:h2:file:" + directory.resolve(name).toAbsolutePath() + ";CACHE_SIZE=65536";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table orders (order_id uuid primary key, user_id bigint not null, " +
+                        "status varchar(32) not null, created_at timestamp not null)");
+            }
+            connection.setAutoCommit(false);
+
+            long started = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into orders (order_id, user_id, status, created_at) values (?, ?, ?, ?)")) {
+                for (int i = 1; i <= rows; i++) {
+                    insert.setObject(1, ids.get());
+                    insert.setLong(2, i % 10_000);
+                    insert.setString(3, "CREATED");
+                    insert.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                    insert.addBatch();
+                    if (i % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("checkpoint sync");
+                try (ResultSet size = statement.executeQuery("select disk_space_used('ORDERS')")) {
+                    size.next();
+                    return new Result(rows / seconds, size.getLong(1));
+                }
+            }
+        }
+    }
+
+    private static void report(String generator, Result result) {
+        System.out.printf("%-24s %,10.0f rows/s  table+pk %,8d KiB%n",
+                generator, result.rowsPerSecond(), result.bytesUsed() / 1024);
+    }
+
+    private record Result(double rowsPerSecond, long bytesUsed) {
+    }
+}
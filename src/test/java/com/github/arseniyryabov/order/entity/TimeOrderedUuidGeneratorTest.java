@@ -0,0 +1,61 @@
+package com.github.arseniyryabov.order.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedUuidGeneratorTest {
+
+    // Порядок как у uuid в PostgreSQL: беззнаковое побайтовое сравнение
+    private static final Comparator<UUID> UNSIGNED_ORDER = Comparator
+            .comparing((UUID uuid) -> uuid.getMostSignificantBits(), Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @Test
+    void generatesVersion7UuidsWithCurrentTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID uuid = TimeOrderedUuidGenerator.nextUuid();
+
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        // Время может опережать часы только после переполнения счетчика, т.е. не больше чем на несколько мс
+        assertThat(uuid.getMostSignificantBits() >>> 16).isBetween(before, System.currentTimeMillis() + 1_000);
+    }
+
+    @Test
+    void uuidsAreUniqueAndIncreasingUnderConcurrentGeneration() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        List<Future<List<UUID>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    List<UUID> generated = new ArrayList<>(perThread);
+                    for (int j = 0; j < perThread; j++) {
+                        generated.add(TimeOrderedUuidGenerator.nextUuid());
+                    }
+                    return generated;
+                }));
+            }
+
+            Set<UUID> all = new HashSet<>();
+            for (Future<List<UUID>> result : results) {
+                List<UUID> generated = result.get();
+                // Внутри потока каждый следующий ключ больше предыдущего, в том числе в одной миллисекунде
+                assertThat(generated).isSortedAccordingTo(UNSIGNED_ORDER);
+                all.addAll(generated);
+            }
+            assertThat(all).hasSize(threads * perThread);
+        }
+    }
+}
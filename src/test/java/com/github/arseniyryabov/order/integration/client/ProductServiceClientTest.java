@@ -0,0 +1,139 @@
+package com.github.arseniyryabov.order.integration.client;
+
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.config.ResilienceSettings;
+import com.github.arseniyryabov.order.exception.ProductNotFoundException;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class ProductServiceClientTest {
+
+    private final UUID productId = UUID.randomUUID();
+    private final ProductServiceProperties properties = new ProductServiceProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MockRestServiceServer productServer;
+
+    private ProductServiceClient client() {
+        RestClient.Builder builder = RestClient.builder().baseUrl("http://product-service");
+        productServer = MockRestServiceServer.bindTo(builder).build();
+        return new ProductServiceClient(builder.build(), new ProductCatalogCache(properties, meterRegistry),
+                new DownstreamResilience("product-service", new ResilienceSettings(), meterRegistry), meterRegistry);
+    }
+
+    @Test
+    void repeatedLookupsAreServedFromCache() {
+        ProductServiceClient client = client();
+        productServer.expect(ExpectedCount.once(), requestTo("http://product-service/products/" + productId))
+                .andRespond(withSuccess(productJson(productId, 7), MediaType.APPLICATION_JSON));
+
+        client.getProductById(productId);
+        assertThat(client.getProductPrice(productId)).isEqualByComparingTo(new BigDecimal("10.00"));
+        assertThat(client.isProductExists(productId)).isTrue();
+        assertThat(client.getProductsByIds(List.of(productId))).hasSize(1);
+
+        productServer.verify();
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "product.catalog").tag("result", "hit")
+                .functionCounter().count()).isGreaterThan(0);
+    }
+
+    @Test
+    void staleStockIsRefetchedWhilePriceIsStillCached() {
+        properties.getCache().setStockTtl(Duration.ZERO);
+        ProductServiceClient client = client();
+        productServer.expect(ExpectedCount.twice(), requestTo("http://product-service/products/" + productId))
+                .andRespond(withSuccess(productJson(productId, 7), MediaType.APPLICATION_JSON));
+
+        client.getProductById(productId);
+        client.getProductPrice(productId);
+        client.getProductById(productId);
+
+        productServer.verify();
+    }
+
+    @Test
+    void notFoundResponsesAreCached() {
+        ProductServiceClient client = client();
+        productServer.expect(ExpectedCount.once(), requestTo("http://product-service/products/" + productId))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+        assertThatThrownBy(() -> client.getProductById(productId)).isInstanceOf(ProductNotFoundException.class);
+        assertThatThrownBy(() -> client.getProductById(productId)).isInstanceOf(ProductNotFoundException.class);
+        assertThat(client.isProductExists(productId)).isFalse();
+
+        productServer.verify();
+    }
+
+    @Test
+    void strictModeBypassesCacheForStockChecks() {
+        properties.getCache().setStrictStockChecks(true);
+        ProductServiceClient client = client();
+        productServer.expect(ExpectedCount.times(3), requestTo("http://product-service/products/batch"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("[" + productJson(productId, 7) + "]", MediaType.APPLICATION_JSON));
+
+        client.getProductsForStockCheck(List.of(productId));
+        client.getProductsForStockCheck(List.of(productId));
+        client.getProductsStockInfo(List.of(productId));
+        // Обычные чтения по-прежнему используют кэш
+        client.getProductsByIds(List.of(productId));
+
+        productServer.verify();
+    }
+
+    @Test
+    void concurrentLookupsOfSameProductProduceOneRequest() throws Exception {
+        // Кэш выключен, чтобы повторные запросы объединялись только через single-flight
+        properties.getCache().setEnabled(false);
+        ProductServiceClient client = client();
+        int callers = 32;
+        productServer.expect(ExpectedCount.once(), requestTo("http://product-service/products/" + productId))
+                .andRespond(request -> {
+                    await().atMost(5, TimeUnit.SECONDS).until(() -> meterRegistry.get("product.lookups.coalesced")
+                            .tag("mode", "single").counter().count() == callers - 1);
+                    return withSuccess(productJson(productId, 7), MediaType.APPLICATION_JSON).createResponse(request);
+                });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ProductResponse>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> client.getProductById(productId)));
+            }
+            for (Future<ProductResponse> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).getProductId()).isEqualTo(productId);
+            }
+        }
+        productServer.verify();
+    }
+
+    private static String productJson(UUID productId, int stockQuantity) {
+        return """
+                {"productId":"%s","name":"Товар","price":10.00,"stockQuantity":%d}"""
+                .formatted(productId, stockQuantity);
+    }
+}
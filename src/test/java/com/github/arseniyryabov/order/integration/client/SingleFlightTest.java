@@ -0,0 +1,183 @@
+package com.github.arseniyryabov.order.integration.client;
+
+import com.github.arseniyryabov.order.exception.ProductNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class SingleFlightTest {
+
+    private final Counter savedCalls = new SimpleMeterRegistry().counter("saved");
+    private final SingleFlight<UUID, String> singleFlight = new SingleFlight<>(savedCalls);
+
+    @Test
+    void concurrentCallersForSameKeyShareOneCall() throws Exception {
+        int callers = 64;
+        UUID productId = UUID.randomUUID();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.execute(productId, () -> {
+                    calls.incrementAndGet();
+                    awaitQuietly(release);
+                    return "product";
+                })));
+            }
+
+            // Все остальные вызывающие присоединились к запросу первого
+            await().atMost(5, TimeUnit.SECONDS).until(() -> savedCalls.count() == callers - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("product");
+            }
+        }
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void exceptionIsSharedWithJoinedCallers() throws InterruptedException {
+        UUID productId = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> singleFlight.execute(productId, () -> {
+                started.countDown();
+                awaitQuietly(release);
+                throw new ProductNotFoundException(productId);
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> follower = executor.submit(() -> singleFlight.execute(productId, () -> "второй вызов"));
+
+            await().atMost(5, TimeUnit.SECONDS).until(() -> savedCalls.count() == 1);
+            release.countDown();
+
+            assertThatThrownBy(leader::get).hasCauseInstanceOf(ProductNotFoundException.class);
+            assertThatThrownBy(follower::get).hasCauseInstanceOf(ProductNotFoundException.class);
+        }
+    }
+
+    @Test
+    void errorCompletesJoinedCallers() throws InterruptedException {
+        UUID productId = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> singleFlight.execute(productId, () -> {
+                started.countDown();
+                awaitQuietly(release);
+                throw new StackOverflowError();
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> follower = executor.submit(() -> singleFlight.execute(productId, () -> "второй вызов"));
+
+            await().atMost(5, TimeUnit.SECONDS).until(() -> savedCalls.count() == 1);
+            release.countDown();
+
+            assertThatThrownBy(leader::get).hasCauseInstanceOf(StackOverflowError.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        }
+    }
+
+    @Test
+    void cancelledLeaderDoesNotFailJoinedCallers() throws Exception {
+        UUID productId = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> singleFlight.execute(productId, () -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Вызов прерван");
+                }
+                return "первый вызов";
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> follower = executor.submit(() -> singleFlight.execute(productId, () -> "второй вызов"));
+            await().atMost(5, TimeUnit.SECONDS).until(() -> savedCalls.count() == 1);
+
+            // Отмена задачи первого вызывающего (как в ParallelLookups) не передается присоединившемуся
+            leader.cancel(true);
+
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("второй вызов");
+        }
+    }
+
+    @Test
+    void overlappingBatchesRequestEachKeyOnce() throws Exception {
+        UUID shared = UUID.randomUUID();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        List<List<UUID>> requested = new ArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Map<UUID, String>> firstBatch = executor.submit(() ->
+                    singleFlight.executeAll(List.of(shared, first), ids -> {
+                        synchronized (requested) {
+                            requested.add(ids);
+                        }
+                        awaitQuietly(release);
+                        return Map.of(shared, "shared", first, "first");
+                    }));
+            await().atMost(5, TimeUnit.SECONDS).until(() -> {
+                synchronized (requested) {
+                    return requested.size() == 1;
+                }
+            });
+
+            Future<Map<UUID, String>> secondBatch = executor.submit(() ->
+                    singleFlight.executeAll(List.of(shared, second), ids -> {
+                        synchronized (requested) {
+                            requested.add(ids);
+                        }
+                        return Map.of(second, "second");
+                    }));
+            await().atMost(5, TimeUnit.SECONDS).until(() -> {
+                synchronized (requested) {
+                    return requested.size() == 2;
+                }
+            });
+            release.countDown();
+
+            assertThat(firstBatch.get(5, TimeUnit.SECONDS)).containsOnlyKeys(shared, first);
+            assertThat(secondBatch.get(5, TimeUnit.SECONDS))
+                    .containsEntry(shared, "shared")
+                    .containsEntry(second, "second");
+        }
+        // Общий товар запрошен только первым пакетом
+        assertThat(requested.get(1)).containsExactly(second);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.arseniyryabov.order.integration.client;
+
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.config.ResilienceSettings;
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import com.github.arseniyryabov.order.support.StubProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StockDecrementDispatcherTest {
+
+    private StubProductService productService;
+    private StockDecrementDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        productService = StubProductService.start();
+        ProductServiceProperties properties = new ProductServiceProperties();
+        properties.getStockBatching().setEnabled(true);
+        properties.getStockBatching().setWindow(Duration.ofMillis(20));
+        properties.getStockBatching().setMaxBatchSize(256);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProductServiceClient client = new ProductServiceClient(
+                RestClient.builder().baseUrl(productService.baseUrl()).build(),
+                new ProductCatalogCache(properties, meterRegistry),
+                new DownstreamResilience("product-service", new ResilienceSettings(), meterRegistry),
+                meterRegistry);
+        dispatcher = new StockDecrementDispatcher(client, properties, meterRegistry);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.stop();
+        productService.close();
+    }
+
+    @Test
+    void concurrentDecrementsAreMergedIntoFewBatchCalls() {
+        List<UUID> productIds = List.of(
+                productService.addProduct(BigDecimal.TEN, 1_000),
+                productService.addProduct(BigDecimal.TEN, 1_000),
+                productService.addProduct(BigDecimal.TEN, 1_000));
+
+        List<CompletableFuture<Void>> decrements = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            decrements.add(dispatcher.decrease(productIds.get(i % 3), 2));
+        }
+        CompletableFuture.allOf(decrements.toArray(CompletableFuture[]::new)).orTimeout(5, TimeUnit.SECONDS).join();
+
+        productIds.forEach(productId -> assertThat(productService.stock(productId)).isEqualTo(800));
+        assertThat(productService.requestCount("decrease")).isZero();
+        assertThat(productService.requestCount("decrease-batch")).isBetween(1, 10);
+    }
+
+    @Test
+    void failedMergedDecrementIsRetriedPerCaller() {
+        UUID scarce = productService.addProduct(BigDecimal.TEN, 3);
+        UUID plenty = productService.addProduct(BigDecimal.TEN, 100);
+
+        CompletableFuture<Void> first = dispatcher.decrease(scarce, 2);
+        CompletableFuture<Void> second = dispatcher.decrease(scarce, 2);
+        CompletableFuture<Void> other = dispatcher.decrease(plenty, 5);
+
+        other.orTimeout(5, TimeUnit.SECONDS).join();
+        // Суммарно 4 при остатке 3: одно из списаний проходит, второе завершается ошибкой
+        List<CompletableFuture<Void>> scarceDecrements = List.of(first, second);
+        CompletableFuture.allOf(first, second).handle((ignored, e) -> null).orTimeout(5, TimeUnit.SECONDS).join();
+        assertThat(scarceDecrements.stream().filter(f -> !f.isCompletedExceptionally()).count()).isEqualTo(1);
+        CompletableFuture<Void> failed = scarceDecrements.stream()
+                .filter(CompletableFuture::isCompletedExceptionally).findFirst().orElseThrow();
+        assertThatThrownBy(failed::join).hasMessageContaining("Ошибка при уменьшении количества товара");
+
+        assertThat(productService.stock(scarce)).isEqualTo(1);
+        assertThat(productService.stock(plenty)).isEqualTo(95);
+    }
+
+    @Test
+    void missingBatchResultFailsDecrementsWithoutResending() {
+        UUID productId = productService.addProduct(BigDecimal.TEN, 100);
+        productService.omitNextBatchResults(1);
+
+        CompletableFuture<Void> first = dispatcher.decrease(productId, 2);
+        CompletableFuture<Void> second = dispatcher.decrease(productId, 3);
+        CompletableFuture.allOf(first, second).handle((ignored, e) -> null).orTimeout(5, TimeUnit.SECONDS).join();
+
+        // Неизвестно, списан ли товар: повторной отправки по отдельности нет, ошибка повторяемая
+        assertThatThrownBy(first::join).cause()
+                .isExactlyInstanceOf(RuntimeException.class)
+                .hasMessageContaining("нет результата для товара");
+        assertThatThrownBy(second::join).cause().isExactlyInstanceOf(RuntimeException.class);
+        assertThat(productService.requestCount("decrease")).isZero();
+        assertThat(productService.stock(productId)).isEqualTo(95);
+    }
+
+    @Test
+    void decrementsRacingWithStopAreAllCompleted() throws Exception {
+        UUID productId = productService.addProduct(BigDecimal.TEN, 10_000);
+        List<CompletableFuture<Void>> decrements = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            callers.add(Thread.ofVirtual().start(() -> {
+                started.countDown();
+                for (int j = 0; j < 200; j++) {
+                    decrements.add(dispatcher.decrease(productId, 1));
+                    LockSupport.parkNanos(100_000);
+                }
+            }));
+        }
+        started.await();
+
+        dispatcher.stop();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        // Ни одно списание не зависает: принятые до остановки отправлены, поздние отклонены
+        CompletableFuture.allOf(decrements.toArray(CompletableFuture[]::new))
+                .handle((ignored, e) -> null).orTimeout(5, TimeUnit.SECONDS).join();
+        long sent = decrements.stream().filter(f -> !f.isCompletedExceptionally()).count();
+        assertThat(productService.stock(productId)).isEqualTo(10_000 - sent);
+        assertThatThrownBy(() -> dispatcher.decrease(productId, 1).join())
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+}
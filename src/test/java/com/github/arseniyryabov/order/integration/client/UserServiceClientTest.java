@@ -0,0 +1,95 @@
+package com.github.arseniyryabov.order.integration.client;
+
+import com.github.arseniyryabov.order.config.UserServiceProperties;
+import com.github.arseniyryabov.order.exception.DownstreamUnavailableException;
+import com.github.arseniyryabov.order.exception.UserNotFoundException;
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class UserServiceClientTest {
+
+    private static final String USER_JSON = """
+            {"id":7,"userName":"Иван","lastName":"Иванов"}""";
+
+    private final UserServiceProperties properties = new UserServiceProperties();
+    private MockRestServiceServer userServer;
+
+    private UserServiceClient client() {
+        RestClient.Builder builder = RestClient.builder().baseUrl("http://user-service");
+        userServer = MockRestServiceServer.bindTo(builder).build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new UserServiceClient(builder.build(), new UserExistenceCache(properties, meterRegistry),
+                new DownstreamResilience("user-service", properties.getResilience(), meterRegistry), meterRegistry);
+    }
+
+    @Test
+    void existingUserIsCheckedOnceUntilEvicted() {
+        UserServiceClient client = client();
+        userServer.expect(ExpectedCount.twice(), requestTo("http://user-service/users/7"))
+                .andRespond(withSuccess(USER_JSON, MediaType.APPLICATION_JSON));
+
+        client.getUserById(7L);
+        client.getUserById(7L);
+        client.evictUser(7L);
+        client.getUserById(7L);
+
+        userServer.verify();
+    }
+
+    @Test
+    void missingUserIsCachedAsNotFound() {
+        UserServiceClient client = client();
+        userServer.expect(ExpectedCount.once(), requestTo("http://user-service/users/7"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+        assertThatThrownBy(() -> client.getUserById(7L)).isInstanceOf(UserNotFoundException.class);
+        assertThatThrownBy(() -> client.getUserById(7L)).isInstanceOf(UserNotFoundException.class);
+
+        userServer.verify();
+    }
+
+    @Test
+    void lastKnownPositiveIsServedDuringGracePeriodWhenUserServiceFails() {
+        properties.getCache().setExistsTtl(Duration.ZERO);
+        properties.getCache().setStaleIfErrorGrace(Duration.ofMinutes(1));
+        UserServiceClient client = client();
+        userServer.expect(requestTo("http://user-service/users/7"))
+                .andRespond(withSuccess(USER_JSON, MediaType.APPLICATION_JSON));
+        // Чтение повторяется, поэтому ошибка отдается на каждую из попыток
+        userServer.expect(ExpectedCount.times(3), requestTo("http://user-service/users/7"))
+                .andRespond(withServerError());
+
+        client.getUserById(7L);
+        assertThatCode(() -> client.getUserById(7L)).doesNotThrowAnyException();
+
+        userServer.verify();
+    }
+
+    @Test
+    void failureIsPropagatedWithoutGracePeriod() {
+        UserServiceClient client = client();
+        userServer.expect(ExpectedCount.times(3), requestTo("http://user-service/users/7"))
+                .andRespond(withServerError());
+
+        assertThatThrownBy(() -> client.getUserById(7L))
+                .isInstanceOf(DownstreamUnavailableException.class)
+                .hasMessageContaining("user-service");
+
+        userServer.verify();
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.arseniyryabov.order.integration.resilience;
+
+import com.github.arseniyryabov.order.config.HttpClientSettings;
+import com.github.arseniyryabov.order.config.PooledHttpClient;
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.config.ResilienceSettings;
+import com.github.arseniyryabov.order.exception.DownstreamUnavailableException;
+import com.github.arseniyryabov.order.exception.ProductNotFoundException;
+import com.github.arseniyryabov.order.integration.client.ProductCatalogCache;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.support.StubProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Поведение защиты вызовов на заглушке product-service, которая отвечает ошибками и с задержкой
+class DownstreamResilienceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResilienceSettings settings = new ResilienceSettings();
+    private StubProductService productService;
+    private DownstreamResilience resilience;
+    private PooledHttpClient httpClient;
+
+    @BeforeEach
+    void setUp() {
+        productService = StubProductService.start();
+        settings.getRetry().setInitialBackoff(Duration.ofMillis(5));
+        settings.getRetry().setMaxBackoff(Duration.ofMillis(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (resilience != null) {
+            resilience.close();
+        }
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        productService.close();
+    }
+
+    private ProductServiceClient client() {
+        resilience = new DownstreamResilience("product-service", settings, meterRegistry);
+        httpClient = new PooledHttpClient("product-service", new HttpClientSettings(), meterRegistry);
+        return new ProductServiceClient(
+                RestClient.builder().baseUrl(productService.baseUrl()).requestFactory(httpClient.requestFactory()).build(),
+                new ProductCatalogCache(new ProductServiceProperties(), meterRegistry),
+                resilience,
+                meterRegistry);
+    }
+
+    @Test
+    void readIsRetriedAfterServiceUnavailable() {
+        ProductServiceClient client = client();
+        UUID productId = productService.addProduct(BigDecimal.TEN, 5);
+        productService.failNextRequests(2);
+
+        assertThat(client.getProductById(productId).getProductId()).isEqualTo(productId);
+
+        assertThat(productService.requestCount("failed")).isEqualTo(2);
+        assertThat(productService.requestCount("get")).isEqualTo(1);
+        assertThat(meterRegistry.get("downstream.retries").tag("endpoint", "get-product").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void stockDecreaseIsNotRetried() {
+        ProductServiceClient client = client();
+        UUID productId = productService.addProduct(BigDecimal.TEN, 5);
+        productService.failNextRequests(1);
+
+        assertThatThrownBy(() -> client.decreaseProductStock(productId, 1))
+                .isInstanceOf(DownstreamUnavailableException.class);
+
+        assertThat(productService.requestCount("failed")).isEqualTo(1);
+        assertThat(productService.requestCount("decrease")).isZero();
+        assertThat(productService.stock(productId)).isEqualTo(5);
+    }
+
+    @Test
+    void openCircuitRejectsCallsUntilProbeSucceeds() throws InterruptedException {
+        settings.getCircuitBreaker().setSlidingWindowSize(4);
+        settings.getCircuitBreaker().setMinimumCalls(4);
+        settings.getCircuitBreaker().setOpenDuration(Duration.ofMillis(200));
+        settings.getCircuitBreaker().setHalfOpenCalls(1);
+        ProductServiceClient client = client();
+        UUID productId = productService.addProduct(BigDecimal.TEN, 5);
+        productService.failNextRequests(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> client.decreaseProductStock(productId, 1))
+                    .isInstanceOf(DownstreamUnavailableException.class);
+        }
+        assertThat(resilience.circuitState("decrease-stock")).isEqualTo(CircuitBreaker.State.OPEN);
+
+        int requestsBefore = productService.totalRequestCount();
+        assertThatThrownBy(() -> client.decreaseProductStock(productId, 1))
+                .isInstanceOf(DownstreamUnavailableException.class)
+                .hasMessageContaining("автомат разомкнут");
+        assertThat(productService.totalRequestCount()).isEqualTo(requestsBefore);
+        assertThat(meterRegistry.get("downstream.calls.rejected").tag("reason", "circuit_open").counter().count())
+                .isEqualTo(1);
+
+        // Автомат другого эндпоинта не затронут
+        assertThat(client.getProductById(productId).getStockQuantity()).isEqualTo(5);
+
+        Thread.sleep(250);
+        client.decreaseProductStock(productId, 1);
+        assertThat(resilience.circuitState("decrease-stock")).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(productService.stock(productId)).isEqualTo(4);
+    }
+
+    @Test
+    void interruptedCallDoesNotOpenCircuit() {
+        settings.getCircuitBreaker().setSlidingWindowSize(2);
+        settings.getCircuitBreaker().setMinimumCalls(2);
+        resilience = new DownstreamResilience("product-service", settings, meterRegistry);
+
+        for (int i = 0; i < 3; i++) {
+            // Так завершается запрос, отмененный ParallelLookups: поток прерван, сокет закрыт
+            assertThatThrownBy(() -> resilience.execute("get-product", DownstreamResilience.Call.READ, () -> {
+                Thread.currentThread().interrupt();
+                throw new ResourceAccessException("I/O error", new SocketException("Closed by interrupt"));
+            })).isInstanceOf(CancellationException.class);
+            assertThat(Thread.interrupted()).isTrue();
+        }
+
+        assertThat(resilience.circuitState("get-product")).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.get("downstream.retries").tag("endpoint", "get-product").counter().count()).isZero();
+    }
+
+    @Test
+    void errorInProbeCallReturnsItsPermit() throws InterruptedException {
+        settings.getCircuitBreaker().setSlidingWindowSize(2);
+        settings.getCircuitBreaker().setMinimumCalls(2);
+        settings.getCircuitBreaker().setOpenDuration(Duration.ofMillis(100));
+        settings.getCircuitBreaker().setHalfOpenCalls(1);
+        resilience = new DownstreamResilience("product-service", settings, meterRegistry);
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> resilience.execute("decrease-stock", DownstreamResilience.Call.WRITE, () -> {
+                throw new ResourceAccessException("Connection refused");
+            })).isInstanceOf(DownstreamUnavailableException.class);
+        }
+        Thread.sleep(150);
+
+        assertThatThrownBy(() -> resilience.execute("decrease-stock", DownstreamResilience.Call.WRITE, () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        // Пробное разрешение не потеряно: следующий вызов проходит и замыкает автомат
+        assertThat(resilience.execute("decrease-stock", DownstreamResilience.Call.WRITE, () -> "ok")).isEqualTo("ok");
+        assertThat(resilience.circuitState("decrease-stock")).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void interruptWhileWaitingForBulkheadIsCancellation() {
+        resilience = new DownstreamResilience("product-service", settings, meterRegistry);
+
+        Thread.currentThread().interrupt();
+        assertThatThrownBy(() -> resilience.execute("get-product", DownstreamResilience.Call.READ, () -> "ok"))
+                .isInstanceOf(CancellationException.class);
+        assertThat(Thread.interrupted()).isTrue();
+
+        assertThat(meterRegistry.get("downstream.calls.rejected").tag("reason", "bulkhead_full").counter().count())
+                .isZero();
+    }
+
+    @Test
+    void notFoundDoesNotOpenCircuit() {
+        settings.getCircuitBreaker().setSlidingWindowSize(2);
+        settings.getCircuitBreaker().setMinimumCalls(2);
+        ProductServiceClient client = client();
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> client.getProductById(UUID.randomUUID()))
+                    .isInstanceOf(ProductNotFoundException.class);
+        }
+
+        assertThat(resilience.circuitState("get-product")).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(productService.requestCount("get")).isEqualTo(5);
+    }
+
+    @Test
+    void bulkheadRejectsCallsAboveConcurrencyLimit() throws Exception {
+        settings.getBulkhead().setMaxConcurrentCalls(2);
+        settings.getBulkhead().setMaxWait(Duration.ofMillis(10));
+        ProductServiceClient client = client();
+        productService.setLatency(Duration.ofMillis(300));
+        List<UUID> productIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            productIds.add(productService.addProduct(BigDecimal.TEN, 5));
+        }
+
+        int succeeded = 0;
+        int rejected = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> calls = new ArrayList<>();
+            productIds.forEach(productId -> calls.add(executor.submit(() -> client.getProductById(productId))));
+            for (Future<?> call : calls) {
+                try {
+                    call.get();
+                    succeeded++;
+                } catch (Exception e) {
+                    assertThat(e.getCause()).isInstanceOf(DownstreamUnavailableException.class);
+                    rejected++;
+                }
+            }
+        }
+
+        assertThat(rejected).isPositive();
+        assertThat(productService.requestCount("get")).isEqualTo(succeeded);
+        assertThat(meterRegistry.get("downstream.calls.rejected").tag("reason", "bulkhead_full").counter().count())
+                .isEqualTo(rejected);
+    }
+
+    @Test
+    void slowReadIsHedged() {
+        settings.getHedging().setEnabled(true);
+        settings.getHedging().setMinDelay(Duration.ofMillis(50));
+        ProductServiceClient client = client();
+        // Оценка p95 появляется после 32 ответов
+        for (int i = 0; i < 32; i++) {
+            client.getProductById(productService.addProduct(BigDecimal.TEN, 5));
+        }
+        UUID productId = productService.addProduct(BigDecimal.TEN, 5);
+        productService.delayNextRequests(1, Duration.ofSeconds(2));
+
+        long started = System.nanoTime();
+        assertThat(client.getProductById(productId).getProductId()).isEqualTo(productId);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(1));
+        assertThat(meterRegistry.get("downstream.hedges").tag("endpoint", "get-product").counter().count())
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.arseniyryabov.order.repository;
+
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.entity.OrderStatusConverter;
+import com.github.arseniyryabov.order.entity.StockOutboxEntity;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/* Планы всех запросов репозиториев на PostgreSQL со схемой из Liquibase
+Каждый запрос выполняется через репозиторий, для его SQL строится generic plan (без значений параметров)
+с запрещенным последовательным сканированием, и план должен использовать ожидаемый индекс.
+Условие на статус подставляется значением: частичный индекс по активным статусам применим,
+только если планировщик видит сам статус */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.github.arseniyryabov.order.repository.OrderQueryPlanTest$RecordingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class OrderQueryPlanTest {
+
+    private static final Pattern STATUS_PARAMETER = Pattern.compile("\\b((?:\\w+\\.)?status)=\\?");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final UUID id = UUID.randomUUID();
+    private final List<UUID> ids = List.of(id);
+
+    @Test
+    void orderQueriesUseTheirIndexes() {
+        List<String> active = List.of(OrderStatus.CREATED, OrderStatus.PROCESSING);
+
+        assertPlan(() -> orderRepository.findByOrderId(id), "orders_pkey", "idx_order_items_order_id");
+        // Условие на user_id и order_id целиком покрывается индексом страниц пользователя
+        assertPlan(() -> orderRepository.findByOrderIdAndUserId(id, 1L),
+                "idx_orders_user_created", "idx_order_items_order_id");
+        assertPlan(() -> orderRepository.findForUpdate(id), "orders_pkey");
+        assertPlan(() -> orderRepository.failPending(id, OrderStatus.PENDING, OrderStatus.FAILED, null),
+                "orders_pkey");
+        assertPlan(() -> orderRepository.failFrom(id, active, OrderStatus.FAILED, null), "orders_pkey");
+        assertPlan(() -> orderRepository.transitionStatus(id, active, OrderStatus.CANCELLED), "orders_pkey");
+        assertPlan(() -> orderRepository.transitionStatusAtVersion(id, active, OrderStatus.CANCELLED, 0L), "orders_pkey");
+        assertPlan(() -> orderRepository.findStatusRowsForUpdate(ids), "orders_pkey");
+        assertPlan(() -> orderRepository.transitionStatuses(ids, active, OrderStatus.CANCELLED), "orders_pkey");
+
+        assertPlan(() -> orderRepository.findPageByUserId(1L, Limit.of(51)), "idx_orders_user_created");
+        assertPlan(() -> orderRepository.findPageByUserIdAfter(1L, now, id, Limit.of(51)), "idx_orders_user_created");
+
+        // Выборки по активному статусу идут по частичному индексу
+        assertPlan(OrderStatus.CREATED, () -> orderRepository.findPageByStatus(OrderStatus.CREATED, Limit.of(51)),
+                "idx_orders_active_status_created");
+        assertPlan(OrderStatus.CREATED,
+                () -> orderRepository.findPageByStatusAfter(OrderStatus.CREATED, now, id, Limit.of(51)),
+                "idx_orders_active_status_created");
+        assertPlan(OrderStatus.CREATED, () -> {
+            try (var orders = orderRepository.streamByStatus(OrderStatus.CREATED)) {
+                orders.forEach(summary -> { });
+            }
+        }, "idx_orders_active_status_created");
+        assertPlan(OrderStatus.CREATED,
+                () -> orderRepository.findStatusRows(OrderStatus.CREATED, now.minusDays(1), now, Limit.of(500)),
+                "idx_orders_active_status_created");
+        assertPlan(OrderStatus.CREATED, () -> orderRepository.findStatusRowsAfter(
+                        OrderStatus.CREATED, now.minusDays(1), now, now, id, Limit.of(500)),
+                "idx_orders_active_status_created");
+        assertPlan(OrderStatus.PENDING,
+                () -> orderRepository.findIdsByStatusCreatedBefore(OrderStatus.PENDING, now, Limit.of(100)),
+                "idx_orders_active_status_created");
+        assertPlan(OrderStatus.PENDING, () -> orderRepository.failPendingCreatedBefore(
+                OrderStatus.PENDING, OrderStatus.FAILED, null, now), "idx_orders_active_status_created");
+    }
+
+    @Test
+    void orderItemQueriesUseTheirIndexes() {
+        assertPlan(() -> orderItemRepository.findSummariesByOrderIds(ids), "idx_order_items_order_id");
+        assertPlan(() -> orderItemRepository.findWithoutPriceAfter(id, Limit.of(500)), "idx_order_items_without_price");
+    }
+
+    @Test
+    void stockOutboxQueriesUseTheirIndexes() {
+        assertPlan(() -> stockOutboxRepository.findPendingForUpdate(now, 200), "idx_stock_outbox_pending");
+        assertPlan(() -> stockOutboxRepository.lease(ids, now), "stock_outbox_pkey");
+        assertPlan(() -> stockOutboxRepository.findAllForUpdate(ids), "stock_outbox_pkey");
+        assertPlan(() -> stockOutboxRepository.findByOrderIdForUpdate(id, StockOutboxEntity.Operation.DECREASE),
+                "idx_stock_outbox_order");
+    }
+
+    @Test
+    void idempotencyKeyQueriesUseTheirIndexes() {
+        assertPlan(() -> idempotencyKeyRepository.findByUserIdAndIdempotencyKey(1L, "key"),
+                "uk_order_idempotency_keys_user_key");
+        assertPlan(() -> idempotencyKeyRepository.takeOver(id, "hash", now, now), "order_idempotency_keys_pkey");
+        assertPlan(() -> idempotencyKeyRepository.complete(id, "hash", now, id, "{}", now), "order_idempotency_keys_pkey");
+        assertPlan(() -> idempotencyKeyRepository.release(id, now), "order_idempotency_keys_pkey");
+        assertPlan(() -> idempotencyKeyRepository.deleteExpired(now, 1000),
+                "idx_order_idempotency_keys_expires_at", "order_idempotency_keys_pkey");
+    }
+
+    private void assertPlan(Runnable query, String... indexes) {
+        assertPlan(null, query, indexes);
+    }
+
+    // Выполняет запрос и проверяет планы всех его SQL: без Seq Scan и с ожидаемыми индексами
+    private void assertPlan(String status, Runnable query, String... indexes) {
+        RecordingStatementInspector.STATEMENTS.clear();
+        query.run();
+        List<String> statements = List.copyOf(RecordingStatementInspector.STATEMENTS);
+        assertThat(statements).isNotEmpty();
+        StringBuilder plans = new StringBuilder();
+        statements.forEach(sql -> plans.append(sql).append('\n').append(explain(sql, status)));
+        assertThat(plans.toString())
+                .doesNotContain("Seq Scan")
+                .contains(indexes);
+    }
+
+    /* Generic plan запроса: SQL подготавливается на сервере (PREPARE) с параметрами $1, $2, ...,
+    а plan_cache_mode = force_generic_plan строит план без учета их значений */
+    private String explain(String sql, String status) {
+        if (status != null) {
+            // Статус в условии WHERE подставляется кодом, SET status=? остается параметром
+            int where = sql.toLowerCase().indexOf(" where ");
+            sql = sql.substring(0, where) + STATUS_PARAMETER.matcher(sql.substring(where))
+                    .replaceAll("$1=" + new OrderStatusConverter().convertToDatabaseColumn(status));
+        }
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        jdbcTemplate.execute("SET enable_seqscan = off");
+        jdbcTemplate.execute("SET plan_cache_mode = force_generic_plan");
+        jdbcTemplate.execute("PREPARE plan_check AS " + numbered);
+        try {
+            String arguments = parameter > 0 ? "(" + String.join(", ", Collections.nCopies(parameter, "NULL")) + ")" : "";
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList("EXPLAIN EXECUTE plan_check" + arguments);
+            StringBuilder plan = new StringBuilder();
+            rows.forEach(row -> plan.append(row.values().iterator().next()).append('\n'));
+            return plan.toString();
+        } finally {
+            jdbcTemplate.execute("DEALLOCATE plan_check");
+        }
+    }
+
+    // Запоминает SQL всех выполненных запросов на чтение, изменение и удаление по условию
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            String normalized = sql.stripLeading().toLowerCase();
+            if (normalized.startsWith("select") || normalized.startsWith("update")
+                    || normalized.startsWith("delete")) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.exception.InsufficientStockException;
+import com.github.arseniyryabov.order.exception.ProductNotFoundException;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = "order.stock-outbox.enabled=false")
+@ActiveProfiles("test")
+class OrderBatchCreationTest {
+
+    private static final long USER_ID = 11L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    private final UUID phone = UUID.randomUUID();
+    private final UUID charger = UUID.randomUUID();
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        stockOutboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        when(productServiceClient.getProductsForStockCheck(anyList())).thenReturn(List.of(
+                new ProductResponse(phone, "Телефон", new BigDecimal("100.00"), null, 1_000, null, null),
+                new ProductResponse(charger, "Зарядка", new BigDecimal("10.00"), null, 5, null, null)));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void ordersArePricedWithOneLookupAndFailuresAreReportedPerOrder() {
+        UUID unknown = UUID.randomUUID();
+        List<CreateOrderRequest> requests = List.of(
+                order(item(phone, 1), item(charger, 3)),
+                order(item(unknown, 1)),
+                // Остаток зарядок после первого заказа - 2
+                order(item(charger, 3)),
+                order(item(phone, 2), item(charger, 2)));
+
+        List<OrderBatchResult> results = orderService.createOrders(requests, USER_ID);
+
+        assertThat(results).extracting(OrderBatchResult::index).containsExactly(0, 1, 2, 3);
+        assertThat(results).extracting(OrderBatchResult::isCreated).containsExactly(true, false, false, true);
+        assertThat(results.get(1).error()).isInstanceOf(ProductNotFoundException.class);
+        assertThat(results.get(2).error()).isInstanceOf(InsufficientStockException.class);
+        assertThat(results.get(3).order().getTotalAmount()).isEqualByComparingTo("220.00");
+        assertThat(orderRepository.count()).isEqualTo(2);
+        assertThat(stockOutboxRepository.count()).isEqualTo(4);
+
+        // Один запрос в product-service по объединенному списку товаров без повторов
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UUID>> productIds = ArgumentCaptor.forClass(List.class);
+        verify(productServiceClient, times(1)).getProductsForStockCheck(productIds.capture());
+        assertThat(productIds.getValue()).containsExactly(phone, charger, unknown);
+    }
+
+    @Test
+    void ordersItemsAndOutboxAreInsertedInJdbcBatches() {
+        List<CreateOrderRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            requests.add(order(item(phone, 1), item(phone, 1)));
+        }
+
+        List<OrderBatchResult> results = orderService.createOrders(requests, USER_ID);
+
+        assertThat(results).allMatch(OrderBatchResult::isCreated);
+        assertThat(orderRepository.count()).isEqualTo(200);
+        // 200 заказов, 400 позиций и 400 записей outbox: 1000 строк
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1_000);
+        // Две порции по 100 заказов, в каждой по одному подготовленному INSERT на таблицу, строки уходят пачками
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void orderFailingAtInsertDoesNotSinkTheRestOfItsChunk() {
+        CreateOrderRequest tooLongAddress = order(item(phone, 1));
+        tooLongAddress.setAddress("М".repeat(256));
+        List<CreateOrderRequest> requests = List.of(
+                order(item(phone, 1)),
+                tooLongAddress,
+                order(item(phone, 1), item(charger, 1)));
+
+        List<OrderBatchResult> results = orderService.createOrders(requests, USER_ID);
+
+        assertThat(results).extracting(OrderBatchResult::isCreated).containsExactly(true, false, true);
+        assertThat(results.get(0).order().getOrderId()).isNotNull();
+        assertThat(results.get(2).order().getOrderId()).isNotNull();
+        assertThat(orderRepository.count()).isEqualTo(2);
+        // Записи outbox на каждую позицию созданных заказов
+        assertThat(stockOutboxRepository.findAll())
+                .hasSize(3)
+                .allSatisfy(record -> assertThat(record.getOrderId()).isNotNull());
+    }
+
+    private static CreateOrderRequest order(CreateOrderRequest.OrderItemRequest... items) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setAddress("Москва");
+        request.setDeliveryMethod("COURIER");
+        request.setItems(List.of(items));
+        return request;
+    }
+
+    private static CreateOrderRequest.OrderItemRequest item(UUID productId, int quantity) {
+        CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "order.stock-outbox.enabled=false",
+        "order.cache.by-id.stale-check-rate=0"})
+@ActiveProfiles("test")
+class OrderByIdCacheTest {
+
+    private static final long USER_ID = 23L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoSpyBean
+    private OrderResponseCache orderResponseCache;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    private final UUID phone = UUID.randomUUID();
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        stockOutboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        when(productServiceClient.getProductsForStockCheck(anyList())).thenReturn(List.of(
+                new ProductResponse(phone, "Телефон", new BigDecimal("100.00"), null, 10, null, null)));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void createdOrderIsServedWithoutQueries() {
+        OrderEntity order = orderService.createOrder(request(), USER_ID);
+        statistics.clear();
+
+        OrderResponse cached = orderService.getOrderResponseById(order.getOrderId(), USER_ID);
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        // Ответ, заполненный при создании, совпадает с прочитанным из БД
+        OrderResponse stored = OrderService.toResponse(orderRepository.findByOrderId(order.getOrderId()).orElseThrow());
+        assertThat(cached).usingRecursiveComparison().withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(stored);
+    }
+
+    @Test
+    void cachedOrderIsNotReturnedToAnotherUser() {
+        OrderEntity order = orderService.createOrder(request(), USER_ID);
+
+        assertThatThrownBy(() -> orderService.getOrderResponseById(order.getOrderId(), USER_ID + 1))
+                .hasMessage("Заказ не найден");
+    }
+
+    @Test
+    void statusUpdateEvictsCachedResponse() {
+        OrderEntity order = orderService.createOrder(request(), USER_ID);
+        orderService.getOrderResponseById(order.getOrderId(), USER_ID);
+
+        orderService.updateOrderStatus(order.getOrderId(), OrderStatus.PROCESSING);
+
+        assertThat(orderService.getOrderResponseById(order.getOrderId(), USER_ID).getStatus())
+                .isEqualTo(OrderStatus.PROCESSING);
+    }
+
+    @Test
+    void transitionOfCachedOrderRunsOnlyTheUpdate() {
+        OrderEntity order = orderService.createOrder(request(), USER_ID);
+        statistics.clear();
+
+        OrderResponse response = orderService.updateOrderStatus(order.getOrderId(), OrderStatus.PROCESSING);
+
+        assertThat(response.getStatus()).isEqualTo(OrderStatus.PROCESSING);
+        assertThat(response.getItems()).hasSize(1);
+        // Только условный UPDATE, ответ собран из закэшированного заказа
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void staleCachedOrderIsNotUsedForTheTransitionResponse() {
+        OrderEntity order = orderService.createOrder(request(), USER_ID);
+        // Изменение в обход сервиса: закэшированный ответ устарел
+        OrderEntity stored = orderRepository.findByOrderId(order.getOrderId()).orElseThrow();
+        stored.setAddress("Казань");
+        orderRepository.save(stored);
+
+        OrderResponse response = orderService.updateOrderStatus(order.getOrderId(), OrderStatus.PROCESSING);
+
+        assertThat(response.getStatus()).isEqualTo(OrderStatus.PROCESSING);
+        assertThat(response.getAddress()).isEqualTo("Казань");
+        assertThat(response.getVersion()).isEqualTo(orderRepository.findById(order.getOrderId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void failedPendingOrderIsNotServedFromCache() {
+        OrderEntity pending = orderService.createPendingOrder(request(), USER_ID);
+        assertThat(orderService.getOrderResponseById(pending.getOrderId(), USER_ID).getStatus())
+                .isEqualTo(OrderStatus.PENDING);
+
+        orderService.failPendingOrder(pending.getOrderId(), "Товар не найден");
+
+        OrderResponse failed = orderService.getOrderResponseById(pending.getOrderId(), USER_ID);
+        assertThat(failed.getStatus()).isEqualTo(OrderStatus.FAILED);
+        assertThat(failed.getFailureReason()).isEqualTo("Товар не найден");
+    }
+
+    @Test
+    void evictionIsRegisteredInsideTheChangingTransaction() {
+        OrderEntity order = orderService.createOrder(request(), USER_ID);
+        OrderEntity completed = orderService.createPendingOrder(request(), USER_ID);
+        OrderEntity failed = orderService.createPendingOrder(request(), USER_ID);
+        List<Boolean> inTransaction = new ArrayList<>();
+        doAnswer(invocation -> {
+            inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return invocation.callRealMethod();
+        }).when(orderResponseCache).invalidate(any());
+
+        orderService.updateOrderStatus(order.getOrderId(), OrderStatus.PROCESSING);
+        orderService.completePendingOrder(completed.getOrderId());
+        orderService.failPendingOrder(failed.getOrderId(), "Товар не найден");
+
+        // Удаление внутри транзакции повторяется после фиксации: читатель, заполнивший кэш до фиксации,
+        // не оставляет в нем прежний статус
+        assertThat(inTransaction).containsExactly(true, true, true);
+    }
+
+    private CreateOrderRequest request() {
+        CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+        item.setProductId(phone);
+        item.setQuantity(1);
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setAddress("Москва");
+        request.setDeliveryMethod("COURIER");
+        request.setItems(List.of(item));
+        return request;
+    }
+}
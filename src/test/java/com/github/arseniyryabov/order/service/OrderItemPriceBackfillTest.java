@@ -0,0 +1,134 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.OrderItemBackfillProperties;
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.config.ResilienceSettings;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderItemEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.integration.client.ProductCatalogCache;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import com.github.arseniyryabov.order.repository.OrderItemRepository;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.support.StubProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderItemPriceBackfillTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StubProductService productService;
+    private OrderItemPriceBackfill backfill;
+    private final List<Boolean> lookupsInTransaction = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        productService = StubProductService.start();
+
+        ProductServiceProperties productProperties = new ProductServiceProperties();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProductServiceClient client = spy(new ProductServiceClient(
+                RestClient.builder().baseUrl(productService.baseUrl()).build(),
+                new ProductCatalogCache(productProperties, meterRegistry),
+                new DownstreamResilience("product-service", new ResilienceSettings(), meterRegistry),
+                meterRegistry));
+        doAnswer(invocation -> {
+            lookupsInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return invocation.callRealMethod();
+        }).when(client).getProductsByIds(anyList());
+        OrderItemBackfillProperties properties = new OrderItemBackfillProperties();
+        properties.setChunkSize(4);
+        backfill = new OrderItemPriceBackfill(orderItemRepository, client,
+                new TransactionTemplate(transactionManager), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productService.close();
+    }
+
+    @Test
+    void fillsPriceSnapshotInChunksAndSkipsDeletedProducts() {
+        UUID cheap = productService.addProduct(new BigDecimal("5.00"), 100);
+        UUID expensive = productService.addProduct(new BigDecimal("120.00"), 100);
+        UUID deleted = UUID.randomUUID();
+        List<OrderEntity> orders = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            orders.add(order(List.of(cheap, expensive, deleted), 2));
+        }
+        orderRepository.saveAll(orders);
+
+        int filled = backfill.backfill();
+
+        assertThat(filled).isEqualTo(6);
+        List<OrderItemEntity> items = orderItemRepository.findAll();
+        assertThat(items).filteredOn(item -> item.getProductId().equals(expensive)).allSatisfy(item -> {
+            assertThat(item.getUnitPrice()).isEqualByComparingTo("120.00");
+            assertThat(item.getProductName()).isEqualTo("Товар " + expensive);
+            assertThat(item.getLineTotal()).isEqualByComparingTo("240.00");
+        });
+        assertThat(items).filteredOn(item -> item.getProductId().equals(deleted))
+                .allSatisfy(item -> assertThat(item.getUnitPrice()).isNull());
+        // 9 позиций порциями по 4: все три товара встречаются в первой порции,
+        // дальше товары и отсутствие удаленного товара берутся из кэша каталога
+        assertThat(productService.requestCount("batch")).isEqualTo(1);
+        // Запросы товаров не держат открытую транзакцию
+        assertThat(lookupsInTransaction).isNotEmpty().containsOnly(false);
+
+        // Повторный запуск не трогает заполненные позиции
+        assertThat(backfill.backfill()).isZero();
+    }
+
+    private static OrderEntity order(List<UUID> productIds, int quantity) {
+        OrderEntity order = new OrderEntity();
+        order.setUserId(1L);
+        order.setAddress("Москва");
+        order.setDeliveryMethod("COURIER");
+        order.setStatus(OrderStatus.CREATED);
+        order.setTotalAmount(BigDecimal.TEN);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setItems(productIds.stream().map(productId -> {
+            OrderItemEntity item = new OrderItemEntity();
+            item.setOrder(order);
+            item.setProductId(productId);
+            item.setQuantity(quantity);
+            return item;
+        }).toList());
+        return order;
+    }
+}
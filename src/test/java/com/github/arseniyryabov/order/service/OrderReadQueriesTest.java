@@ -0,0 +1,113 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderItemEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/* Число запросов к БД на чтение списков не зависит от числа заказов и позиций
+Статистика Hibernate общая для всех сессий, поэтому фоновый relay outbox выключен */
+@SpringBootTest(properties = "order.stock-outbox.enabled=false")
+@ActiveProfiles("test")
+class OrderReadQueriesTest {
+
+    private static final long USER_ID = 7L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<OrderEntity> orders = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            orders.add(order(base.plusSeconds(i), 1 + i % 4));
+        }
+        orderRepository.saveAll(orders);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void userOrdersPageIsLoadedWithTwoStatements() {
+        OrderPage page = orderService.getUserOrders(USER_ID, null, OrderService.MAX_PAGE_SIZE);
+
+        assertThat(page.orders()).hasSize(500);
+        assertThat(page.orders()).allSatisfy(order -> assertThat(order.getItems()).isNotEmpty());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void statusPageIsLoadedWithTwoStatements() {
+        OrderPage first = orderService.getOrdersByStatus(OrderStatus.CREATED, null, 100);
+        statistics.clear();
+
+        OrderPage second = orderService.getOrdersByStatus(OrderStatus.CREATED, first.nextCursor(), 100);
+
+        assertThat(second.orders()).hasSize(100);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void streamLoadsItemsOncePerChunk() {
+        List<UUID> streamed = new ArrayList<>();
+        orderService.streamOrdersByStatus(OrderStatus.CREATED, order -> streamed.add(order.getOrderId()));
+
+        assertThat(streamed).hasSize(500);
+        // Курсор по заказам и один запрос позиций на порцию из 500 заказов
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private static OrderEntity order(LocalDateTime createdAt, int itemCount) {
+        OrderEntity order = new OrderEntity();
+        order.setUserId(USER_ID);
+        order.setAddress("Москва");
+        order.setDeliveryMethod("COURIER");
+        order.setStatus(OrderStatus.CREATED);
+        order.setTotalAmount(BigDecimal.TEN);
+        order.setCreatedAt(createdAt);
+        order.setItems(IntStream.range(0, itemCount).mapToObj(i -> {
+            OrderItemEntity item = new OrderItemEntity();
+            item.setOrder(order);
+            item.setProductId(UUID.randomUUID());
+            item.setQuantity(1);
+            return item;
+        }).toList());
+        return order;
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.OrderCacheProperties;
+import com.github.arseniyryabov.order.controller.model.OrderResponse;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderResponseCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UUID orderId = UUID.randomUUID();
+
+    @Test
+    void loadedResponseIsServedFromCache() {
+        OrderResponseCache cache = cache(0);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(orderId, id -> {
+            loads.incrementAndGet();
+            return response(OrderStatus.CREATED);
+        });
+        OrderResponse cached = cache.get(orderId, id -> {
+            loads.incrementAndGet();
+            return response(OrderStatus.CREATED);
+        });
+
+        assertThat(cached.getStatus()).isEqualTo(OrderStatus.CREATED);
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.hit.ratio").tag("cache", "orders.by-id").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    void staleHitIsReplacedWithCurrentState() {
+        OrderResponseCache cache = cache(1.0);
+        cache.put(response(OrderStatus.PENDING));
+
+        OrderResponse current = cache.get(orderId, id -> response(OrderStatus.FAILED));
+        OrderResponse fresh = cache.get(orderId, id -> response(OrderStatus.FAILED));
+
+        assertThat(current.getStatus()).isEqualTo(OrderStatus.FAILED);
+        assertThat(fresh.getStatus()).isEqualTo(OrderStatus.FAILED);
+        assertThat(meterRegistry.get("orders.by-id.cache.stale.checks").tag("result", "stale").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void invalidationWaitsForLoadInProgress() throws Exception {
+        OrderResponseCache cache = cache(0);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Чтение получило старое состояние до изменения заказа
+        CompletableFuture<OrderResponse> read = CompletableFuture.supplyAsync(() -> cache.get(orderId, id -> {
+            loading.countDown();
+            await(release);
+            return response(OrderStatus.CREATED);
+        }));
+        loading.await(5, TimeUnit.SECONDS);
+        CompletableFuture<Void> invalidation = CompletableFuture.runAsync(() -> cache.invalidate(orderId));
+        release.countDown();
+        read.get(5, TimeUnit.SECONDS);
+        invalidation.get(5, TimeUnit.SECONDS);
+
+        // Старое состояние не осталось в кэше после изменения
+        assertThat(cache.get(orderId, id -> response(OrderStatus.SHIPPED)).getStatus())
+                .isEqualTo(OrderStatus.SHIPPED);
+    }
+
+    @Test
+    void missingOrderIsNotCached() {
+        OrderResponseCache cache = cache(0);
+
+        assertThat(cache.get(orderId, id -> null)).isNull();
+        assertThat(cache.get(orderId, id -> response(OrderStatus.CREATED))).isNotNull();
+    }
+
+    private OrderResponseCache cache(double staleCheckRate) {
+        OrderCacheProperties properties = new OrderCacheProperties();
+        properties.getById().setStaleCheckRate(staleCheckRate);
+        return new OrderResponseCache(properties, meterRegistry);
+    }
+
+    private OrderResponse response(String status) {
+        return new OrderResponse(orderId, 1L, "Москва", "COURIER", status, null, new BigDecimal("100.00"),
+                LocalDateTime.of(2026, 1, 1, 12, 0), List.of(), 0L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.OrderCacheProperties;
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.config.ReadReplicaProperties;
+import com.github.arseniyryabov.order.config.ReadYourWrites;
+import com.github.arseniyryabov.order.config.ResilienceSettings;
+import com.github.arseniyryabov.order.controller.model.CreateOrderRequest;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.StockOutboxEntity;
+import com.github.arseniyryabov.order.exception.InsufficientStockException;
+import com.github.arseniyryabov.order.exception.ProductNotFoundException;
+import com.github.arseniyryabov.order.integration.client.ProductCatalogCache;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import com.github.arseniyryabov.order.repository.OrderItemRepository;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class OrderServiceTest {
+
+    private MockRestServiceServer productServer;
+    private OrderRepository orderRepository;
+    private StockOutboxRepository stockOutboxRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        RestClient.Builder builder = RestClient.builder().baseUrl("http://product-service");
+        productServer = MockRestServiceServer.bindTo(builder).build();
+        meterRegistry = new SimpleMeterRegistry();
+        ProductServiceClient productServiceClient = new ProductServiceClient(builder.build(),
+                new ProductCatalogCache(new ProductServiceProperties(), meterRegistry),
+                new DownstreamResilience("product-service", new ResilienceSettings(), meterRegistry), meterRegistry);
+
+        orderRepository = mock(OrderRepository.class);
+        stockOutboxRepository = mock(StockOutboxRepository.class);
+        // Ключ заказа присваивается при сохранении, как генератором TimeOrderedUuid
+        when(orderRepository.save(any(OrderEntity.class))).thenAnswer(invocation -> {
+            OrderEntity order = invocation.getArgument(0);
+            order.setOrderId(UUID.randomUUID());
+            return order;
+        });
+
+        orderService = new OrderService(
+                orderRepository,
+                mock(OrderItemRepository.class),
+                mock(UserServiceClient.class),
+                new OrderPricingService(productServiceClient),
+                new ParallelLookups(Executors.newVirtualThreadPerTaskExecutor()),
+                new StockOutboxService(stockOutboxRepository),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new ReadYourWrites(new ReadReplicaProperties()),
+                new OrderResponseCache(new OrderCacheProperties(), meterRegistry),
+                meterRegistry
+        );
+    }
+
+    @Test
+    void createOrderFetchesAllProductsWithSingleBatchCall() {
+        List<UUID> productIds = IntStream.range(0, 20).mapToObj(i -> UUID.randomUUID()).toList();
+
+        productServer.expect(ExpectedCount.once(), requestTo("http://product-service/products/batch"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess(productsJson(productIds, 10), MediaType.APPLICATION_JSON));
+
+        OrderEntity order = orderService.createOrder(request(productIds, 2), 1L);
+
+        // 20 позиций: один batch-запрос, без GET /products/{id}; списание уходит через outbox
+        productServer.verify();
+        assertThat(order.getTotalAmount()).isEqualByComparingTo(new BigDecimal("400.00"));
+        assertThat(order.getItems()).hasSize(20);
+        // Цена и название товара сохраняются в позиции из того же ответа product-service
+        assertThat(order.getItems()).allSatisfy(item -> {
+            assertThat(item.getUnitPrice()).isEqualByComparingTo("10.00");
+            assertThat(item.getProductName()).isEqualTo("Товар");
+            assertThat(item.getLineTotal()).isEqualByComparingTo("20.00");
+        });
+        assertThat(meterRegistry.timer("orders.create.transaction").count()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createOrderWritesStockDecreaseToOutboxInsteadOfCallingProductService() {
+        List<UUID> productIds = IntStream.range(0, 3).mapToObj(i -> UUID.randomUUID()).toList();
+
+        productServer.expect(ExpectedCount.once(), requestTo("http://product-service/products/batch"))
+                .andRespond(withSuccess(productsJson(productIds, 10), MediaType.APPLICATION_JSON));
+
+        orderService.createOrder(request(productIds, 4), 1L);
+        productServer.verify();
+
+        ArgumentCaptor<List<StockOutboxEntity>> records = ArgumentCaptor.forClass(List.class);
+        verify(stockOutboxRepository).saveAll(records.capture());
+        assertThat(records.getValue())
+                .extracting(StockOutboxEntity::getProductId, StockOutboxEntity::getOperation, StockOutboxEntity::getQuantity)
+                .containsExactly(
+                        tuple(productIds.get(0), StockOutboxEntity.Operation.DECREASE, 4),
+                        tuple(productIds.get(1), StockOutboxEntity.Operation.DECREASE, 4),
+                        tuple(productIds.get(2), StockOutboxEntity.Operation.DECREASE, 4));
+    }
+
+    @Test
+    void createOrderFailsOnProductMissingFromBatchResponse() {
+        UUID existing = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+
+        productServer.expect(ExpectedCount.once(), requestTo("http://product-service/products/batch"))
+                .andRespond(withSuccess(productsJson(List.of(existing), 10), MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> orderService.createOrder(request(List.of(existing, missing), 1), 1L))
+                .isInstanceOf(ProductNotFoundException.class)
+                .hasMessageContaining(missing.toString());
+        productServer.verify();
+    }
+
+    @Test
+    void createOrderRejectsProductWithoutPrice() {
+        UUID priced = UUID.randomUUID();
+        UUID unpriced = UUID.randomUUID();
+
+        productServer.expect(ExpectedCount.once(), requestTo("http://product-service/products/batch"))
+                .andRespond(withSuccess("""
+                        [{"productId":"%s","name":"Товар","price":10.00,"stockQuantity":10},
+                         {"productId":"%s","name":"Товар","price":null,"stockQuantity":10}]"""
+                        .formatted(priced, unpriced), MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> orderService.createOrder(request(List.of(priced, unpriced), 1), 1L))
+                .isInstanceOf(ProductNotFoundException.class)
+                .hasMessageContaining(unpriced.toString());
+        productServer.verify();
+    }
+
+    @Test
+    void createOrderChecksStockAgainstTotalQuantityPerProduct() {
+        UUID productId = UUID.randomUUID();
+
+        productServer.expect(ExpectedCount.once(), requestTo("http://product-service/products/batch"))
+                .andRespond(withSuccess(productsJson(List.of(productId), 5), MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> orderService.createOrder(request(List.of(productId, productId), 3), 1L))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("Доступно: 5, запрошено: 6");
+        productServer.verify();
+    }
+
+    private static CreateOrderRequest request(List<UUID> productIds, int quantity) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setAddress("Москва, ул. Тверская, 1");
+        request.setDeliveryMethod("COURIER");
+        List<CreateOrderRequest.OrderItemRequest> items = new ArrayList<>();
+        productIds.forEach(productId -> {
+            CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+            item.setProductId(productId);
+            item.setQuantity(quantity);
+            items.add(item);
+        });
+        request.setItems(items);
+        return request;
+    }
+
+    private static String productsJson(List<UUID> productIds, int stockQuantity) {
+        return productIds.stream()
+                .map(productId -> """
+                        {"productId":"%s","name":"Товар","price":10.00,"stockQuantity":%d}"""
+                        .formatted(productId, stockQuantity))
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.exception.UserNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelLookupsTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ParallelLookups parallelLookups = new ParallelLookups(executor);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void joinTakesAsLongAsTheSlowestTask() {
+        long startedAt = System.nanoTime();
+        try (ParallelLookups.Scope scope = parallelLookups.open()) {
+            Future<String> user = scope.fork(() -> sleepAndReturn(200, "user"));
+            Future<String> products = scope.fork(() -> sleepAndReturn(200, "products"));
+            scope.join();
+
+            assertThat(user.resultNow()).isEqualTo("user");
+            assertThat(products.resultNow()).isEqualTo("products");
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofMillis(380));
+    }
+
+    @Test
+    void firstFailureCancelsSiblingAndIsRethrownUnwrapped() throws InterruptedException {
+        CountDownLatch siblingInterrupted = new CountDownLatch(1);
+
+        try (ParallelLookups.Scope scope = parallelLookups.open()) {
+            scope.execute(() -> {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    siblingInterrupted.countDown();
+                }
+            });
+            scope.execute(() -> {
+                throw new UserNotFoundException(42L);
+            });
+
+            assertThatThrownBy(scope::join)
+                    .isInstanceOf(UserNotFoundException.class)
+                    .hasMessageContaining("42");
+        }
+        assertThat(siblingInterrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static String sleepAndReturn(long millis, String value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.arseniyryabov.order.service;
+
+import com.github.arseniyryabov.order.config.HttpClientSettings;
+import com.github.arseniyryabov.order.config.PooledHttpClient;
+import com.github.arseniyryabov.order.config.ProductServiceProperties;
+import com.github.arseniyryabov.order.config.ResilienceSettings;
+import com.github.arseniyryabov.order.config.StockOutboxProperties;
+import com.github.arseniyryabov.order.entity.OrderEntity;
+import com.github.arseniyryabov.order.entity.OrderStatus;
+import com.github.arseniyryabov.order.entity.StockOutboxEntity;
+import com.github.arseniyryabov.order.integration.client.ProductCatalogCache;
+import com.github.arseniyryabov.order.integration.client.ProductServiceClient;
+import com.github.arseniyryabov.order.integration.client.StockDecrementDispatcher;
+import com.github.arseniyryabov.order.integration.client.UserServiceClient;
+import com.github.arseniyryabov.order.integration.resilience.DownstreamResilience;
+import com.github.arseniyryabov.order.repository.OrderRepository;
+import com.github.arseniyryabov.order.repository.StockOutboxRepository;
+import com.github.arseniyryabov.order.support.StubProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Отдельная БД: relay контекстов других тестов с включенным outbox не забирает записи этого теста
+@SpringBootTest(properties = {
+        "order.stock-outbox.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:stock-outbox-relay;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"})
+@ActiveProfiles("test")
+class StockOutboxRelayTest {
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockOutboxService stockOutboxService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final StockOutboxProperties outboxProperties = new StockOutboxProperties();
+    private StubProductService productService;
+    private PooledHttpClient httpClient;
+    private StockDecrementDispatcher dispatcher;
+    private StockOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        stockOutboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        productService = StubProductService.start();
+
+        ProductServiceProperties productProperties = new ProductServiceProperties();
+        productProperties.getStockBatching().setEnabled(true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        httpClient = new PooledHttpClient("product-service", new HttpClientSettings(), meterRegistry);
+        ProductServiceClient client = new ProductServiceClient(
+                RestClient.builder().baseUrl(productService.baseUrl()).requestFactory(httpClient.requestFactory()).build(),
+                new ProductCatalogCache(productProperties, meterRegistry),
+                new DownstreamResilience("product-service", new ResilienceSettings(), meterRegistry),
+                meterRegistry);
+        dispatcher = new StockDecrementDispatcher(client, productProperties, meterRegistry);
+        dispatcher.start();
+        relay = new StockOutboxRelay(stockOutboxRepository, dispatcher, client, stockOutboxService, orderService,
+                new TransactionTemplate(transactionManager), outboxProperties, productProperties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.stop();
+        httpClient.close();
+        productService.close();
+    }
+
+    @Test
+    void relaySendsAllPendingRecordsInBatches() {
+        int recordCount = 5_000;
+        List<UUID> productIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            productIds.add(productService.addProduct(BigDecimal.TEN, 1_000));
+        }
+        List<StockOutboxEntity> records = new ArrayList<>();
+        for (int i = 0; i < recordCount; i++) {
+            records.add(record(productIds.get(i % productIds.size()), StockOutboxEntity.Operation.DECREASE, 1));
+        }
+        stockOutboxRepository.saveAll(records);
+
+        relay.relayPending();
+
+        productIds.forEach(productId -> assertThat(productService.stock(productId)).isEqualTo(900));
+        assertThat(stockOutboxRepository.findAll())
+                .allMatch(record -> StockOutboxEntity.Status.SENT.equals(record.getStatus()));
+        assertThat(productService.requestCount("decrease")).isZero();
+        // Списания объединяются в пакетные запросы
+        assertThat(productService.requestCount("decrease-batch")).isLessThan(recordCount / 10);
+    }
+
+    @Test
+    void unavailableServiceRecordsAreRescheduledAndFinallyMarkedFailed() {
+        outboxProperties.setMaxAttempts(2);
+        outboxProperties.setInitialBackoff(Duration.ZERO);
+        UUID productId = productService.addProduct(BigDecimal.TEN, 10);
+        StockOutboxEntity decrease = stockOutboxRepository.save(
+                record(productId, StockOutboxEntity.Operation.DECREASE, 1));
+
+        productService.failNextRequests(1);
+        relay.relayBatch();
+        StockOutboxEntity afterFirstAttempt = stockOutboxRepository.findById(decrease.getOutboxId()).orElseThrow();
+        assertThat(afterFirstAttempt.getStatus()).isEqualTo(StockOutboxEntity.Status.PENDING);
+        assertThat(afterFirstAttempt.getAttempts()).isEqualTo(1);
+        assertThat(afterFirstAttempt.getLastError()).contains("недоступен");
+
+        productService.failNextRequests(1);
+        relay.relayBatch();
+        StockOutboxEntity afterSecondAttempt = stockOutboxRepository.findById(decrease.getOutboxId()).orElseThrow();
+        assertThat(afterSecondAttempt.getStatus()).isEqualTo(StockOutboxEntity.Status.FAILED);
+        assertThat(productService.stock(productId)).isEqualTo(10);
+    }
+
+    @Test
+    void rejectedRecordsAreMarkedFailedWithoutRetries() {
+        outboxProperties.setMaxAttempts(5);
+        outboxProperties.setInitialBackoff(Duration.ZERO);
+        UUID productId = productService.addProduct(BigDecimal.TEN, 10);
+        UUID returned = productService.addProduct(BigDecimal.TEN, 10);
+        StockOutboxEntity tooLarge = stockOutboxRepository.save(
+                record(productId, StockOutboxEntity.Operation.DECREASE, 50));
+        StockOutboxEntity unknown = stockOutboxRepository.save(
+                record(UUID.randomUUID(), StockOutboxEntity.Operation.INCREASE, 1));
+        stockOutboxRepository.save(record(returned, StockOutboxEntity.Operation.INCREASE, 5));
+
+        relay.relayBatch();
+
+        // Недостаточно остатка (отказ по товару в пакете) и неизвестный товар (ответ 4xx) не повторяются
+        StockOutboxEntity rejectedDecrease = stockOutboxRepository.findById(tooLarge.getOutboxId()).orElseThrow();
+        assertThat(rejectedDecrease.getStatus()).isEqualTo(StockOutboxEntity.Status.FAILED);
+        assertThat(rejectedDecrease.getAttempts()).isEqualTo(1);
+        assertThat(rejectedDecrease.getLastError()).contains("Недостаточно товара");
+        assertThat(stockOutboxRepository.findById(unknown.getOutboxId()).orElseThrow().getStatus())
+                .isEqualTo(StockOutboxEntity.Status.FAILED);
+        assertThat(productService.stock(returned)).isEqualTo(15);
+        assertThat(productService.stock(productId)).isEqualTo(10);
+
+        assertThat(relay.relayBatch()).isZero();
+    }
+
+    @Test
+    void leaseShorterThanSendTimeIsRejectedAtStartup() {
+        ProductServiceProperties productProperties = new ProductServiceProperties();
+        productProperties.getHttp().setRequestDeadline(Duration.ofSeconds(20));
+        outboxProperties.setLease(Duration.ofSeconds(30));
+
+        assertThatThrownBy(() -> new StockOutboxRelay(stockOutboxRepository, dispatcher, productServiceClient,
+                stockOutboxService, orderService, new TransactionTemplate(transactionManager), outboxProperties,
+                productProperties, new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("order.stock-outbox.lease");
+    }
+
+    @Test
+    void rejectedDecrementFailsTheOrderAndReturnsItsOtherItems() {
+        outboxProperties.setInitialBackoff(Duration.ZERO);
+        UUID sentProduct = productService.addProduct(BigDecimal.TEN, 10);
+        UUID scarceProduct = productService.addProduct(BigDecimal.TEN, 1);
+        UUID laterProduct = productService.addProduct(BigDecimal.TEN, 10);
+        OrderEntity order = orderRepository.save(order());
+
+        // Первая позиция уже списана, вторую списать нельзя, третья еще ждет своей попытки
+        StockOutboxEntity sentDecrease = record(sentProduct, StockOutboxEntity.Operation.DECREASE, 2);
+        sentDecrease.setOrderId(order.getOrderId());
+        sentDecrease.setStatus(StockOutboxEntity.Status.SENT);
+        StockOutboxEntity scarceDecrease = record(scarceProduct, StockOutboxEntity.Operation.DECREASE, 5);
+        scarceDecrease.setOrderId(order.getOrderId());
+        StockOutboxEntity laterDecrease = record(laterProduct, StockOutboxEntity.Operation.DECREASE, 3);
+        laterDecrease.setOrderId(order.getOrderId());
+        laterDecrease.setNextAttemptAt(LocalDateTime.now().plusMinutes(5));
+        stockOutboxRepository.saveAll(List.of(sentDecrease, scarceDecrease, laterDecrease));
+
+        assertThat(relay.relayBatch()).isEqualTo(1);
+
+        OrderEntity failed = orderRepository.findById(order.getOrderId()).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(OrderStatus.FAILED);
+        assertThat(failed.getFailureReason()).contains("Недостаточно товара");
+        assertThat(stockOutboxRepository.findById(laterDecrease.getOutboxId()).orElseThrow().getStatus())
+                .isEqualTo(StockOutboxEntity.Status.CANCELLED);
+        assertThat(stockOutboxRepository.findAll())
+                .filteredOn(record -> StockOutboxEntity.Operation.INCREASE.equals(record.getOperation()))
+                .singleElement()
+                .satisfies(increase -> {
+                    assertThat(increase.getProductId()).isEqualTo(sentProduct);
+                    assertThat(increase.getQuantity()).isEqualTo(2);
+                });
+
+        // Возврат уже списанной позиции уходит следующим проходом, отмененное списание не отправляется
+        assertThat(relay.relayBatch()).isEqualTo(1);
+        assertThat(productService.stock(sentProduct)).isEqualTo(12);
+        assertThat(productService.stock(scarceProduct)).isEqualTo(1);
+        assertThat(productService.stock(laterProduct)).isEqualTo(10);
+    }
+
+    private static OrderEntity order() {
+        OrderEntity order = new OrderEntity();
+        order.setUserId(1L);
+        order.setAddress("Москва");
+        order.setDeliveryMethod("COURIER");
+        order.setStatus(OrderStatus.CREATED);
+        order.setTotalAmount(BigDecimal.TEN);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setItems(new ArrayList<>());
+        return order;
+    }
+
+    private static StockOutboxEntity record(UUID productId, String operation, int quantity) {
+        StockOutboxEntity record = new StockOutboxEntity();
+        record.setOrderId(UUID.randomUUID());
+        record.setProductId(productId);
+        record.setOperation(operation);
+        record.setQuantity(quantity);
+        record.setStatus(StockOutboxEntity.Status.PENDING);
+        record.setAttempts(0);
+        record.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        record.setCreatedAt(LocalDateTime.now());
+        return record;
+    }
+}
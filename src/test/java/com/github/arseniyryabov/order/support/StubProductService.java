@@ -0,0 +1,203 @@
+package com.github.arseniyryabov.order.support;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.arseniyryabov.order.integration.ProductResponse;
+import com.github.arseniyryabov.order.integration.StockChangeRequest;
+import com.github.arseniyryabov.order.integration.StockChangeResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/* Локальная замена product-service для тестов на встроенном HTTP-сервере JDK
+Хранит товары и остатки в памяти, считает запросы по каждому эндпоинту, умеет отвечать ошибками и с задержкой */
+public class StubProductService implements AutoCloseable {
+
+    private static final Pattern PRODUCT_PATH = Pattern.compile("/products/([0-9a-fA-F-]{36})(/(decrease|increase)-stock)?");
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+    private final Map<UUID, ProductResponse> products = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private volatile Duration latency = Duration.ZERO;
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final AtomicInteger delaysLeft = new AtomicInteger();
+    private final AtomicInteger omittedResultsLeft = new AtomicInteger();
+    private volatile Duration delay = Duration.ZERO;
+    private final Map<String, String> lastHeaders = new ConcurrentHashMap<>();
+
+    private StubProductService(HttpServer server) {
+        this.server = server;
+    }
+
+    public static StubProductService start() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            StubProductService stub = new StubProductService(server);
+            server.createContext("/products", stub::handle);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.start();
+            return stub;
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось запустить заглушку product-service", e);
+        }
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public UUID addProduct(BigDecimal price, int stockQuantity) {
+        UUID productId = UUID.randomUUID();
+        products.put(productId, new ProductResponse(productId, "Товар " + productId, price, null, stockQuantity, null, null));
+        return productId;
+    }
+
+    public int stock(UUID productId) {
+        return products.get(productId).getStockQuantity();
+    }
+
+    // Количество запросов по эндпоинту: get, batch, decrease, increase, decrease-batch
+    public int requestCount(String endpoint) {
+        AtomicInteger count = requestCounts.get(endpoint);
+        return count != null ? count.get() : 0;
+    }
+
+    public int totalRequestCount() {
+        return requestCounts.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    // Значение заголовка из последнего запроса, в котором он был, или null
+    public String lastHeader(String name) {
+        return lastHeaders.get(name.toLowerCase());
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    // Следующие count запросов получат 503 (считаются по эндпоинту failed)
+    public void failNextRequests(int count) {
+        failuresLeft.set(count);
+    }
+
+    // Следующие count запросов будут обработаны с дополнительной задержкой
+    public void delayNextRequests(int count, Duration delay) {
+        this.delay = delay;
+        delaysLeft.set(count);
+    }
+
+    // Следующие count пакетных списаний применяются, но приходят без результатов по товарам
+    public void omitNextBatchResults(int count) {
+        omittedResultsLeft.set(count);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestHeaders().forEach((name, values) -> lastHeaders.put(name.toLowerCase(), values.getFirst()));
+            if (latency.isPositive()) {
+                Thread.sleep(latency);
+            }
+            if (takeOne(delaysLeft)) {
+                Thread.sleep(delay);
+            }
+            if (takeOne(failuresLeft)) {
+                count("failed");
+                // Тело запроса дочитывается, иначе соединение keep-alive нельзя переиспользовать
+                exchange.getRequestBody().readAllBytes();
+                respond(exchange, 503, Map.of("message", "Сервис недоступен"));
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/products/batch")) {
+                count("batch");
+                List<UUID> ids = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {});
+                respond(exchange, 200, ids.stream().map(products::get).filter(Objects::nonNull).toList());
+                return;
+            }
+            if (path.equals("/products/decrease-stock/batch")) {
+                count("decrease-batch");
+                List<StockChangeRequest> changes = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {});
+                List<StockChangeResult> results = new ArrayList<>();
+                changes.forEach(change -> results.add(changeStock(change.getProductId(), -change.getQuantity())));
+                respond(exchange, 200, takeOne(omittedResultsLeft) ? List.of() : results);
+                return;
+            }
+            Matcher matcher = PRODUCT_PATH.matcher(path);
+            if (!matcher.matches()) {
+                respond(exchange, 404, Map.of("message", "Неизвестный путь " + path));
+                return;
+            }
+            UUID productId = UUID.fromString(matcher.group(1));
+            String operation = matcher.group(3);
+            if (operation == null) {
+                count("get");
+                ProductResponse product = products.get(productId);
+                respond(exchange, product != null ? 200 : 404, product != null ? product : Map.of());
+                return;
+            }
+            count(operation);
+            Map<String, Integer> body = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {});
+            int delta = "decrease".equals(operation) ? -body.get("quantity") : body.get("quantity");
+            StockChangeResult result = changeStock(productId, delta);
+            respond(exchange, result.isSuccess() ? 200 : 409, Map.of("message", Objects.toString(result.getMessage(), "")));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private StockChangeResult changeStock(UUID productId, int delta) {
+        ProductResponse product = products.get(productId);
+        if (product == null) {
+            return new StockChangeResult(productId, false, "Товар не найден");
+        }
+        synchronized (product) {
+            int updated = product.getStockQuantity() + delta;
+            if (updated < 0) {
+                return new StockChangeResult(productId, false, "Недостаточно товара на складе");
+            }
+            product.setStockQuantity(updated);
+            return new StockChangeResult(productId, true, null);
+        }
+    }
+
+    private static boolean takeOne(AtomicInteger counter) {
+        return counter.getAndUpdate(left -> left > 0 ? left - 1 : 0) > 0;
+    }
+
+    private void count(String endpoint) {
+        requestCounts.computeIfAbsent(endpoint, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}